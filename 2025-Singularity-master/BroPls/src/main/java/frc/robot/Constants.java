@@ -5,6 +5,7 @@
 package frc.robot;
 
 import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.math.util.Units;
 import swervelib.math.Matter;
 import static edu.wpi.first.units.Units.Volts;
@@ -50,6 +51,27 @@ public final class Constants
 
     // Hold time on motor brakes when disabled
     public static final double WHEEL_LOCK_TIME = 10; // seconds
+    // Odometry update period on the robot, 250Hz
+    public static final double ODOMETRY_PERIOD = 0.004; // seconds
+    // Odometry update period in simulation, maple-sim steps the arena on every odometry update
+    public static final double SIM_ODOMETRY_PERIOD = 0.02; // seconds
+    // Number of odometry samples kept for fusing vision at capture time, ~1s at 250Hz
+    public static final int    POSE_HISTORY_SIZE = 256;
+    // Skew correction while rotating, start with 0.1
+    public static final double ANGULAR_VELOCITY_COEFFICIENT = 0.1;
+    // Teleop translation scale applied to joystick input
+    public static final double TRANSLATION_SCALE = 0.8;
+  }
+
+  public static final class DriverCameraConstants
+  {
+
+    // USB device number of the driver camera
+    public static final int    DEVICE = 0;
+    // Stream budget, the FMS caps the robot at 4 Mbps and NetworkTables and the DS need the rest
+    public static final double BUDGET_BITS_PER_SECOND = 2.5e6;
+    // Stop stepping up the stream above this fraction of RIO CPU in use
+    public static final double MAX_CPU_UTILIZATION = 0.8;
   }
 
   public static class OperatorConstants
@@ -70,6 +92,11 @@ public final class Constants
   public static final double kEncoderPositionConversionFactor = 11.0/60.0 * (22.0*0.25) * 2.0;
   public static final double kEncoderVelocityConversionFactor = kEncoderPositionConversionFactor / 60;
 
+  // Kraken elevator: 15:1 gearbox on the same 22 tooth #25 sprocket, the carriage moving twice the chain travel, so
+  // 7.5 motor rotations per sprocket circumference of carriage travel
+  public static final double kElevatorGearRatio = 15.0;
+  public static final double kElevatorRotationsPerInch = kElevatorGearRatio / ((22.0*0.25) * 2.0);
+
   public static final int kCurrentLimit = 40;
 
   public static final double kUpControllerP = 5.6;//7; //
@@ -88,6 +115,9 @@ public final class Constants
 
   public static final double kMaxVelocity = 150.0;    // 120 inches per second (COOKING) calculated max is 184 in/s
   public static final double kMaxAcceleration = 240;    // 400 inches per second^2 (also COOKING) calculated max is 600 in/s^2
+  // Motion Magic cruise for the Kraken elevator, kMaxVelocity capped at 80% of the carriage's free speed on this gearing
+  public static final double kElevatorCruiseVelocity =
+      Math.min(kMaxVelocity, DCMotor.getKrakenX60(1).freeSpeedRadPerSec / (2 * Math.PI) / kElevatorRotationsPerInch * 0.8);
 
   public static final double kCoralIntakePosition = 0;
   public static final double kL1Position = 0;
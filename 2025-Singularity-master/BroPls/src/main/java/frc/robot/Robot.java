@@ -5,12 +5,21 @@
 package frc.robot;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.cameraserver.CameraServer;
+import frc.robot.Constants.DriverCameraConstants;
+import frc.robot.subsystems.DriverCamera;
+import frc.robot.util.ControlFrameFilter;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MatchLog;
+import frc.robot.util.NetworkTablesProfiler;
+import frc.robot.util.RobotStorage;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TelemetryBudget;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to each mode, as
@@ -27,12 +36,23 @@ public class Robot extends TimedRobot
 	
   private Timer disabledTimer;
 
+  private final DriverCamera driverCamera;
+
+  private final MatchLog.BooleanChannel enabledLog        = MatchLog.getInstance().addBoolean("Robot/Enabled");
+  private final MatchLog.BooleanChannel brownoutLog       = MatchLog.getInstance().addBoolean("Robot/Brownout");
+  private final MatchLog.DoubleChannel  batteryLog        = MatchLog.getInstance().addDouble("Robot/Battery Voltage");
+  private final MatchLog.DoubleChannel  canUtilizationLog = MatchLog.getInstance().addDouble("Robot/CAN Utilization");
+  private final MatchLog.DoubleChannel  loopTimeLog       = MatchLog.getInstance().addDouble("Robot/Loop Time");
+
   public Robot()
   {
     instance = this;
-	CameraServer.startAutomaticCapture();
-	CameraServer.getVideo();
-	CameraServer.putVideo("hello", 19200,10800);
+    // Log to the USB stick on the robot so logs survive redeploys.
+    MatchLog.getInstance().start(RobotStorage.directory("logs"));
+    driverCamera = new DriverCamera("Driver", DriverCameraConstants.DEVICE, DriverCamera.DEFAULT_MODES,
+                                    DriverCameraConstants.BUDGET_BITS_PER_SECOND,
+                                    DriverCameraConstants.MAX_CPU_UTILIZATION);
+    driverCamera.start();
 
   }
 
@@ -59,6 +79,12 @@ public class Robot extends TimedRobot
     {
       DriverStation.silenceJoystickConnectionWarning(true);
     }
+
+    // Every trigger is bound by now, so command and trigger timing can be hooked in.
+    LoopProfiler.getInstance().install();
+    // Every subsystem has declared its status signals by now.
+    StatusSignalRegistry.getInstance().configure();
+    m_robotContainer.startSuperstructure();
   }
 
   /**
@@ -75,7 +101,24 @@ public class Robot extends TimedRobot
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
+    LoopProfiler.getInstance().beginLoop();
+    // One batched refresh, so every subsystem reads samples taken at the same time.
+    StatusSignalRegistry.getInstance().refresh();
     CommandScheduler.getInstance().run();
+
+    // Dashboard and LiveWindow updates run after this, so leave the budget some headroom for them.
+    double loopTime = (RobotController.getFPGATime() - getLoopStartTime()) / 1e6;
+    TelemetryBudget.getInstance().update(loopTime);
+    LoopProfiler.getInstance().endLoop(loopTime, Timer.getFPGATimestamp());
+    enabledLog.append(DriverStation.isEnabled());
+    brownoutLog.append(RobotController.isBrownedOut());
+    batteryLog.append(RobotController.getBatteryVoltage());
+    canUtilizationLog.append(RobotController.getCANStatus().percentBusUtilization);
+    ControlFrameFilter.publishAll();
+    // Off unless turned on from the dashboard, and never with the FMS attached.
+    NetworkTablesProfiler.getInstance().update();
+    // Appended last, replay and the log analyzer treat it as the end of the loop.
+    loopTimeLog.append(loopTime);
   }
 
   /**
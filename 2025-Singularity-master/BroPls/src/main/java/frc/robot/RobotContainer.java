@@ -19,13 +19,20 @@ import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.WaitCommand;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.Constants.AutoNames;
 import frc.robot.Constants.OperatorConstants;
+import frc.robot.commands.AutoLibrary;
 import frc.robot.subsystems.SwerveSubsystem;
 import java.io.File;
 import swervelib.SwerveInputStream;
 import frc.robot.subsystems.PivotSubsystem;
 import edu.wpi.first.wpilibj2.command.Commands;
 import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.ElevatorIOSim;
+import frc.robot.subsystems.ElevatorIOTalonFX;
+import frc.robot.subsystems.PivotIOSim;
+import frc.robot.subsystems.PivotIOSparkMax;
+import frc.robot.subsystems.SuperstructureSupervisor;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj2.command.button.POVButton;
 
@@ -41,13 +48,31 @@ public class RobotContainer
   public final CommandXboxController driverXbox = new CommandXboxController(0);
   public final CommandXboxController operatorXbox = new CommandXboxController(1);
 
-  private final PivotSubsystem pivotSubsystem = new PivotSubsystem();
-  private final Elevator elevator = new Elevator();
+  /**
+   * Runs the elevator and pivot hardware on its own fast loop, the subsystems only hand it requests and read back its
+   * latest readings.
+   */
+  private final SuperstructureSupervisor superstructure = new SuperstructureSupervisor(
+      RobotBase.isReal() ? new ElevatorIOTalonFX() : new ElevatorIOSim(),
+      RobotBase.isReal() ? new PivotIOSparkMax() : new PivotIOSim());
+  private final PivotSubsystem pivotSubsystem = new PivotSubsystem(superstructure.getPivotIO());
+  private final Elevator elevator = new Elevator(superstructure.getElevatorIO());
 
   // The robot's subsystems and commands are defined here...
   private final SwerveSubsystem       drivebase  = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(),
                                                                                 "swerve/neo"));
 
+  /**
+   * Every PathPlanner auto and path, loaded in the background while disabled.
+   */
+  private final AutoLibrary autoLibrary = new AutoLibrary();
+
+  /**
+   * Drive backwards for a second, used when the selected auto is not available.
+   */
+  private final Command fallbackAuto = drivebase.driveCommand(() -> -1, () -> 0, () -> 0)
+                                                .withDeadline(new WaitCommand(1));
+
   /**
    * Converts driver input into a field-relative ChassisSpeeds that is controlled by angular velocity.
    */
@@ -112,6 +137,9 @@ public class RobotContainer
 
     DriverStation.silenceJoystickConnectionWarning(true);
     NamedCommands.registerCommand("test", Commands.print("I EXIST"));
+
+    // Named commands must be registered before the autos are built.
+    autoLibrary.preload();
   }
 
   /**
@@ -162,10 +190,7 @@ public class RobotContainer
       driverXbox.button(2).whileTrue(Commands.runEnd(() -> driveDirectAngleKeyboard.driveToPoseEnabled(true),
                                                      () -> driveDirectAngleKeyboard.driveToPoseEnabled(false)));
 
-     driverXbox.b().whileTrue(
-         drivebase.driveToPose(
-             new Pose2d(new Translation2d(4, 4), Rotation2d.fromDegrees(0)))
-                             );
+      driverXbox.b().whileTrue(drivebase.driveToNearestGoal());
 
     }
     if (DriverStation.isTest())
@@ -182,7 +207,7 @@ public class RobotContainer
     {
       driverXbox.a().onTrue((Commands.runOnce(drivebase::zeroGyro)));
       driverXbox.x().onTrue(Commands.runOnce(drivebase::addFakeVisionReading));
-      driverXbox.rightBumper().whileTrue(Commands.none());
+      driverXbox.rightBumper().whileTrue(drivebase.driveToNearestGoal());
       driverXbox.back().whileTrue(Commands.none());
       driverXbox.leftBumper().whileTrue(Commands.runOnce(drivebase::lock, drivebase).repeatedly());
       driverXbox.start().onTrue(Commands.none());
@@ -198,18 +223,33 @@ public class RobotContainer
   }
 
   /**
-   * Use this to pass the autonomous command to the main {@link Robot} class.
+   * Use this to pass the autonomous command to the main {@link Robot} class. Autos are prebuilt by the
+   * {@link AutoLibrary}, so this is only a lookup.
    *
    * @return the command to run in autonomous
    */
   public Command getAutonomousCommand()
   {
-    // An example command will be run in autonomous
-    return drivebase.driveCommand(()->-1, ()->0, ()->0).withDeadline(new WaitCommand(1));
+    Command auto = autoLibrary.get(AutoNames.LEAVEAUTO);
+    if (auto == null)
+    {
+      DriverStation.reportWarning("Auto " + AutoNames.LEAVEAUTO + " is not loaded, running fallback auto", false);
+      return fallbackAuto;
+    }
+    return auto;
   }
 
   public void setMotorBrake(boolean brake)
   {
     drivebase.setMotorBrake(brake);
   }
+
+  /**
+   * Start the superstructure loop. Call after {@link frc.robot.util.StatusSignalRegistry#configure()}, so signal rates
+   * are never changed while the loop is refreshing them.
+   */
+  public void startSuperstructure()
+  {
+    superstructure.start();
+  }
 }
@@ -0,0 +1,271 @@
+package frc.robot.commands;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.FlippingUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import java.io.File;
+import java.io.FileReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Loads every PathPlanner auto and path in {@code deploy/pathplanner} on background threads while the robot is
+ * disabled, so that starting autonomous is only a map lookup.
+ * <p>
+ * Paths are flipped for the red alliance ahead of time and marked to never flip again, giving one ready command per
+ * alliance. Red autos are rebuilt from the auto file with pre-flipped paths and wrapped in a {@link PathPlannerAuto}
+ * with the flipped starting pose, so nothing is flipped when autonomous starts. Choreo autos are left to
+ * {@link PathPlannerAuto}, which flips them itself, for both alliances.
+ * <p>
+ * Autos and paths are kept in separate maps so the load order on the worker threads does not matter, an auto wins over
+ * a path of the same name when looked up.
+ * <p>
+ * {@link AutoBuilder} and every named command must be configured before {@link #preload()} is called.
+ */
+public class AutoLibrary
+{
+
+  /**
+   * Worker threads, the roboRIO has two cores and the main loop needs one.
+   */
+  private static final int THREADS = 2;
+
+  private final Map<String, Command> blueAutos = new ConcurrentHashMap<>();
+  private final Map<String, Command> redAutos  = new ConcurrentHashMap<>();
+  private final Map<String, Command> bluePaths = new ConcurrentHashMap<>();
+  private final Map<String, Command> redPaths  = new ConcurrentHashMap<>();
+  private final AtomicInteger        pending   = new AtomicInteger();
+  private final File                 directory;
+
+  /**
+   * Create an auto library for the PathPlanner deploy folder.
+   */
+  public AutoLibrary()
+  {
+    this(new File(Filesystem.getDeployDirectory(), "pathplanner"));
+  }
+
+  /**
+   * Create an auto library.
+   *
+   * @param directory PathPlanner deploy directory containing {@code autos} and {@code paths}.
+   */
+  public AutoLibrary(File directory)
+  {
+    this.directory = directory;
+  }
+
+  /**
+   * Start loading every auto and path in the background. Returns immediately.
+   */
+  public void preload()
+  {
+    List<Runnable> tasks = new ArrayList<>();
+    for (String name : listNames("paths", ".path"))
+    {
+      tasks.add(() -> loadPath(name));
+    }
+    for (String name : listNames("autos", ".auto"))
+    {
+      tasks.add(() -> loadAuto(name));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS, runnable -> {
+      Thread thread = new Thread(runnable, "AutoLibrary");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+    pending.set(tasks.size());
+    for (Runnable task : tasks)
+    {
+      executor.execute(() -> {
+        try
+        {
+          task.run();
+        } finally
+        {
+          pending.decrementAndGet();
+        }
+      });
+    }
+    executor.shutdown();
+  }
+
+  /**
+   * Check if all autos and paths have finished loading.
+   *
+   * @return true once every load task has completed or failed.
+   */
+  public boolean isLoaded()
+  {
+    return pending.get() == 0;
+  }
+
+  /**
+   * Get the prebuilt command for an auto or path, the auto if both have the same name.
+   *
+   * @param name     Auto or path file name without extension.
+   * @param alliance Alliance to get the command for.
+   * @return The command, or null if it does not exist or has not finished loading.
+   */
+  public Command get(String name, Alliance alliance)
+  {
+    boolean red  = alliance == Alliance.Red;
+    Command auto = (red ? redAutos : blueAutos).get(name);
+    if (auto != null)
+    {
+      return auto;
+    }
+    return (red ? redPaths : bluePaths).get(name);
+  }
+
+  /**
+   * Get the prebuilt command for an auto or path for the current alliance, blue if the alliance is unknown.
+   *
+   * @param name Auto or path file name without extension.
+   * @return The command, or null if it does not exist or has not finished loading.
+   */
+  public Command get(String name)
+  {
+    return get(name, DriverStation.getAlliance().orElse(Alliance.Blue));
+  }
+
+  private void loadPath(String name)
+  {
+    try
+    {
+      PathPlannerPath bluePath = PathPlannerPath.fromPathFile(name);
+      PathPlannerPath redPath  = bluePath.flipPath();
+      bluePath.preventFlipping = true;
+      redPath.preventFlipping = true;
+      bluePaths.put(name, AutoBuilder.followPath(bluePath));
+      redPaths.put(name, AutoBuilder.followPath(redPath));
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Failed to preload path " + name + ": " + e, e.getStackTrace());
+    }
+  }
+
+  private void loadAuto(String name)
+  {
+    try
+    {
+      // Only handed out on blue, where PathPlannerAuto does not flip anything.
+      PathPlannerAuto blueAuto = new PathPlannerAuto(name);
+      JSONObject      json;
+      try (Reader reader = new FileReader(new File(directory, "autos/" + name + ".auto")))
+      {
+        json = (JSONObject) new JSONParser().parse(reader);
+      }
+      if (Boolean.TRUE.equals(json.get("choreoAuto")))
+      {
+        // Choreo trajectories are not pre-flipped here, PathPlannerAuto flips them for the alliance.
+        redAutos.put(name, blueAuto);
+      } else
+      {
+        redAutos.put(name, buildRedAuto(json, blueAuto.getStartingPose()));
+      }
+      blueAutos.put(name, blueAuto);
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Failed to preload auto " + name + ": " + e, e.getStackTrace());
+    }
+  }
+
+  /**
+   * Build the red version of an auto from its file, the same way {@link PathPlannerAuto} does but with every path
+   * flipped now and marked to never flip again.
+   *
+   * @param json          Parsed auto file.
+   * @param blueStartPose Starting pose of the blue auto.
+   * @return Red auto.
+   */
+  private Command buildRedAuto(JSONObject json, Pose2d blueStartPose) throws Exception
+  {
+    Command command = redCommand((JSONObject) json.get("command"));
+    if (Boolean.TRUE.equals(json.get("resetOdom")))
+    {
+      // resetOdom flips the blue pose for the alliance when it runs, and this command is only handed out on red.
+      command = Commands.sequence(AutoBuilder.resetOdom(blueStartPose), command);
+    }
+    return new PathPlannerAuto(command, FlippingUtil.flipFieldPose(blueStartPose));
+  }
+
+  /**
+   * Build one node of an auto's command tree, with any paths flipped for red.
+   */
+  private Command redCommand(JSONObject json) throws Exception
+  {
+    JSONObject data = (JSONObject) json.get("data");
+    switch ((String) json.get("type"))
+    {
+      case "wait":
+        return Commands.waitSeconds(((Number) data.get("waitTime")).doubleValue());
+      case "named":
+        return NamedCommands.getCommand((String) data.get("name"));
+      case "path":
+        PathPlannerPath redPath = PathPlannerPath.fromPathFile((String) data.get("pathName")).flipPath();
+        redPath.preventFlipping = true;
+        return AutoBuilder.followPath(redPath);
+      case "sequential":
+        return Commands.sequence(redCommands(data));
+      case "parallel":
+        return Commands.parallel(redCommands(data));
+      case "race":
+        return Commands.race(redCommands(data));
+      case "deadline":
+        Command[] commands = redCommands(data);
+        return Commands.deadline(commands[0], Arrays.copyOfRange(commands, 1, commands.length));
+      default:
+        throw new IllegalArgumentException("Unknown auto command type " + json.get("type"));
+    }
+  }
+
+  private Command[] redCommands(JSONObject data) throws Exception
+  {
+    JSONArray children = (JSONArray) data.get("commands");
+    Command[] commands = new Command[children.size()];
+    for (int i = 0; i < commands.length; i++)
+    {
+      commands[i] = redCommand((JSONObject) children.get(i));
+    }
+    return commands;
+  }
+
+  /**
+   * List file names in a PathPlanner sub folder without their extension.
+   */
+  private List<String> listNames(String folder, String extension)
+  {
+    List<String> names = new ArrayList<>();
+    File[]       files = new File(directory, folder).listFiles((dir, file) -> file.endsWith(extension));
+    if (files != null)
+    {
+      for (File file : files)
+      {
+        String fileName = file.getName();
+        names.add(fileName.substring(0, fileName.length() - extension.length()));
+      }
+    }
+    return names;
+  }
+}
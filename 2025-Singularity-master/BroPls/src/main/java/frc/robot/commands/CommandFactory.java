@@ -3,14 +3,17 @@ package frc.robot.commands;
 
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
-import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import frc.robot.subsystems.Elevator;
 import frc.robot.subsystems.PivotSubsystem;
+import frc.robot.util.SuperstructurePlanner;
+import frc.robot.util.SuperstructurePlanner.Preset;
 
 
 public class CommandFactory {
     private final Elevator elevator;
     private final PivotSubsystem pivot;
+    // Plans between the presets are computed here, at boot, not when a button is pressed
+    private final SuperstructurePlanner planner = new SuperstructurePlanner();
     public CommandXboxController operatorXbox = new CommandXboxController(1);
         
         public CommandFactory(Elevator elevator, PivotSubsystem pivot, CommandXboxController operatorXbox) {
@@ -27,26 +30,14 @@ public class CommandFactory {
         elevator.setDefaultCommand(elevator.createJoystickCommandE(operatorXbox));
         pivot.setDefaultCommand(pivot.createJoystickCommand(operatorXbox));
         
-        // Create combined preset commands
-        Command groundIntakeCommand = new ParallelCommandGroup(
-            elevator.createGroundIntakeCommandE(),
-            pivot.createGroundIntakeCommand()
-        );
+        // Create combined preset commands, moving both joints along a collision-free plan
+        Command groundIntakeCommand = new SuperstructureMoveCommand(planner, elevator, pivot, Preset.GROUND_INTAKE);
         
-        Command algae1Command = new ParallelCommandGroup(
-            elevator.createAlgae1CommandE(),
-            pivot.createAlgae1Command()
-        );
+        Command algae1Command = new SuperstructureMoveCommand(planner, elevator, pivot, Preset.ALGAE1);
         
-        Command algae2Command = new ParallelCommandGroup(
-            elevator.createAlgae2CommandE(),
-            pivot.createAlgae2Command()
-        );
+        Command algae2Command = new SuperstructureMoveCommand(planner, elevator, pivot, Preset.ALGAE2);
         
-        Command bargeShootCommand = new ParallelCommandGroup(
-            elevator.createBargeShootCommandE(),
-            pivot.createBargeShootCommand()
-        );
+        Command bargeShootCommand = new SuperstructureMoveCommand(planner, elevator, pivot, Preset.BARGE_SHOOT);
         
         // Bind preset positions to buttons (A, X, B, Y)
         operatorXbox.a()
@@ -43,8 +43,7 @@ public class ShooterCommand {
     public Command createIntakeCommand() {
         // Simple command that sets motors for intake
         return shooter.run(() -> {
-            shooter.leftMotor.setControl(shooter.speedControl.withOutput(-INTAKE_SPEED));
-            shooter.rightMotor.setControl(shooter.speedControl.withOutput(INTAKE_SPEED));
+            shooter.setOutputs(-INTAKE_SPEED, INTAKE_SPEED);
         });
     }
     
@@ -54,8 +53,7 @@ public class ShooterCommand {
     public Command createShootCommand() {
         // Simple command that sets motors for shooting
         return shooter.run(() -> {
-            shooter.leftMotor.setControl(shooter.speedControl.withOutput(SHOOTING_SPEED));
-            shooter.rightMotor.setControl(shooter.speedControl.withOutput(-SHOOTING_SPEED));
+            shooter.setOutputs(SHOOTING_SPEED, -SHOOTING_SPEED);
         });
     }
     
@@ -65,8 +63,7 @@ public class ShooterCommand {
     public Command createStopCommand() {
         // Simple command that stops all motors
         return shooter.runOnce(() -> {
-            shooter.leftMotor.setControl(shooter.speedControl.withOutput(0));
-            shooter.rightMotor.setControl(shooter.speedControl.withOutput(0));
+            shooter.setOutputs(0, 0);
         });
     }
     
@@ -0,0 +1,151 @@
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants;
+import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.PivotSubsystem;
+import frc.robot.util.SuperstructurePlanner;
+import frc.robot.util.SuperstructurePlanner.Plan;
+import frc.robot.util.SuperstructurePlanner.Preset;
+import frc.robot.util.SuperstructurePlanner.Segment;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves the elevator and pivot to a preset along a collision-free plan from {@link SuperstructurePlanner}.
+ * Like the single subsystem preset commands it keeps holding the preset until interrupted.
+ * Away from a preset the plan is computed in the background while both joints hold where they are.
+ */
+public class SuperstructureMoveCommand extends Command {
+    // Time past a segment's planned duration to wait for both joints to settle before moving straight to the preset
+    private static final double SEGMENT_TIMEOUT_MARGIN = 0.5;
+
+    private final SuperstructurePlanner planner;
+    private final Elevator elevator;
+    private final PivotSubsystem pivot;
+    private final Preset preset;
+    private final Timer timer = new Timer();
+
+    private CompletableFuture<Plan> pendingPlan;
+    private Plan plan;
+    private int segmentIndex;
+    private boolean elevatorStarted;
+    private boolean pivotStarted;
+
+    public SuperstructureMoveCommand(SuperstructurePlanner planner, Elevator elevator, PivotSubsystem pivot,
+            Preset preset) {
+        this.planner = planner;
+        this.elevator = elevator;
+        this.pivot = pivot;
+        this.preset = preset;
+        setName("Superstructure " + preset);
+        addRequirements(elevator, pivot);
+    }
+
+    @Override
+    public void initialize() {
+        // Hold where we are until the plan is ready, and so the late joint does not drift while it waits,
+        // e.g. after manual control
+        elevator.goToPosition(elevator.getCurrentPosition());
+        pivot.setGoalAngle(pivot.getCurrentPosition());
+        plan = null;
+        segmentIndex = 0;
+        // Already complete when starting at a preset, so the move starts in this loop
+        pendingPlan = planner.planAsync(elevator.getCurrentPosition(), pivot.getCurrentPosition(), preset);
+        checkPlan();
+    }
+
+    @Override
+    public void execute() {
+        if (pendingPlan != null) {
+            checkPlan();
+            return;
+        }
+        if (plan == null || segmentIndex >= plan.segments.size()) {
+            return;
+        }
+        Segment segment = plan.segments.get(segmentIndex);
+        double t = timer.get();
+
+        // The late joint waits for its delay and for the leading joint to be as far along as planned,
+        // so a slow leading joint cannot drag the late one into a keep-out region
+        if (!elevatorStarted && t >= segment.elevatorDelay
+                && reached(pivot.getCurrentPosition(), segment.angle(segment.elevatorDelay), segment.fromAngle,
+                        segment.toAngle, PivotSubsystem.GOAL_TOLERANCE)) {
+            elevator.goToPosition(segment.toHeight);
+            elevatorStarted = true;
+        }
+        if (!pivotStarted && t >= segment.pivotDelay
+                && reached(elevator.getCurrentPosition(), segment.height(segment.pivotDelay), segment.fromHeight,
+                        segment.toHeight, Constants.kAllowedError)) {
+            pivot.setGoalAngle(segment.toAngle);
+            pivotStarted = true;
+        }
+
+        // The next segment starts from rest at this one's end, so wait until the superstructure loop has seen
+        // both joints settle
+        if (elevatorStarted && pivotStarted && t >= segment.duration && elevator.isSettled() && pivot.isSettled()) {
+            startSegment(segmentIndex + 1);
+        } else if (t >= segment.duration + SEGMENT_TIMEOUT_MARGIN) {
+            // A joint is stuck or never settles, give up on the plan rather than wait forever
+            DriverStation.reportWarning(getName() + " segment " + segmentIndex + " timed out, moving straight to "
+                    + preset, false);
+            startSegment(plan.segments.size());
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        // Keep holding the preset, the default joystick commands would drop the elevator goal
+        return false;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        timer.stop();
+        if (pendingPlan != null) {
+            // Drop a plan still being computed, a new command plans from wherever the joints are then
+            pendingPlan.cancel(false);
+            pendingPlan = null;
+        }
+    }
+
+    /**
+     * Start the plan once the planner has finished it, keep holding otherwise
+     */
+    private void checkPlan() {
+        if (!pendingPlan.isDone()) {
+            return;
+        }
+        plan = pendingPlan.join();
+        pendingPlan = null;
+        if (plan == null) {
+            // No collision-free move from here, e.g. started inside a keep-out region, so move both at once as before
+            elevator.goToPosition(preset.height);
+            pivot.setGoalAngle(preset.angle);
+            return;
+        }
+        startSegment(0);
+    }
+
+    private void startSegment(int index) {
+        segmentIndex = index;
+        elevatorStarted = false;
+        pivotStarted = false;
+        timer.restart();
+        if (index >= plan.segments.size()) {
+            // Already there, or the last segment is done, hold the preset
+            elevator.goToPosition(preset.height);
+            pivot.setGoalAngle(preset.angle);
+        }
+    }
+
+    /**
+     * Whether a joint moving from one position to another has got at least as far as the planned position,
+     * always true for a move of zero length
+     */
+    private static boolean reached(double position, double planned, double from, double to, double tolerance) {
+        return (position - planned) * Math.signum(to - from) >= -tolerance;
+    }
+}
@@ -0,0 +1,81 @@
+package frc.robot.commands.drivebase;
+
+import com.pathplanner.lib.util.DriveFeedforwards;
+import com.pathplanner.lib.util.swerve.SwerveSetpoint;
+import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystems.SwerveSubsystem;
+import java.util.function.Supplier;
+import swervelib.SwerveDrive;
+
+/**
+ * Drive with {@link SwerveSetpointGenerator} from 254, implemented by PathPlanner. The previous setpoint and timestamp
+ * are kept in plain fields and reset from the measured drive state every time the command starts.
+ */
+public class SetpointGeneratorDrive extends Command
+{
+
+  /**
+   * Drivebase to command.
+   */
+  private final SwerveSubsystem         swerve;
+  /**
+   * Shared generator from the {@link frc.robot.subsystems.DrivetrainModel}, it holds no per-command state.
+   */
+  private final SwerveSetpointGenerator setpointGenerator;
+  /**
+   * Robot relative speeds to achieve, read every cycle.
+   */
+  private final Supplier<ChassisSpeeds> robotRelativeSpeeds;
+  /**
+   * Setpoint sent last cycle, the starting point for the next one. Seeded from the measured state on initialize.
+   */
+  private       SwerveSetpoint          previousSetpoint;
+  /**
+   * FPGA timestamp of the last cycle in seconds, a plain double so no box is allocated per cycle.
+   */
+  private       double                  previousTime;
+
+  /**
+   * Drive the swerve with the setpoint generator.
+   *
+   * @param swerve              The swerve drivebase subsystem.
+   * @param setpointGenerator   Shared {@link SwerveSetpointGenerator}, see
+   *                            {@link frc.robot.subsystems.DrivetrainModel}.
+   * @param robotRelativeSpeeds Robot relative {@link ChassisSpeeds} to achieve.
+   */
+  public SetpointGeneratorDrive(SwerveSubsystem swerve, SwerveSetpointGenerator setpointGenerator,
+                                Supplier<ChassisSpeeds> robotRelativeSpeeds)
+  {
+    this.swerve = swerve;
+    this.setpointGenerator = setpointGenerator;
+    this.robotRelativeSpeeds = robotRelativeSpeeds;
+
+    addRequirements(swerve);
+  }
+
+  @Override
+  public void initialize()
+  {
+    SwerveDrive swerveDrive = swerve.getSwerveDrive();
+    previousSetpoint = new SwerveSetpoint(swerveDrive.getRobotVelocity(),
+                                          swerveDrive.getStates(),
+                                          DriveFeedforwards.zeros(swerveDrive.getModules().length));
+    previousTime = Timer.getFPGATimestamp();
+  }
+
+  @Override
+  public void execute()
+  {
+    double newTime = Timer.getFPGATimestamp();
+    previousSetpoint = setpointGenerator.generateSetpoint(previousSetpoint,
+                                                          robotRelativeSpeeds.get(),
+                                                          newTime - previousTime);
+    previousTime = newTime;
+    swerve.getSwerveDrive().drive(previousSetpoint.robotRelativeSpeeds(),
+                                  previousSetpoint.moduleStates(),
+                                  previousSetpoint.feedforwards().linearForces());
+  }
+}
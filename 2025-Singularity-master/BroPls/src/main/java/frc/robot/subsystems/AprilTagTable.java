@@ -0,0 +1,178 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Translation3d;
+
+/**
+ * Immutable table of AprilTag poses built once from an {@link AprilTagFieldLayout} and indexed directly by fiducial ID,
+ * so per-frame code can look tags up without {@link java.util.Optional}s or geometry conversions.
+ * <p>
+ * The face normal of a tag is the unit vector pointing out of the printed side, along the tag's +X axis.
+ */
+public final class AprilTagTable
+{
+
+  private final boolean[] present;
+  private final Pose3d[]  poses3d;
+  private final Pose2d[]  poses2d;
+  private final double[]  x;
+  private final double[]  y;
+  private final double[]  z;
+  private final double[]  heading;
+  private final double[]  normalX;
+  private final double[]  normalY;
+  private final double[]  normalZ;
+
+  /**
+   * Build the table.
+   *
+   * @param fieldLayout Field layout to read the tags from.
+   */
+  public AprilTagTable(AprilTagFieldLayout fieldLayout)
+  {
+    int maxId = 0;
+    for (AprilTag tag : fieldLayout.getTags())
+    {
+      maxId = Math.max(maxId, tag.ID);
+    }
+    int size = maxId + 1;
+    present = new boolean[size];
+    poses3d = new Pose3d[size];
+    poses2d = new Pose2d[size];
+    x = new double[size];
+    y = new double[size];
+    z = new double[size];
+    heading = new double[size];
+    normalX = new double[size];
+    normalY = new double[size];
+    normalZ = new double[size];
+    for (AprilTag tag : fieldLayout.getTags())
+    {
+      int id = tag.ID;
+      present[id] = true;
+      poses3d[id] = tag.pose;
+      poses2d[id] = tag.pose.toPose2d();
+      x[id] = tag.pose.getX();
+      y[id] = tag.pose.getY();
+      z[id] = tag.pose.getZ();
+      heading[id] = poses2d[id].getRotation().getRadians();
+      Translation3d normal = new Translation3d(1, 0, 0).rotateBy(tag.pose.getRotation());
+      normalX[id] = normal.getX();
+      normalY[id] = normal.getY();
+      normalZ[id] = normal.getZ();
+    }
+  }
+
+  /**
+   * Check if a tag is on the field.
+   *
+   * @param id AprilTag ID
+   * @return true if the tag exists in the layout.
+   */
+  public boolean contains(int id)
+  {
+    return id >= 0 && id < present.length && present[id];
+  }
+
+  /**
+   * 3d pose of a tag.
+   *
+   * @param id AprilTag ID
+   * @return {@link Pose3d} of the tag, or null if it does not exist.
+   */
+  public Pose3d getPose3d(int id)
+  {
+    return contains(id) ? poses3d[id] : null;
+  }
+
+  /**
+   * 2d pose of a tag.
+   *
+   * @param id AprilTag ID
+   * @return {@link Pose2d} of the tag, or null if it does not exist.
+   */
+  public Pose2d getPose2d(int id)
+  {
+    return contains(id) ? poses2d[id] : null;
+  }
+
+  /**
+   * Field X position of a tag, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return X in meters.
+   */
+  public double getX(int id)
+  {
+    return x[id];
+  }
+
+  /**
+   * Field Y position of a tag, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Y in meters.
+   */
+  public double getY(int id)
+  {
+    return y[id];
+  }
+
+  /**
+   * Height of a tag, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Z in meters.
+   */
+  public double getZ(int id)
+  {
+    return z[id];
+  }
+
+  /**
+   * Field heading of a tag, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Heading in radians.
+   */
+  public double getHeading(int id)
+  {
+    return heading[id];
+  }
+
+  /**
+   * X component of the tag face normal, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Unit normal X.
+   */
+  public double getNormalX(int id)
+  {
+    return normalX[id];
+  }
+
+  /**
+   * Y component of the tag face normal, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Unit normal Y.
+   */
+  public double getNormalY(int id)
+  {
+    return normalY[id];
+  }
+
+  /**
+   * Z component of the tag face normal, the tag must exist.
+   *
+   * @param id AprilTag ID
+   * @return Unit normal Z.
+   */
+  public double getNormalZ(int id)
+  {
+    return normalZ[id];
+  }
+}
@@ -0,0 +1,217 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.util.LatencyHistogram;
+import frc.robot.util.MatchLog;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Rolling latency, frame rate and dropped frame statistics of one camera, fed by its worker thread.
+ * <p>
+ * Latency runs from capture to NetworkTables receive on the RIO, both on the time synced RIO timebase, so it includes
+ * pipeline time and network transit. Dropped frames are gaps in the pipeline sequence id. Statistics cover one window and are published under
+ * {@code /Vision/<camera>} and logged at the end of each. The camera is degraded after several bad windows in a row,
+ * and healthy again after as many good ones, so a single slow frame does not raise the alert.
+ * <p>
+ * {@link #getTrustScale()} grows with p95 latency and drop rate, and its value is applied to the camera's standard
+ * deviations so slow or lossy cameras pull odometry less.
+ */
+public class CameraHealth
+{
+
+  /**
+   * Window length in seconds.
+   */
+  private static final double WINDOW              = 1.0;
+  /**
+   * p95 latency above which a window is bad, in milliseconds.
+   */
+  private static final double MAX_LATENCY_MILLIS  = 60;
+  /**
+   * Latency the standard deviations were tuned at, in milliseconds.
+   */
+  private static final double GOOD_LATENCY_MILLIS = 30;
+  /**
+   * Frame rate below which a window is bad.
+   */
+  private static final double MIN_FPS             = 10;
+  /**
+   * Fraction of dropped frames above which a window is bad.
+   */
+  private static final double MAX_DROP_RATE       = 0.2;
+  /**
+   * Consecutive windows needed to change state.
+   */
+  private static final int    DEBOUNCE_WINDOWS    = 3;
+  /**
+   * Trust scale while degraded.
+   */
+  private static final double DEGRADED_SCALE      = 4;
+  /**
+   * Read debounce bounds in seconds, half the frame interval is used in between.
+   */
+  private static final double MIN_DEBOUNCE        = 0.005;
+  private static final double MAX_DEBOUNCE        = 0.015;
+
+  private final LatencyHistogram       latency      = new LatencyHistogram();
+  private final DoublePublisher        p50Publisher;
+  private final DoublePublisher        p95Publisher;
+  private final DoublePublisher        maxPublisher;
+  private final DoublePublisher        fpsPublisher;
+  private final DoublePublisher        stalenessPublisher;
+  private final IntegerPublisher       droppedPublisher;
+  private final DoublePublisher        trustPublisher;
+  private final BooleanPublisher       degradedPublisher;
+  private final MatchLog.DoubleChannel p95Log;
+  private final MatchLog.DoubleChannel fpsLog;
+  private final MatchLog.DoubleChannel droppedLog;
+  private       double                 windowStart  = Double.NaN;
+  private       long                   frames       = 0;
+  private       long                   dropped      = 0;
+  private       long                   totalDropped = 0;
+  private       long                   lastSequence = -1;
+  private       double                 lastFrame    = Double.NaN;
+  private       int                    badWindows   = 0;
+  private       int                    goodWindows  = 0;
+  /**
+   * Written by the worker thread, read by the main loop.
+   */
+  private volatile boolean             degraded     = false;
+  private volatile double              trustScale   = 1;
+  private volatile double              debounce     = MAX_DEBOUNCE;
+
+  /**
+   * @param name Camera name.
+   */
+  public CameraHealth(String name)
+  {
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(name);
+    p50Publisher = table.getDoubleTopic("LatencyP50Ms").publish();
+    p95Publisher = table.getDoubleTopic("LatencyP95Ms").publish();
+    maxPublisher = table.getDoubleTopic("LatencyMaxMs").publish();
+    fpsPublisher = table.getDoubleTopic("FPS").publish();
+    stalenessPublisher = table.getDoubleTopic("StalenessMs").publish();
+    droppedPublisher = table.getIntegerTopic("DroppedFrames").publish();
+    trustPublisher = table.getDoubleTopic("TrustScale").publish();
+    degradedPublisher = table.getBooleanTopic("Degraded").publish();
+    p95Log = MatchLog.getInstance().addDouble("Vision/" + name + "/Latency P95");
+    fpsLog = MatchLog.getInstance().addDouble("Vision/" + name + "/FPS");
+    droppedLog = MatchLog.getInstance().addDouble("Vision/" + name + "/Dropped");
+  }
+
+  /**
+   * Record a received frame. Called by the worker thread.
+   *
+   * @param result Result as received.
+   * @param now    Receive time in seconds.
+   */
+  public void record(PhotonPipelineResult result, double now)
+  {
+    latency.record((result.ntReceiveTimestampMicros - result.metadata.captureTimestampMicros) * 1000);
+    long sequence = result.metadata.sequenceID;
+    if (lastSequence >= 0 && sequence > lastSequence + 1)
+    {
+      dropped += sequence - lastSequence - 1;
+    }
+    lastSequence = sequence;
+    frames++;
+    lastFrame = now;
+  }
+
+  /**
+   * Close the window once it has elapsed, publish and update the state. Called by the worker thread every run.
+   *
+   * @param now Current time in seconds.
+   */
+  public void update(double now)
+  {
+    if (Double.isNaN(windowStart))
+    {
+      windowStart = now;
+      return;
+    }
+    double elapsed = now - windowStart;
+    if (elapsed < WINDOW)
+    {
+      return;
+    }
+    windowStart = now;
+
+    double fps       = frames / elapsed;
+    double dropRate  = frames + dropped > 0 ? (double) dropped / (frames + dropped) : 0;
+    double p95       = latency.getPercentileMillis(0.95);
+    double staleness = Double.isNaN(lastFrame) ? Double.POSITIVE_INFINITY : now - lastFrame;
+    boolean bad      = fps < MIN_FPS || dropRate > MAX_DROP_RATE || p95 > MAX_LATENCY_MILLIS;
+    if (bad)
+    {
+      goodWindows = 0;
+      if (++badWindows >= DEBOUNCE_WINDOWS)
+      {
+        degraded = true;
+      }
+    } else
+    {
+      badWindows = 0;
+      if (++goodWindows >= DEBOUNCE_WINDOWS)
+      {
+        degraded = false;
+      }
+    }
+    double scale = 1 + Math.max(0, p95 - GOOD_LATENCY_MILLIS) / GOOD_LATENCY_MILLIS + 2 * dropRate;
+    trustScale = degraded ? scale * DEGRADED_SCALE : scale;
+    if (fps > 0)
+    {
+      debounce = Math.max(MIN_DEBOUNCE, Math.min(MAX_DEBOUNCE, 0.5 / fps));
+    }
+    totalDropped += dropped;
+
+    p50Publisher.set(latency.getPercentileMillis(0.5));
+    p95Publisher.set(p95);
+    maxPublisher.set(latency.getMaxMillis());
+    fpsPublisher.set(fps);
+    stalenessPublisher.set(staleness * 1e3);
+    droppedPublisher.set(totalDropped);
+    trustPublisher.set(trustScale);
+    degradedPublisher.set(degraded);
+    p95Log.append(p95);
+    fpsLog.append(fps);
+    droppedLog.append(dropped);
+    latency.reset();
+    frames = 0;
+    dropped = 0;
+  }
+
+  /**
+   * Whether latency, frame rate or drops have been bad for several windows in a row.
+   *
+   * @return true if degraded.
+   */
+  public boolean isDegraded()
+  {
+    return degraded;
+  }
+
+  /**
+   * Factor to multiply the camera's standard deviations by.
+   *
+   * @return Scale, 1 for a healthy camera at its tuned latency.
+   */
+  public double getTrustScale()
+  {
+    return trustScale;
+  }
+
+  /**
+   * Minimum time between reads of the camera, half the measured frame interval.
+   *
+   * @return Debounce in seconds.
+   */
+  public double getDebounceSeconds()
+  {
+    return debounce;
+  }
+}
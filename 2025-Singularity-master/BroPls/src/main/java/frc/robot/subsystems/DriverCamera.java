@@ -0,0 +1,281 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.cscore.CameraServerJNI;
+import edu.wpi.first.cscore.MjpegServer;
+import edu.wpi.first.cscore.UsbCamera;
+import edu.wpi.first.cscore.VideoSource.ConnectionStrategy;
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.PixelFormat;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.util.MatchLog;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Driver camera streamed to the dashboard within a bandwidth budget.
+ * <p>
+ * The camera is asked for MJPEG at the resolution and frame rate of the current {@link Mode}, so the stream is
+ * compressed by the camera and passed through by the {@link MjpegServer} without any work on the RIO unless a mode sets
+ * a JPEG quality. Capture and serving run on cscore's own threads. Once a second a {@link Notifier} reads the measured
+ * frame rate and data rate from cscore telemetry and the RIO CPU load. It steps down one mode when the stream goes over
+ * budget or the CPU is saturated. It steps back up after several quiet periods, when the next mode is projected to fit.
+ * <p>
+ * The mode, measured frame rate, data rate, bytes per frame and CPU load are published under {@code /DriverCamera} and
+ * logged under {@code DriverCamera/}.
+ */
+public class DriverCamera
+{
+
+  /**
+   * Stream settings of one step of the ladder.
+   */
+  public static final class Mode
+  {
+
+    public final int width;
+    public final int height;
+    public final int fps;
+    /**
+     * JPEG quality from 0 to 100 the server recompresses to, -1 to pass the camera's frames through.
+     */
+    public final int quality;
+
+    public Mode(int width, int height, int fps, int quality)
+    {
+      this.width = width;
+      this.height = height;
+      this.fps = fps;
+      this.quality = quality;
+    }
+  }
+
+  /**
+   * Default ladder, best first. Recompression is only used once resolution and frame rate are already low, where it is
+   * cheap.
+   */
+  public static final Mode[] DEFAULT_MODES = {new Mode(320, 240, 30, -1),
+                                              new Mode(320, 240, 20, -1),
+                                              new Mode(320, 240, 15, -1),
+                                              new Mode(160, 120, 15, -1),
+                                              new Mode(160, 120, 10, 30)};
+
+  /**
+   * Seconds between adaptation steps, also the cscore telemetry period.
+   */
+  private static final double ADAPT_PERIOD       = 1.0;
+  /**
+   * Step down when the stream uses more than this fraction of the budget.
+   */
+  private static final double STEP_DOWN_FRACTION = 0.9;
+  /**
+   * Step up only when the next mode is projected to use less than this fraction of the budget.
+   */
+  private static final double STEP_UP_FRACTION   = 0.75;
+  /**
+   * Consecutive quiet periods needed before stepping up.
+   */
+  private static final int    STEP_UP_PERIODS    = 5;
+  /**
+   * Periods skipped after a mode change, the telemetry still covers the old mode.
+   */
+  private static final int    SETTLE_PERIODS     = 2;
+
+  private final UsbCamera              camera;
+  private final MjpegServer            server;
+  private final Mode[]                 modes;
+  private final double                 budgetBitsPerSecond;
+  private final double                 maxCpuUtilization;
+  /**
+   * Notifier running {@link #update()}, frames never touch the main loop.
+   */
+  private final Notifier               notifier;
+  private final IntegerPublisher       modePublisher;
+  private final IntegerPublisher       widthPublisher;
+  private final IntegerPublisher       heightPublisher;
+  private final DoublePublisher        targetFpsPublisher;
+  private final DoublePublisher        fpsPublisher;
+  private final DoublePublisher        mbpsPublisher;
+  private final DoublePublisher        bytesPerFramePublisher;
+  private final DoublePublisher        cpuPublisher;
+  private final BooleanPublisher       connectedPublisher;
+  private final MatchLog.DoubleChannel fpsLog;
+  private final MatchLog.DoubleChannel mbpsLog;
+  private final MatchLog.DoubleChannel modeLog;
+  private       int                    mode;
+  private       int                    quietPeriods  = 0;
+  private       int                    settlePeriods = SETTLE_PERIODS;
+  /**
+   * CPU jiffies at the last update, busy and total.
+   */
+  private       long                   lastBusy      = 0;
+  private       long                   lastTotal     = 0;
+
+  /**
+   * Open the camera and start serving it at the first mode. Adaptation does not run until {@link #start()} is called.
+   *
+   * @param name                Camera name shown on the dashboard.
+   * @param device              USB device number.
+   * @param modes               Stream modes, best first.
+   * @param budgetBitsPerSecond Bandwidth the stream may use.
+   * @param maxCpuUtilization   Fraction of RIO CPU above which the stream steps down.
+   */
+  public DriverCamera(String name, int device, Mode[] modes, double budgetBitsPerSecond, double maxCpuUtilization)
+  {
+    this.modes = modes.clone();
+    this.budgetBitsPerSecond = budgetBitsPerSecond;
+    this.maxCpuUtilization = maxCpuUtilization;
+
+    CameraServerJNI.setTelemetryPeriod(ADAPT_PERIOD);
+    camera = new UsbCamera(name, device);
+    camera.setConnectionStrategy(ConnectionStrategy.kKeepOpen);
+    server = CameraServer.startAutomaticCapture(camera);
+    applyMode(0);
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("DriverCamera").getSubTable(name);
+    modePublisher = table.getIntegerTopic("Mode").publish();
+    widthPublisher = table.getIntegerTopic("Width").publish();
+    heightPublisher = table.getIntegerTopic("Height").publish();
+    targetFpsPublisher = table.getDoubleTopic("TargetFPS").publish();
+    fpsPublisher = table.getDoubleTopic("FPS").publish();
+    mbpsPublisher = table.getDoubleTopic("Mbps").publish();
+    bytesPerFramePublisher = table.getDoubleTopic("BytesPerFrame").publish();
+    cpuPublisher = table.getDoubleTopic("CpuUtilization").publish();
+    connectedPublisher = table.getBooleanTopic("Connected").publish();
+    fpsLog = MatchLog.getInstance().addDouble("DriverCamera/" + name + "/FPS");
+    mbpsLog = MatchLog.getInstance().addDouble("DriverCamera/" + name + "/Mbps");
+    modeLog = MatchLog.getInstance().addDouble("DriverCamera/" + name + "/Mode");
+
+    notifier = new Notifier(this::update);
+    notifier.setName("DriverCamera");
+  }
+
+  /**
+   * Start adapting the stream.
+   */
+  public void start()
+  {
+    notifier.startPeriodic(ADAPT_PERIOD);
+  }
+
+  /**
+   * Stop adapting, the stream keeps its current mode.
+   */
+  public void stop()
+  {
+    notifier.stop();
+  }
+
+  private void applyMode(int index)
+  {
+    Mode next = modes[index];
+    camera.setVideoMode(PixelFormat.kMJPEG, next.width, next.height, next.fps);
+    server.setCompression(next.quality);
+    mode = index;
+    settlePeriods = SETTLE_PERIODS;
+    quietPeriods = 0;
+  }
+
+  /**
+   * Measure the stream and the CPU and step the mode. Runs on the notifier thread.
+   */
+  private void update()
+  {
+    boolean connected     = camera.isConnected();
+    double  fps           = camera.getActualFPS();
+    double  bitsPerSecond = camera.getActualDataRate() * 8;
+    double  bytesPerFrame = fps > 0 ? bitsPerSecond / 8 / fps : 0;
+    double  cpu           = readCpuUtilization();
+
+    if (connected && --settlePeriods < 0)
+    {
+      if (mode < modes.length - 1
+          && (bitsPerSecond > budgetBitsPerSecond * STEP_DOWN_FRACTION || cpu > maxCpuUtilization))
+      {
+        applyMode(mode + 1);
+      } else if (mode > 0 && bytesPerFrame > 0 && cpu < maxCpuUtilization && fits(modes[mode - 1], bytesPerFrame))
+      {
+        if (++quietPeriods >= STEP_UP_PERIODS)
+        {
+          applyMode(mode - 1);
+        }
+      } else
+      {
+        quietPeriods = 0;
+      }
+    }
+
+    Mode current = modes[mode];
+    modePublisher.set(mode);
+    widthPublisher.set(current.width);
+    heightPublisher.set(current.height);
+    targetFpsPublisher.set(current.fps);
+    fpsPublisher.set(fps);
+    mbpsPublisher.set(bitsPerSecond / 1e6);
+    bytesPerFramePublisher.set(bytesPerFrame);
+    cpuPublisher.set(cpu);
+    connectedPublisher.set(connected);
+    fpsLog.append(fps);
+    mbpsLog.append(bitsPerSecond / 1e6);
+    modeLog.append(mode);
+  }
+
+  /**
+   * Whether a mode is projected to fit the budget, scaling the current frame size by pixel count.
+   */
+  private boolean fits(Mode candidate, double bytesPerFrame)
+  {
+    Mode   current = modes[mode];
+    double scale   = (double) (candidate.width * candidate.height) / (current.width * current.height);
+    if (candidate.quality < 0 && current.quality >= 0)
+    {
+      // Passing the camera's own frames through, which are larger than a recompressed frame.
+      scale *= 2;
+    }
+    return bytesPerFrame * scale * candidate.fps * 8 < budgetBitsPerSecond * STEP_UP_FRACTION;
+  }
+
+  /**
+   * Fraction of CPU time spent busy since the last call, from {@code /proc/stat}.
+   *
+   * @return Utilization between 0 and 1, 0 if it cannot be read.
+   */
+  private double readCpuUtilization()
+  {
+    String line;
+    try (BufferedReader reader = new BufferedReader(new FileReader("/proc/stat")))
+    {
+      line = reader.readLine();
+    } catch (IOException e)
+    {
+      return 0;
+    }
+    if (line == null || !line.startsWith("cpu "))
+    {
+      return 0;
+    }
+    String[] fields = line.trim().split("\\s+");
+    long     total  = 0;
+    long     idle   = 0;
+    for (int i = 1; i < fields.length; i++)
+    {
+      long value = Long.parseLong(fields[i]);
+      total += value;
+      // idle and iowait
+      if (i == 4 || i == 5)
+      {
+        idle += value;
+      }
+    }
+    long   busy        = total - idle;
+    double utilization = total > lastTotal ? (double) (busy - lastBusy) / (total - lastTotal) : 0;
+    lastBusy = busy;
+    lastTotal = total;
+    return utilization;
+  }
+}
@@ -0,0 +1,48 @@
+package frc.robot.subsystems;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+import java.io.IOException;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Immutable drivetrain model shared by PathPlanner and the {@link SwerveSetpointGenerator}. The PathPlanner GUI
+ * settings are parsed once at boot and every consumer reuses the result.
+ */
+public final class DrivetrainModel
+{
+
+  /**
+   * Robot configuration parsed from {@code deploy/pathplanner/settings.json}.
+   */
+  public final RobotConfig             robotConfig;
+  /**
+   * Setpoint generator built from {@link #robotConfig}. It holds no per-command state so it can be shared.
+   */
+  public final SwerveSetpointGenerator setpointGenerator;
+
+  /**
+   * Build the model from an already parsed configuration.
+   *
+   * @param robotConfig               PathPlanner {@link RobotConfig}.
+   * @param maxSteerVelocityRadPerSec Maximum module steering velocity in radians per second.
+   */
+  public DrivetrainModel(RobotConfig robotConfig, double maxSteerVelocityRadPerSec)
+  {
+    this.robotConfig = robotConfig;
+    this.setpointGenerator = new SwerveSetpointGenerator(robotConfig, maxSteerVelocityRadPerSec);
+  }
+
+  /**
+   * Parse the PathPlanner GUI settings and build the model.
+   *
+   * @param maxSteerVelocityRadPerSec Maximum module steering velocity in radians per second.
+   * @return Drivetrain model.
+   * @throws IOException    If the PathPlanner GUI settings is invalid
+   * @throws ParseException If PathPlanner GUI settings is nonexistent.
+   */
+  public static DrivetrainModel fromGUISettings(double maxSteerVelocityRadPerSec) throws IOException, ParseException
+  {
+    return new DrivetrainModel(RobotConfig.fromGUISettings(), maxSteerVelocityRadPerSec);
+  }
+}
@@ -1,25 +1,28 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.controls.PositionVoltage;
-import com.ctre.phoenix6.controls.VoltageOut;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.math.util.Units;
+import frc.robot.Constants;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MatchLog;
+import frc.robot.util.TelemetryTable;
 
 public class Elevator extends SubsystemBase {
-    // Constants
-    private static final double GEAR_RATIO = 15.0; // Torque increase ratio
-    private static final double SPEED_REDUCTION = 7.5; // Speed reduction ratio
+    // Match log entries of the request applied each loop and the resulting command, read back by MatchReplay
+    public static final String GOAL_POSITION_KEY = "Elevator/Request/Goal Position";
+    public static final String MANUAL_SPEED_KEY = "Elevator/Request/Manual Speed";
+    public static final String COMMANDED_VOLTS_KEY = "Elevator/Outputs/Volts";
+    public static final String COMMANDED_POSITION_KEY = "Elevator/Outputs/Position";
+
+    // Gearing is Constants.kElevatorGearRatio, converted to carriage inches by the TalonFX
     
-    // Define preset positions (in motor rotations)
-    private static final double GROUND_INTAKE_POSITION_E = 0.0; // Placeholder
-    private static final double ALGAE1_POSITION_E = 10.0; // Placeholder
-    private static final double ALGAE2_POSITION_E = 20.0; // Placeholder
-    private static final double BARGE_SHOOT_POSITION_E = 30.0; // Placeholder
+    // Define preset positions (carriage height in inches)
+    public static final double GROUND_INTAKE_POSITION_E = Constants.kCoralIntakePosition;
+    public static final double ALGAE1_POSITION_E = Constants.kL2AlgaePosition;
+    public static final double ALGAE2_POSITION_E = Constants.kL3AlgaePosition;
+    public static final double BARGE_SHOOT_POSITION_E = Constants.kMaxHeight;
     
     // Motor control constants
     private static final double MAX_VOLTAGE = 12.0;
@@ -27,44 +30,49 @@ public class Elevator extends SubsystemBase {
     private static final double JOYSTICK_DEADBAND = 0.1;
     
     // Hardware
-    private final TalonFX leaderMotor;
-    private final TalonFX followerMotor;
-    
-    // Control objects
-    private final VoltageOut voltageControl = new VoltageOut(0);
-    private final PositionVoltage positionControl = new PositionVoltage(0);
+    private final ElevatorIO io;
+    private final ElevatorIO.ElevatorIOInputs inputs = new ElevatorIO.ElevatorIOInputs();
 
-    public Elevator() {
-        // Initialize motors
-        leaderMotor = new TalonFX(15); // Adjust IDs as needed
-        followerMotor = new TalonFX(16);
-        
-        // Configure motors
-        configureMotors();
+    // Last position goal, NaN while under manual control
+    private double goalPosition = Double.NaN;
+    // Last manual speed, applied while there is no position goal
+    private double manualSpeed = 0;
+    // Position sent in the last loop, and the one the settled flag in this loop's inputs refers to
+    private double commandedPosition = Double.NaN;
+    private double settledGoal = Double.NaN;
+
+    // Dashboard values, published from periodic() only
+    private final TelemetryTable telemetry = new TelemetryTable("Elevator");
+    private final TelemetryTable.DoubleEntry positionEntry = telemetry.addDouble("Elevator Position");
+    private final TelemetryTable.DoubleEntry goalEntry = telemetry.addDouble("Elevator Goal Position");
+    private final TelemetryTable.DoubleEntry voltageEntry = telemetry.addDouble("Elevator Voltage");
+    private final LoopProfiler.Section profile = LoopProfiler.getInstance().addSection("Elevator");
+    private final MatchLog.DoubleChannel goalPositionLog = MatchLog.getInstance().addDouble(GOAL_POSITION_KEY);
+    private final MatchLog.DoubleChannel manualSpeedLog = MatchLog.getInstance().addDouble(MANUAL_SPEED_KEY);
+    private final MatchLog.DoubleChannel commandedVoltsLog = MatchLog.getInstance().addDouble(COMMANDED_VOLTS_KEY);
+    private final MatchLog.DoubleChannel commandedPositionLog = MatchLog.getInstance().addDouble(COMMANDED_POSITION_KEY);
+
+    /**
+     * @param io Hardware layer, {@link SuperstructureSupervisor#getElevatorIO()} running {@link ElevatorIOTalonFX} on the
+     *           robot or {@link ElevatorIOSim} in simulation, or {@link ElevatorIOReplay} when replaying a match log
+     */
+    public Elevator(ElevatorIO io) {
+        this.io = io;
     }
     
-    private void configureMotors() {
-        // Reset motors to factory defaults
-        TalonFXConfiguration config = new TalonFXConfiguration();
-        leaderMotor.getConfigurator().apply(config);
-        followerMotor.getConfigurator().apply(config);
-        
-        // Set neutral mode (brake when not powered)
-        leaderMotor.setNeutralMode(NeutralModeValue.Brake);
-        followerMotor.setNeutralMode(NeutralModeValue.Brake);
-        
-        // Configure follower motor to follow leader
-        followerMotor.setControl(new com.ctre.phoenix6.controls.Follower(leaderMotor.getDeviceID(), false));
-        
-        // Set position to zero
-        leaderMotor.setPosition(0);
+    /**
+     * Returns the current height of the carriage in inches, as read at the start of the loop
+     */
+    public double getCurrentPosition() {
+        return inputs.positionInches;
     }
     
     /**
-     * Returns the current position of the elevator in motor rotations
+     * Returns true once the carriage has settled at the current goal, as detected by the superstructure loop
      */
-    public double getCurrentPosition() {
-        return leaderMotor.getPosition().getValueAsDouble();
+    public boolean isSettled() {
+        // NaN never compares equal, so never settled under manual control
+        return inputs.atGoal && settledGoal == goalPosition;
     }
     
     /**
@@ -77,16 +85,27 @@ public class Elevator extends SubsystemBase {
             speed = 0;
         }
         
-        // Apply voltage based on speed
-        leaderMotor.setControl(voltageControl.withOutput(speed * MAX_VOLTAGE));
+        // Voltage is applied from periodic()
+        goalPosition = Double.NaN;
+        manualSpeed = speed;
     }
     
     /**
      * Move the elevator to a specific position and hold it there
-     * @param position The position to move to (in motor rotations)
+     * @param position The height to move to (in inches)
      */
     public void goToPosition(double position) {
-        leaderMotor.setControl(positionControl.withPosition(position));
+        goalPosition = position;
+    }
+
+    /**
+     * Restore the request logged at the start of periodic(), used by MatchReplay
+     * @param goalPosition The position goal, NaN for manual control
+     * @param manualSpeed The manual speed after deadband
+     */
+    public void restoreRequest(double goalPosition, double manualSpeed) {
+        this.goalPosition = goalPosition;
+        this.manualSpeed = manualSpeed;
     }
     
     /**
@@ -138,13 +157,38 @@ public class Elevator extends SubsystemBase {
      * Reset the elevator position to zero
      */
     public void resetPosition() {
-        leaderMotor.setPosition(0);
+        io.resetPosition();
     }
     
     @Override
     public void periodic() {
         // This method will be called once per scheduler run
-        // Add any periodic checks or updates here if needed
+        profile.start();
+        io.updateInputs(inputs);
+        settledGoal = commandedPosition;
+        inputs.log();
+        goalPositionLog.append(goalPosition);
+        manualSpeedLog.append(manualSpeed);
+
+        // Commands only record the request, it is applied here so replay sees the same outputs
+        double volts = Double.NaN;
+        double position = Double.NaN;
+        if (Double.isNaN(goalPosition)) {
+            volts = manualSpeed * MAX_VOLTAGE;
+            io.setVoltage(volts);
+        } else {
+            position = goalPosition;
+            io.setPosition(position);
+        }
+        commandedVoltsLog.append(volts);
+        commandedPositionLog.append(position);
+        commandedPosition = position;
+
+        positionEntry.set(inputs.positionInches);
+        goalEntry.set(goalPosition);
+        voltageEntry.set(inputs.appliedVolts);
+        telemetry.publish();
+        profile.stop();
     }
 }
 
@@ -0,0 +1,84 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.MatchLog;
+
+/**
+ * Hardware layer of the {@link Elevator}. The subsystem only talks to the motors through this interface, so the same
+ * control code runs on the robot, in simulation and against a recorded match log.
+ */
+public interface ElevatorIO {
+
+    /**
+     * Sensor values read once per loop by {@link #updateInputs(ElevatorIOInputs)}.
+     */
+    class ElevatorIOInputs {
+        public static final String POSITION_KEY = "Elevator/Inputs/Position";
+        public static final String VELOCITY_KEY = "Elevator/Inputs/Velocity";
+        public static final String APPLIED_VOLTS_KEY = "Elevator/Inputs/Applied Volts";
+        public static final String CURRENT_KEY = "Elevator/Inputs/Current";
+        public static final String AT_GOAL_KEY = "Elevator/Inputs/At Goal";
+
+        public double positionInches = 0; // Carriage height
+        public double velocityInchesPerSec = 0;
+        public double appliedVolts = 0;
+        public double currentAmps = 0;
+        public boolean atGoal = false; // Settled at the position goal, detected by SuperstructureSupervisor
+
+        private final MatchLog.DoubleChannel positionLog;
+        private final MatchLog.DoubleChannel velocityLog;
+        private final MatchLog.DoubleChannel appliedVoltsLog;
+        private final MatchLog.DoubleChannel currentLog;
+        private final MatchLog.BooleanChannel atGoalLog;
+
+        public ElevatorIOInputs() {
+            this(true);
+        }
+
+        /**
+         * @param logged false for inputs that are never logged, like SuperstructureSupervisor's own copy,
+         *               so the log keeps one entry per key
+         */
+        ElevatorIOInputs(boolean logged) {
+            MatchLog log = MatchLog.getInstance();
+            positionLog = logged ? log.addDouble(POSITION_KEY) : null;
+            velocityLog = logged ? log.addDouble(VELOCITY_KEY) : null;
+            appliedVoltsLog = logged ? log.addDouble(APPLIED_VOLTS_KEY) : null;
+            currentLog = logged ? log.addDouble(CURRENT_KEY) : null;
+            atGoalLog = logged ? log.addBoolean(AT_GOAL_KEY) : null;
+        }
+
+        /**
+         * Append every input to the match log so {@link ElevatorIOReplay} can play them back.
+         */
+        public void log() {
+            positionLog.append(positionInches);
+            velocityLog.append(velocityInchesPerSec);
+            appliedVoltsLog.append(appliedVolts);
+            currentLog.append(currentAmps);
+            atGoalLog.append(atGoal);
+        }
+    }
+
+    /**
+     * Read the sensors into the inputs.
+     * @param inputs Inputs to fill
+     */
+    default void updateInputs(ElevatorIOInputs inputs) {}
+
+    /**
+     * Drive the elevator open loop
+     * @param volts Voltage to apply to the leader motor
+     */
+    default void setVoltage(double volts) {}
+
+    /**
+     * Move to a height along the motor controller's onboard motion profile and hold it there
+     * @param inches Carriage height
+     */
+    default void setPosition(double inches) {}
+
+    /**
+     * Set the current position as zero
+     */
+    default void resetPosition() {}
+}
@@ -0,0 +1,64 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.ReplayLog;
+
+/**
+ * {@link ElevatorIO} that plays back the inputs of a recorded match. Commands are not sent anywhere, the last one is
+ * kept so the replay can compare it with what the robot did.
+ */
+public class ElevatorIOReplay implements ElevatorIO {
+    private final ReplayLog.DoubleSeries position;
+    private final ReplayLog.DoubleSeries velocity;
+    private final ReplayLog.DoubleSeries appliedVolts;
+    private final ReplayLog.DoubleSeries current;
+    private final ReplayLog.BooleanSeries atGoal;
+
+    // Last command, NaN when the other control mode is active
+    private double commandedVolts = Double.NaN;
+    private double commandedPosition = Double.NaN;
+
+    public ElevatorIOReplay(ReplayLog log) {
+        position = log.getDouble(ElevatorIOInputs.POSITION_KEY, 0);
+        velocity = log.getDouble(ElevatorIOInputs.VELOCITY_KEY, 0);
+        appliedVolts = log.getDouble(ElevatorIOInputs.APPLIED_VOLTS_KEY, 0);
+        current = log.getDouble(ElevatorIOInputs.CURRENT_KEY, 0);
+        atGoal = log.getBoolean(ElevatorIOInputs.AT_GOAL_KEY);
+    }
+
+    @Override
+    public void updateInputs(ElevatorIOInputs inputs) {
+        inputs.positionInches = position.get();
+        inputs.velocityInchesPerSec = velocity.get();
+        inputs.appliedVolts = appliedVolts.get();
+        inputs.currentAmps = current.get();
+        inputs.atGoal = atGoal.get();
+    }
+
+    @Override
+    public void setVoltage(double volts) {
+        commandedVolts = volts;
+        commandedPosition = Double.NaN;
+    }
+
+    @Override
+    public void setPosition(double inches) {
+        commandedPosition = inches;
+        commandedVolts = Double.NaN;
+    }
+
+    /**
+     * Voltage of the last open loop command
+     * @return Volts, NaN if the last command was a position
+     */
+    public double getCommandedVolts() {
+        return commandedVolts;
+    }
+
+    /**
+     * Position of the last closed loop command
+     * @return Carriage height in inches, NaN if the last command was a voltage
+     */
+    public double getCommandedPosition() {
+        return commandedPosition;
+    }
+}
@@ -0,0 +1,44 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.Constants;
+
+/**
+ * Simulated {@link ElevatorIO}. Runs the real {@link ElevatorIOTalonFX} code against Phoenix's simulated TalonFX, so
+ * the motor controller's own closed loop is exercised, and closes the loop with a two motor gearbox model.
+ */
+public class ElevatorIOSim extends ElevatorIOTalonFX {
+    private static final double GEAR_RATIO = Constants.kElevatorGearRatio; // Motor rotations per drum rotation
+    private static final double MOMENT_OF_INERTIA = 0.05; // kg m^2 at the drum, placeholder
+
+    private final TalonFXSimState simState = leaderMotor.getSimState();
+    private final DCMotorSim mechanism = new DCMotorSim(
+            LinearSystemId.createDCMotorSystem(DCMotor.getKrakenX60(2), MOMENT_OF_INERTIA, GEAR_RATIO),
+            DCMotor.getKrakenX60(2));
+    private long lastStep = 0;
+
+    @Override
+    public void updateInputs(ElevatorIOInputs inputs) {
+        // Step the model with the voltage the simulated controller is applying, then feed the rotor back
+        simState.setSupplyVoltage(RobotController.getBatteryVoltage());
+        mechanism.setInputVoltage(simState.getMotorVoltage());
+        mechanism.update(step());
+        simState.setRawRotorPosition(mechanism.getAngularPositionRotations() * GEAR_RATIO);
+        simState.setRotorVelocity(mechanism.getAngularVelocityRPM() / 60.0 * GEAR_RATIO);
+        super.updateInputs(inputs);
+    }
+
+    /**
+     * Time since the last step, so the model keeps real time at whatever rate SuperstructureSupervisor calls it
+     */
+    private double step() {
+        long now = RobotController.getFPGATime();
+        double dt = lastStep == 0 ? SuperstructureSupervisor.PERIOD : (now - lastStep) / 1e6;
+        lastStep = now;
+        return dt;
+    }
+}
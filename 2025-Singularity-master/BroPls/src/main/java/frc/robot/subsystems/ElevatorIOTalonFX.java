@@ -0,0 +1,144 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.Follower;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.GravityTypeValue;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
+import edu.wpi.first.units.measure.Voltage;
+import frc.robot.Constants;
+import frc.robot.util.ControlFrameFilter;
+import frc.robot.util.StatusSignalRegistry;
+
+/**
+ * {@link ElevatorIO} for the two Kraken elevator motors, the follower mirroring the leader. Positions are carriage
+ * inches, converted by the TalonFX, and goals run on its Motion Magic profile with separate gains going up and down.
+ */
+public class ElevatorIOTalonFX implements ElevatorIO {
+    private static final int LEADER_MOTOR_ID = 15;
+    private static final int FOLLOWER_MOTOR_ID = 16;
+    private static final int MODE_VOLTAGE = 0;
+    private static final int MODE_POSITION = 1;
+    private static final int UP_SLOT = 0;
+    private static final int DOWN_SLOT = 1;
+
+    // Hardware
+    protected final TalonFX leaderMotor = new TalonFX(LEADER_MOTOR_ID);
+    protected final TalonFX followerMotor = new TalonFX(FOLLOWER_MOTOR_ID);
+
+    // Control objects, sent one-shot and only when they change, the filter refreshing them before the TalonFX times out
+    private final VoltageOut voltageControl = new VoltageOut(0).withUpdateFreqHz(0);
+    private final MotionMagicVoltage positionControl = new MotionMagicVoltage(0).withUpdateFreqHz(0);
+    private final ControlFrameFilter leaderFilter =
+            new ControlFrameFilter("Elevator Leader", ControlFrameFilter.KEEP_ALIVE_TALONFX);
+
+    // Status signals, refreshed by updateInputs() on the SuperstructureSupervisor thread
+    private final StatusSignal<Angle> position = leaderMotor.getPosition();
+    private final StatusSignal<AngularVelocity> velocity = leaderMotor.getVelocity();
+    private final StatusSignal<Voltage> appliedVolts = leaderMotor.getMotorVoltage();
+    private final StatusSignal<Current> current = leaderMotor.getStatorCurrent();
+
+    // Goal and gain slot of the move in progress, the slot is picked once per goal so holding never switches gains
+    private double lastGoal = Double.NaN;
+    private int slot = UP_SLOT;
+
+    public ElevatorIOTalonFX() {
+        // Follower keeps factory defaults apart from brake mode
+        TalonFXConfiguration followerConfig = new TalonFXConfiguration();
+        followerConfig.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+        followerMotor.getConfigurator().apply(followerConfig);
+
+        TalonFXConfiguration config = new TalonFXConfiguration();
+        config.MotorOutput.NeutralMode = NeutralModeValue.Brake;
+        // Report and control in carriage inches, so the soft limits, gains and Motion Magic values below are in inches
+        config.Feedback.SensorToMechanismRatio = Constants.kElevatorRotationsPerInch;
+
+        // Slot 0 going up, slot 1 going down, both with the same static gravity and velocity feedforward
+        config.Slot0.kP = Constants.kUpControllerP;
+        config.Slot0.kI = Constants.kUpControllerI;
+        config.Slot0.kD = Constants.kUpControllerD;
+        config.Slot0.kS = Constants.kFeedForwardS;
+        config.Slot0.kG = Constants.kFeedForwardG;
+        config.Slot0.kV = Constants.kFeedForwardV;
+        config.Slot0.GravityType = GravityTypeValue.Elevator_Static;
+        config.Slot1.kP = Constants.kDownControllerP;
+        config.Slot1.kI = Constants.kDownControllerI;
+        config.Slot1.kD = Constants.kDownControllerD;
+        config.Slot1.kS = Constants.kFeedForwardS;
+        config.Slot1.kG = Constants.kFeedForwardG;
+        config.Slot1.kV = Constants.kFeedForwardV;
+        config.Slot1.GravityType = GravityTypeValue.Elevator_Static;
+
+        config.MotionMagic.MotionMagicCruiseVelocity = Constants.kElevatorCruiseVelocity;
+        config.MotionMagic.MotionMagicAcceleration = Constants.kMaxAcceleration;
+
+        // Never drive past the top or below the bottom, including under manual control. Thresholds are carriage
+        // inches through SensorToMechanismRatio.
+        config.SoftwareLimitSwitch.ForwardSoftLimitEnable = true;
+        config.SoftwareLimitSwitch.ForwardSoftLimitThreshold = Constants.kMaxHeight;
+        config.SoftwareLimitSwitch.ReverseSoftLimitEnable = true;
+        config.SoftwareLimitSwitch.ReverseSoftLimitThreshold = 0;
+        leaderMotor.getConfigurator().apply(config);
+
+        // Configure follower motor to follow leader
+        followerMotor.setControl(new Follower(leaderMotor.getDeviceID(), false));
+
+        // Set position to zero
+        leaderMotor.setPosition(0);
+
+        // The leader is read from the superstructure loop, so it stays out of the main loop's batch and signal age
+        // logging and keeps its other frames. Position and velocity come once per cycle. The follower reads the leader's duty cycle,
+        // voltage and torque current frames, everything on the follower is switched off. It declares no signals, so it
+        // has no signal age to log either.
+        StatusSignalRegistry registry = StatusSignalRegistry.getInstance();
+        registry.addDevice("Elevator Leader", leaderMotor, false)
+                .add(1.0 / SuperstructureSupervisor.PERIOD, position, velocity)
+                .add(100, appliedVolts, leaderMotor.getDutyCycle(), leaderMotor.getTorqueCurrent())
+                .add(50, current);
+        registry.addDevice("Elevator Follower", followerMotor, true);
+    }
+
+    @Override
+    public void updateInputs(ElevatorIOInputs inputs) {
+        BaseStatusSignal.refreshAll(position, velocity, appliedVolts, current);
+        inputs.positionInches = position.getValueAsDouble();
+        inputs.velocityInchesPerSec = velocity.getValueAsDouble();
+        inputs.appliedVolts = appliedVolts.getValueAsDouble();
+        inputs.currentAmps = current.getValueAsDouble();
+    }
+
+    @Override
+    public void setVoltage(double volts) {
+        lastGoal = Double.NaN;
+        if (leaderFilter.shouldSend(MODE_VOLTAGE, volts)) {
+            leaderMotor.setControl(voltageControl.withOutput(volts));
+        }
+    }
+
+    @Override
+    public void setPosition(double inches) {
+        if (Double.doubleToLongBits(inches) != Double.doubleToLongBits(lastGoal)) {
+            // Up gains when climbing, down gains when descending, kept until the next goal
+            lastGoal = inches;
+            slot = inches >= position.getValueAsDouble() ? UP_SLOT : DOWN_SLOT;
+        }
+        if (leaderFilter.shouldSend(MODE_POSITION, inches)) {
+            leaderMotor.setControl(positionControl.withPosition(inches).withSlot(slot));
+        }
+    }
+
+    @Override
+    public void resetPosition() {
+        leaderMotor.setPosition(0);
+        // Start a fresh profile from the new zero
+        lastGoal = Double.NaN;
+        leaderFilter.invalidate();
+    }
+}
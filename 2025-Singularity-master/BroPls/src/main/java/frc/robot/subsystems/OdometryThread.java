@@ -0,0 +1,334 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.util.NetworkTablesProfiler;
+import frc.robot.util.TelemetryBudget;
+import swervelib.SwerveDrive;
+
+/**
+ * Dedicated high rate odometry loop. Replaces the {@link SwerveDrive} odometry thread and fuses vision measurements
+ * itself, so the main loop never waits on YAGSL's pose estimator lock.
+ * <p>
+ * Every update is timestamped with the capture time of the Pigeon2 yaw sample and the raw wheel odometry is written to a
+ * {@link PoseHistory}. Vision measurements are compared against the history at their capture time and fold into a
+ * field relative correction, which is applied to every odometry pose. The fused pose is published through a volatile
+ * field so {@link #getPose()} never blocks.
+ * <p>
+ * Updates, resets and vision measurements all hold {@link #lock}, so a reset can never be overwritten by an update that
+ * read the sensors before it.
+ */
+public class OdometryThread
+{
+
+  /**
+   * Standard deviation of the odometry pose, the same for x, y and heading as the YAGSL pose estimator default.
+   */
+  private static final double STATE_STD_DEV = 0.1;
+  /**
+   * Topics YAGSL publishes its swerve telemetry under.
+   */
+  private static final String TELEMETRY_PREFIX = "/swerve/";
+
+  /**
+   * Swerve drive to update.
+   */
+  private final SwerveDrive         swerveDrive;
+  /**
+   * History that receives every raw odometry sample.
+   */
+  private final PoseHistory         history;
+  /**
+   * Notifier running {@link #update()}.
+   */
+  private final Notifier            notifier;
+  /**
+   * Update period in seconds.
+   */
+  private final double              period;
+  /**
+   * Pigeon2 yaw signal used for sample timestamps, null if the IMU is not a Pigeon2.
+   */
+  private final StatusSignal<Angle> gyroYaw;
+  /**
+   * Pigeon2 yaw rate signal, null if the IMU is not a Pigeon2.
+   */
+  private final StatusSignal<AngularVelocity> gyroYawRate;
+  /**
+   * Cost of each odometry update, which includes YAGSL's telemetry publishing at the current tier.
+   */
+  private final TelemetryBudget.Source telemetry;
+  /**
+   * Measured rate of the YAGSL telemetry topics.
+   */
+  private final NetworkTablesProfiler.Prefix telemetryBytes;
+  /**
+   * Guards the swerve odometry, the history writes and the correction.
+   */
+  private final Object              lock      = new Object();
+  /**
+   * Scratch for sampling the history, only used while holding {@link #lock}.
+   */
+  private final double[]            odometry  = new double[3];
+  /**
+   * Field relative correction from vision, fused pose = correction * odometry pose. Guarded by {@link #lock}.
+   */
+  private double                    correctionX, correctionY, correctionTheta;
+  /**
+   * Newest raw odometry pose. Guarded by {@link #lock}.
+   */
+  private double                    odometryX, odometryY, odometryTheta;
+  /**
+   * Newest fused pose.
+   */
+  private volatile Pose2d           latestPose;
+  /**
+   * Newest measured yaw rate in radians per second.
+   */
+  private volatile double           yawRate;
+  /**
+   * Timestamp of the previous update for differentiating the heading without a Pigeon2, NaN before the first.
+   */
+  private double                    lastTimestamp = Double.NaN;
+
+  /**
+   * Create the odometry thread. It does not run until {@link #start()} is called.
+   *
+   * @param swerveDrive {@link SwerveDrive} to update.
+   * @param history     {@link PoseHistory} to write samples to.
+   * @param period      Update period in seconds.
+   */
+  public OdometryThread(SwerveDrive swerveDrive, PoseHistory history, double period)
+  {
+    this.swerveDrive = swerveDrive;
+    this.history = history;
+    this.period = period;
+    Pose2d pose = swerveDrive.getPose();
+    setOdometry(pose);
+    this.latestPose = pose;
+
+    if (swerveDrive.getGyro().getIMU() instanceof Pigeon2 pigeon)
+    {
+      gyroYaw = pigeon.getYaw();
+      gyroYawRate = pigeon.getAngularVelocityZWorld();
+      // Publish yaw at least as fast as we sample it so every update sees a fresh reading.
+      BaseStatusSignal.setUpdateFrequencyForAll(1.0 / period, gyroYaw, gyroYawRate);
+    } else
+    {
+      gyroYaw = null;
+      gyroYawRate = null;
+    }
+
+    telemetry = TelemetryBudget.getInstance().addSource("Swerve", period);
+    telemetryBytes = NetworkTablesProfiler.getInstance().addPrefix(TELEMETRY_PREFIX);
+    notifier = new Notifier(this::update);
+    notifier.setName("Odometry");
+  }
+
+  /**
+   * Stop the {@link SwerveDrive} odometry thread and start this one.
+   */
+  public void start()
+  {
+    swerveDrive.stopOdometryThread();
+    notifier.startPeriodic(period);
+  }
+
+  /**
+   * Stop updating odometry.
+   */
+  public void stop()
+  {
+    notifier.stop();
+  }
+
+  /**
+   * Newest fused pose. Safe to call from any thread.
+   *
+   * @return The robot's pose.
+   */
+  public Pose2d getPose()
+  {
+    return latestPose;
+  }
+
+  /**
+   * Newest measured yaw rate, from the Pigeon2 when there is one, otherwise from the change in odometry heading. Safe
+   * to call from any thread.
+   *
+   * @return Yaw rate in radians per second, CCW positive.
+   */
+  public double getYawRate()
+  {
+    return yawRate;
+  }
+
+  /**
+   * Reset the pose. Waits for an update in progress so the reset cannot be overwritten, and clears the history so vision
+   * measurements from before the reset are dropped.
+   *
+   * @param pose Pose to reset to.
+   */
+  public void resetPose(Pose2d pose)
+  {
+    synchronized (lock)
+    {
+      swerveDrive.resetOdometry(pose);
+      restart(pose);
+    }
+  }
+
+  /**
+   * Zero the gyro and reset the pose to the same position facing toward 0.
+   */
+  public void zeroGyro()
+  {
+    synchronized (lock)
+    {
+      Pose2d pose = new Pose2d(latestPose.getTranslation(), Rotation2d.kZero);
+      swerveDrive.zeroGyro();
+      swerveDrive.resetOdometry(pose);
+      restart(pose);
+    }
+  }
+
+  /**
+   * Fuse a vision measurement at its capture time, weighted the same way as {@code SwerveDrivePoseEstimator}. The
+   * correction is computed against the odometry pose at the capture time, so it applies to the current pose without
+   * replaying odometry.
+   *
+   * @param timestamp Capture time in FPGA seconds.
+   * @param x         Measured field relative X in meters.
+   * @param y         Measured field relative Y in meters.
+   * @param theta     Measured heading in radians.
+   * @param stdDevX   Standard deviation of X in meters.
+   * @param stdDevY   Standard deviation of Y in meters.
+   * @param stdDevTheta Standard deviation of the heading in radians.
+   * @return false if the measurement is older than the history or the last reset and was dropped.
+   */
+  public boolean addVisionMeasurement(double timestamp, double x, double y, double theta,
+                                      double stdDevX, double stdDevY, double stdDevTheta)
+  {
+    synchronized (lock)
+    {
+      if (!history.sample(timestamp, odometry))
+      {
+        return false;
+      }
+      double cos = Math.cos(correctionTheta);
+      double sin = Math.sin(correctionTheta);
+      double fusedX = correctionX + cos * odometry[0] - sin * odometry[1];
+      double fusedY = correctionY + sin * odometry[0] + cos * odometry[1];
+      double fusedTheta = odometry[2] + correctionTheta;
+
+      double targetX = fusedX + gain(stdDevX) * (x - fusedX);
+      double targetY = fusedY + gain(stdDevY) * (y - fusedY);
+      double targetTheta = fusedTheta + gain(stdDevTheta) * MathUtil.angleModulus(theta - fusedTheta);
+
+      // New correction maps the odometry pose at the capture time onto the target.
+      correctionTheta = MathUtil.angleModulus(targetTheta - odometry[2]);
+      cos = Math.cos(correctionTheta);
+      sin = Math.sin(correctionTheta);
+      correctionX = targetX - (cos * odometry[0] - sin * odometry[1]);
+      correctionY = targetY - (sin * odometry[0] + cos * odometry[1]);
+      publish();
+      return true;
+    }
+  }
+
+  /**
+   * Read the sensors, update the pose estimator and record the result.
+   */
+  private void update()
+  {
+    double timestamp = Timer.getFPGATimestamp();
+    if (gyroYaw != null)
+    {
+      BaseStatusSignal.refreshAll(gyroYaw, gyroYawRate);
+      timestamp -= gyroYaw.getTimestamp().getLatency();
+      yawRate = Math.toRadians(gyroYawRate.getValueAsDouble());
+    }
+
+    synchronized (lock)
+    {
+      // YAGSL publishes its telemetry from inside updateOdometry at the tier the budget sets from the main loop, so the
+      // whole update is charged to the source and the cost of each tier shows as the step when the tier changes. The
+      // bytes come from what the NetworkTables profiler saw on the YAGSL topics, unknown while it is stopped.
+      long start = System.nanoTime();
+      swerveDrive.updateOdometry();
+      long   elapsed        = System.nanoTime() - start;
+      double bytesPerSecond = telemetryBytes.getBytesPerSecond();
+      telemetry.record(elapsed, Double.isNaN(bytesPerSecond) ? 0 : (int) Math.round(bytesPerSecond * period));
+      double lastTheta = odometryTheta;
+      setOdometry(swerveDrive.getPose());
+      if (gyroYaw == null)
+      {
+        double dt = timestamp - lastTimestamp;
+        yawRate = dt > 0 ? MathUtil.angleModulus(odometryTheta - lastTheta) / dt : 0;
+      }
+      lastTimestamp = timestamp;
+      history.add(timestamp, odometryX, odometryY, odometryTheta);
+      publish();
+    }
+  }
+
+  /**
+   * Start over from a reset pose with no correction and no history. Must hold {@link #lock}.
+   *
+   * @param pose Pose the odometry was reset to.
+   */
+  private void restart(Pose2d pose)
+  {
+    history.clear();
+    correctionX = 0;
+    correctionY = 0;
+    correctionTheta = 0;
+    setOdometry(pose);
+    latestPose = pose;
+  }
+
+  /**
+   * Store the newest raw odometry pose. Must hold {@link #lock}.
+   *
+   * @param pose Odometry pose.
+   */
+  private void setOdometry(Pose2d pose)
+  {
+    odometryX = pose.getX();
+    odometryY = pose.getY();
+    odometryTheta = pose.getRotation().getRadians();
+  }
+
+  /**
+   * Publish the newest odometry pose with the correction applied. Must hold {@link #lock}.
+   */
+  private void publish()
+  {
+    double cos = Math.cos(correctionTheta);
+    double sin = Math.sin(correctionTheta);
+    latestPose = new Pose2d(correctionX + cos * odometryX - sin * odometryY,
+                            correctionY + sin * odometryX + cos * odometryY,
+                            new Rotation2d(odometryTheta + correctionTheta));
+  }
+
+  /**
+   * Kalman gain for one axis of a vision measurement, as computed by {@code SwerveDrivePoseEstimator}.
+   *
+   * @param stdDev Measurement standard deviation.
+   * @return Fraction of the difference to apply, between 0 and 1.
+   */
+  private static double gain(double stdDev)
+  {
+    double q = STATE_STD_DEV * STATE_STD_DEV;
+    double r = stdDev * stdDev;
+    return q / (q + Math.sqrt(q * r));
+  }
+}
@@ -0,0 +1,85 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.MatchLog;
+
+/**
+ * Hardware layer of the {@link PivotSubsystem}. The subsystem only talks to the motor through this interface, so the
+ * same control code runs on the robot, in simulation and against a recorded match log.
+ */
+public interface PivotIO {
+
+    /**
+     * Sensor values read once per loop by {@link #updateInputs(PivotIOInputs)}.
+     */
+    class PivotIOInputs {
+        public static final String POSITION_KEY = "Pivot/Inputs/Position";
+        public static final String VELOCITY_KEY = "Pivot/Inputs/Velocity";
+        public static final String APPLIED_OUTPUT_KEY = "Pivot/Inputs/Applied Output";
+        public static final String CURRENT_KEY = "Pivot/Inputs/Current";
+        public static final String AT_GOAL_KEY = "Pivot/Inputs/At Goal";
+
+        public double positionRotations = 0; // Motor rotations
+        public double velocityRPM = 0;
+        public double appliedOutput = 0; // Duty cycle
+        public double currentAmps = 0;
+        public boolean atGoal = false; // Settled at the position goal, detected by SuperstructureSupervisor
+
+        private final MatchLog.DoubleChannel positionLog;
+        private final MatchLog.DoubleChannel velocityLog;
+        private final MatchLog.DoubleChannel appliedOutputLog;
+        private final MatchLog.DoubleChannel currentLog;
+        private final MatchLog.BooleanChannel atGoalLog;
+
+        public PivotIOInputs() {
+            this(true);
+        }
+
+        /**
+         * @param logged false for inputs that are never logged, like SuperstructureSupervisor's own copy,
+         *               so the log keeps one entry per key
+         */
+        PivotIOInputs(boolean logged) {
+            MatchLog log = MatchLog.getInstance();
+            positionLog = logged ? log.addDouble(POSITION_KEY) : null;
+            velocityLog = logged ? log.addDouble(VELOCITY_KEY) : null;
+            appliedOutputLog = logged ? log.addDouble(APPLIED_OUTPUT_KEY) : null;
+            currentLog = logged ? log.addDouble(CURRENT_KEY) : null;
+            atGoalLog = logged ? log.addBoolean(AT_GOAL_KEY) : null;
+        }
+
+        /**
+         * Append every input to the match log so {@link PivotIOReplay} can play them back.
+         */
+        public void log() {
+            positionLog.append(positionRotations);
+            velocityLog.append(velocityRPM);
+            appliedOutputLog.append(appliedOutput);
+            currentLog.append(currentAmps);
+            atGoalLog.append(atGoal);
+        }
+    }
+
+    /**
+     * Read the sensors into the inputs.
+     * @param inputs Inputs to fill
+     */
+    default void updateInputs(PivotIOInputs inputs) {}
+
+    /**
+     * Drive the pivot open loop
+     * @param speed Duty cycle (-1 to 1)
+     */
+    default void set(double speed) {}
+
+    /**
+     * Move to a position along the motor controller's onboard motion profile, which runs its own loop at 1 kHz
+     * @param rotations Goal in motor rotations
+     * @param feedforwardVolts Voltage added to the controller's output to hold the pivot against gravity
+     */
+    default void setPosition(double rotations, double feedforwardVolts) {}
+
+    /**
+     * Set the current position as zero
+     */
+    default void resetPosition() {}
+}
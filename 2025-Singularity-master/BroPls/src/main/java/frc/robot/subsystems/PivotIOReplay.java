@@ -0,0 +1,63 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.ReplayLog;
+
+/**
+ * {@link PivotIO} that plays back the inputs of a recorded match. Commands are not sent anywhere, the last one is kept
+ * so the replay can compare it with what the robot did.
+ */
+public class PivotIOReplay implements PivotIO {
+    private final ReplayLog.DoubleSeries position;
+    private final ReplayLog.DoubleSeries velocity;
+    private final ReplayLog.DoubleSeries appliedOutput;
+    private final ReplayLog.DoubleSeries current;
+    private final ReplayLog.BooleanSeries atGoal;
+
+    private double commandedSpeed = 0;
+    private double commandedPosition = Double.NaN;
+
+    public PivotIOReplay(ReplayLog log) {
+        position = log.getDouble(PivotIOInputs.POSITION_KEY, 0);
+        velocity = log.getDouble(PivotIOInputs.VELOCITY_KEY, 0);
+        appliedOutput = log.getDouble(PivotIOInputs.APPLIED_OUTPUT_KEY, 0);
+        current = log.getDouble(PivotIOInputs.CURRENT_KEY, 0);
+        atGoal = log.getBoolean(PivotIOInputs.AT_GOAL_KEY);
+    }
+
+    @Override
+    public void updateInputs(PivotIOInputs inputs) {
+        inputs.positionRotations = position.get();
+        inputs.velocityRPM = velocity.get();
+        inputs.appliedOutput = appliedOutput.get();
+        inputs.currentAmps = current.get();
+        inputs.atGoal = atGoal.get();
+    }
+
+    @Override
+    public void set(double speed) {
+        commandedSpeed = speed;
+        commandedPosition = Double.NaN;
+    }
+
+    @Override
+    public void setPosition(double rotations, double feedforwardVolts) {
+        commandedPosition = rotations;
+        commandedSpeed = Double.NaN;
+    }
+
+    /**
+     * Duty cycle of the last command
+     * @return Speed (-1 to 1)
+     */
+    public double getCommandedSpeed() {
+        return commandedSpeed;
+    }
+
+    /**
+     * Goal of the last onboard profile command
+     * @return Position in motor rotations, NaN if the last command was open loop
+     */
+    public double getCommandedPosition() {
+        return commandedPosition;
+    }
+}
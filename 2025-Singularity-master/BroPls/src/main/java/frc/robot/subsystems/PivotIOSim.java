@@ -0,0 +1,42 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.sim.SparkMaxSim;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+/**
+ * Simulated {@link PivotIO}. Runs the real {@link PivotIOSparkMax} code against REV's simulated SPARK MAX and closes
+ * the loop with a NEO model. Positions are motor rotations, like on the robot.
+ */
+public class PivotIOSim extends PivotIOSparkMax {
+    private static final double MOMENT_OF_INERTIA = 0.001; // kg m^2 at the motor shaft, placeholder
+
+    private final SparkMaxSim simMotor = new SparkMaxSim(pivotMotor, DCMotor.getNEO(1));
+    private final DCMotorSim mechanism = new DCMotorSim(
+            LinearSystemId.createDCMotorSystem(DCMotor.getNEO(1), MOMENT_OF_INERTIA, 1.0),
+            DCMotor.getNEO(1));
+    private long lastStep = 0;
+
+    @Override
+    public void updateInputs(PivotIOInputs inputs) {
+        // Step the model with the output the simulated controller is applying, then feed the motor back
+        double batteryVolts = RobotController.getBatteryVoltage();
+        mechanism.setInputVoltage(simMotor.getAppliedOutput() * batteryVolts);
+        double dt = step();
+        mechanism.update(dt);
+        simMotor.iterate(mechanism.getAngularVelocityRPM(), batteryVolts, dt);
+        super.updateInputs(inputs);
+    }
+
+    /**
+     * Time since the last step, so the model keeps real time at whatever rate SuperstructureSupervisor calls it
+     */
+    private double step() {
+        long now = RobotController.getFPGATime();
+        double dt = lastStep == 0 ? SuperstructureSupervisor.PERIOD : (now - lastStep) / 1e6;
+        lastStep = now;
+        return dt;
+    }
+}
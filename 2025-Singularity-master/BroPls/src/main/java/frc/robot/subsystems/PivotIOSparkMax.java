@@ -0,0 +1,92 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.RelativeEncoder;
+import com.revrobotics.spark.ClosedLoopSlot;
+import com.revrobotics.spark.SparkBase.ControlType;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkClosedLoopController;
+import com.revrobotics.spark.SparkClosedLoopController.ArbFFUnits;
+import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor;
+import com.revrobotics.spark.config.SparkMaxConfig;
+import frc.robot.util.ControlFrameFilter;
+
+/**
+ * {@link PivotIO} for the NEO on a SPARK MAX, using its built-in encoder.
+ */
+public class PivotIOSparkMax implements PivotIO {
+    private static final int pivotMotorID = 45;
+    private static final int MODE_DUTY_CYCLE = 0;
+    private static final int MODE_POSITION = 1;
+    // The SPARK MAX derivative is per 1 ms loop, the RIO controller's is per second
+    private static final double CONTROLLER_PERIOD = 0.001;
+    // Position and velocity once per SuperstructureSupervisor cycle, the rest once per main loop
+    private static final int FAST_STATUS_PERIOD_MS = (int) Math.round(SuperstructureSupervisor.PERIOD * 1000);
+    private static final int STATUS_PERIOD_MS = 20;
+
+    protected final SparkMax pivotMotor = new SparkMax(pivotMotorID, MotorType.kBrushless);
+    private final RelativeEncoder m_encoder = pivotMotor.getEncoder();
+    private final SparkClosedLoopController m_controller = pivotMotor.getClosedLoopController();
+    private final ControlFrameFilter outputFilter =
+            new ControlFrameFilter("Pivot", ControlFrameFilter.KEEP_ALIVE_SPARKMAX);
+
+    public PivotIOSparkMax() {
+        // REV devices are not Phoenix devices, so the signals the inputs read are set to the loop rates here
+        // instead of through StatusSignalRegistry
+        SparkMaxConfig config = new SparkMaxConfig();
+        config.signals
+                .primaryEncoderPositionPeriodMs(FAST_STATUS_PERIOD_MS)
+                .primaryEncoderVelocityPeriodMs(FAST_STATUS_PERIOD_MS)
+                .appliedOutputPeriodMs(STATUS_PERIOD_MS)
+                .outputCurrentPeriodMs(STATUS_PERIOD_MS);
+
+        // Same gains, limits and profile as the RIO controller, converted to the controller's units
+        config.closedLoop
+                .feedbackSensor(FeedbackSensor.kPrimaryEncoder)
+                .pid(PivotSubsystem.KP, PivotSubsystem.KI, PivotSubsystem.KD / CONTROLLER_PERIOD)
+                .outputRange(-PivotSubsystem.MAX_OUTPUT, PivotSubsystem.MAX_OUTPUT);
+        config.closedLoop.maxMotion
+                .maxVelocity(PivotSubsystem.MAX_VELOCITY * 60) // RPM
+                .maxAcceleration(PivotSubsystem.MAX_ACCELERATION * 60) // RPM per second
+                .allowedClosedLoopError(PivotSubsystem.GOAL_TOLERANCE);
+        pivotMotor.configure(config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+        // REVLib resends the last setpoint from its own thread every control frame period, which would make the
+        // skipped calls free on the bus. Turn that off so the filter's keep-alive is the only resend and every frame
+        // on the bus is one the filter counted.
+        pivotMotor.setControlFramePeriodMs(0);
+        m_encoder.setPosition(0); // Zeroing encoder
+    }
+
+    @Override
+    public void updateInputs(PivotIOInputs inputs) {
+        inputs.positionRotations = m_encoder.getPosition();
+        inputs.velocityRPM = m_encoder.getVelocity();
+        inputs.appliedOutput = pivotMotor.getAppliedOutput();
+        inputs.currentAmps = pivotMotor.getOutputCurrent();
+    }
+
+    @Override
+    public void set(double speed) {
+        // Only send a setpoint frame when the speed changes
+        if (outputFilter.shouldSend(MODE_DUTY_CYCLE, speed)) {
+            pivotMotor.set(speed);
+        }
+    }
+
+    @Override
+    public void setPosition(double rotations, double feedforwardVolts) {
+        // The feedforward follows the goal, so a new frame only goes out when the goal changes
+        if (outputFilter.shouldSend(MODE_POSITION, rotations)) {
+            m_controller.setReference(rotations, ControlType.kMAXMotionPositionControl, ClosedLoopSlot.kSlot0,
+                    feedforwardVolts, ArbFFUnits.kVoltage);
+        }
+    }
+
+    @Override
+    public void resetPosition() {
+        m_encoder.setPosition(0);
+        outputFilter.invalidate(); // Restart the profile from the new zero
+    }
+}
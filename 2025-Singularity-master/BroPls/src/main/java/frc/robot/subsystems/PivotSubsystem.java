@@ -1,24 +1,46 @@
 package frc.robot.subsystems;
 
 
-import com.revrobotics.RelativeEncoder;
-import com.revrobotics.spark.SparkLowLevel.MotorType;
-import com.revrobotics.spark.SparkMax;
-
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MatchLog;
+import frc.robot.util.TelemetryTable;
 
 
 public class PivotSubsystem extends SubsystemBase {
 
 
-    private static final int pivotMotorID = 45;
-    private final SparkMax pivotMotor = new SparkMax(pivotMotorID, MotorType.kBrushless);
-    private final RelativeEncoder m_encoder;
+    // Match log entries of the request applied each loop and the resulting command, read back by MatchReplay
+    public static final String GOAL_KEY = "Pivot/Request/Goal";
+    public static final String MOVEMENT_ENABLED_KEY = "Pivot/Request/Movement Enabled";
+    public static final String MANUAL_CONTROL_KEY = "Pivot/Request/Manual Control";
+    public static final String MANUAL_SPEED_KEY = "Pivot/Request/Manual Speed";
+    public static final String COMMANDED_SPEED_KEY = "Pivot/Outputs/Speed";
+    public static final String COMMANDED_POSITION_KEY = "Pivot/Outputs/Position";
+
+    // Position controller, in motor rotations. PivotIOSparkMax loads the same values into the SPARK MAX.
+    static final double KP = 0.01;
+    static final double KI = 0;
+    static final double KD = 0.005;
+    public static final double MAX_VELOCITY = 10; // Rotations per second
+    public static final double MAX_ACCELERATION = 1; // Rotations per second squared
+    static final double MAX_OUTPUT = 0.5; // Limit speed to prevent high-torque issues
+    public static final double GOAL_TOLERANCE = 0.03;
+
+    // Run the profile and PID on the SPARK MAX at 1 kHz instead of on the RIO at 50 Hz. Not yet measured against the
+    // RIO path on the robot, compare LogAnalyzer's pivot settle time and overshoot from a match in each mode.
+    private static final boolean ONBOARD_CONTROL = true;
+    // Gravity feedforward, kG * cos(angle from level), taken at the goal. See gravityFeedforward()
+    private static final double GRAVITY_VOLTS = 0.25; // Placeholder, volts to hold the pivot level
+    private static final double LEVEL_POSITION = 0.0; // Placeholder, motor rotations where the pivot is level
+    private static final double GEAR_RATIO = 25.0; // Placeholder, motor rotations per pivot rotation
+
+    private final PivotIO io;
+    private final PivotIO.PivotIOInputs inputs = new PivotIO.PivotIOInputs();
     private final ProfiledPIDController m_controller;
     
     // Manual control constants
@@ -27,27 +49,53 @@ public class PivotSubsystem extends SubsystemBase {
 
 
     // Renamed constants to match elevator subsystem
-    private static final double GROUND_INTAKE_POSITION = 3.0; // Placeholder angle
-    private static final double ALGAE1_POSITION = 0.5; // Placeholder angle
-    private static final double ALGAE2_POSITION = 0.7; // Placeholder angle
-    private static final double BARGE_SHOOT_POSITION = 0.9; // Placeholder angle (was algae3)
+    public static final double GROUND_INTAKE_POSITION = 3.0; // Placeholder angle
+    public static final double ALGAE1_POSITION = 0.5; // Placeholder angle
+    public static final double ALGAE2_POSITION = 0.7; // Placeholder angle
+    public static final double BARGE_SHOOT_POSITION = 0.9; // Placeholder angle (was algae3)
     
     private double m_goalAngle = GROUND_INTAKE_POSITION;
     private boolean isMovementEnabled = false;
     private boolean isManualControl = false;
+    private double manualSpeed = 0;
+    // Position sent in the last loop, and the one the settled flag in this loop's inputs refers to
+    private double commandedPosition = Double.NaN;
+    private double settledGoal = Double.NaN;
+
+    // Dashboard values, published from periodic() only
+    private final TelemetryTable telemetry = new TelemetryTable("Pivot");
+    private final TelemetryTable.DoubleEntry initialPositionEntry = telemetry.addDouble("Initial Encoder Position");
+    private final TelemetryTable.DoubleEntry positionEntry = telemetry.addDouble("Pivot Position");
+    private final TelemetryTable.DoubleEntry goalEntry = telemetry.addDouble("Pivot Goal Position");
+    private final TelemetryTable.DoubleEntry speedEntry = telemetry.addDouble("Pivot Speed");
+    private final TelemetryTable.DoubleEntry errorEntry = telemetry.addDouble("Pivot Error");
+    private final TelemetryTable.BooleanEntry atGoalEntry = telemetry.addBoolean("Pivot At Goal");
+    private final TelemetryTable.BooleanEntry manualControlEntry = telemetry.addBoolean("Pivot Manual Control");
+    private final TelemetryTable.StringEntry statusEntry = telemetry.addString("Pivot Status");
+    private final LoopProfiler.Section profile = LoopProfiler.getInstance().addSection("Pivot");
+    private final MatchLog.DoubleChannel goalLog = MatchLog.getInstance().addDouble(GOAL_KEY);
+    private final MatchLog.BooleanChannel movementEnabledLog = MatchLog.getInstance().addBoolean(MOVEMENT_ENABLED_KEY);
+    private final MatchLog.BooleanChannel manualControlLog = MatchLog.getInstance().addBoolean(MANUAL_CONTROL_KEY);
+    private final MatchLog.DoubleChannel manualSpeedLog = MatchLog.getInstance().addDouble(MANUAL_SPEED_KEY);
+    private final MatchLog.DoubleChannel commandedSpeedLog = MatchLog.getInstance().addDouble(COMMANDED_SPEED_KEY);
+    private final MatchLog.DoubleChannel commandedPositionLog = MatchLog.getInstance().addDouble(COMMANDED_POSITION_KEY);
 
 
-    public PivotSubsystem() {
-        m_encoder = pivotMotor.getEncoder();
-        pivotMotor.getEncoder().setPosition(0); // Zeroing encoder
+    /**
+     * @param io Hardware layer, {@link SuperstructureSupervisor#getPivotIO()} running {@link PivotIOSparkMax} on the
+     *           robot or {@link PivotIOSim} in simulation, or {@link PivotIOReplay} when replaying a match log
+     */
+    public PivotSubsystem(PivotIO io) {
+        this.io = io;
+        io.updateInputs(inputs);
 
 
-        m_goalAngle = m_encoder.getPosition(); // Set initial goal to current position
-        SmartDashboard.putNumber("Initial Encoder Position", m_encoder.getPosition());
+        m_goalAngle = inputs.positionRotations; // Set initial goal to current position
+        initialPositionEntry.set(inputs.positionRotations);
        
-        TrapezoidProfile.Constraints m_constraints = new TrapezoidProfile.Constraints(10, 1);
-        m_controller = new ProfiledPIDController(0.01, 0, 0.005, m_constraints);
-        m_controller.reset(m_encoder.getPosition());
+        TrapezoidProfile.Constraints m_constraints = new TrapezoidProfile.Constraints(MAX_VELOCITY, MAX_ACCELERATION);
+        m_controller = new ProfiledPIDController(KP, KI, KD, m_constraints);
+        m_controller.reset(inputs.positionRotations);
     }
 
 
@@ -61,7 +109,6 @@ public class PivotSubsystem extends SubsystemBase {
     public void stopMovement() {
         isMovementEnabled = false;
         isManualControl = false;
-        pivotMotor.set(0);
     }
     
     /**
@@ -73,7 +120,7 @@ public class PivotSubsystem extends SubsystemBase {
         if (Math.abs(speed) < JOYSTICK_DEADBAND) {
             speed = 0;
             if (isManualControl) {
-                pivotMotor.set(0);
+                manualSpeed = 0;
             }
             return;
         }
@@ -90,50 +137,99 @@ public class PivotSubsystem extends SubsystemBase {
         isManualControl = true;
         isMovementEnabled = false;
         
-        // Apply speed to motor
-        pivotMotor.set(speed);
+        // Speed is applied from periodic()
+        manualSpeed = speed;
         
         // Update goal angle to current position (for smoother transition to automatic control)
-        m_goalAngle = m_encoder.getPosition();
+        m_goalAngle = inputs.positionRotations;
+    }
+
+    /**
+     * Restore the request logged at the start of periodic(), used by MatchReplay
+     */
+    public void restoreRequest(double goalAngle, boolean movementEnabled, boolean manualControl, double manualSpeed) {
+        m_goalAngle = goalAngle;
+        isMovementEnabled = movementEnabled;
+        isManualControl = manualControl;
+        this.manualSpeed = manualSpeed;
     }
 
 
     @Override
     public void periodic() {
+        profile.start();
+        io.updateInputs(inputs);
+        settledGoal = commandedPosition;
+        inputs.log();
+        goalLog.append(m_goalAngle);
+        movementEnabledLog.append(isMovementEnabled);
+        manualControlLog.append(isManualControl);
+        manualSpeedLog.append(manualSpeed);
+
+        double speed = 0;
+        double position = Double.NaN;
         if (isManualControl) {
-            // Manual control is handled in the manualControl method
-            SmartDashboard.putBoolean("Pivot Manual Control", true);
+            // Speed is set by the manualControl method
+            speed = manualSpeed;
+            manualControlEntry.set(true);
         } else if (!isMovementEnabled) {
-            pivotMotor.set(0);  // Stop the motor if movement is not enabled
-            SmartDashboard.putBoolean("Pivot Manual Control", false);
+            speed = 0;  // Stop the motor if movement is not enabled
+            manualControlEntry.set(false);
+        } else if (ONBOARD_CONTROL) {
+            // The SPARK MAX profiles to the goal and holds it, only a new goal is sent
+            speed = Double.NaN;
+            position = m_goalAngle;
+            manualControlEntry.set(false);
         } else {
             // Automatic movement logic
             m_controller.setGoal(m_goalAngle);
        
             // Compute motor output using PID
-            double currentPosition = m_encoder.getPosition();
-            double speed = m_controller.calculate(currentPosition, m_goalAngle);
+            speed = m_controller.calculate(inputs.positionRotations, m_goalAngle);
        
             // Limit speed to prevent high-torque issues
-            speed = Math.max(-0.5, Math.min(0.5, speed));
-       
-            // Apply speed to motor
-            pivotMotor.set(speed);
+            speed = Math.max(-MAX_OUTPUT, Math.min(MAX_OUTPUT, speed));
        
             // Stop motor if it's already at the target
             if (isPivotAtGoal()) {
-                pivotMotor.stopMotor();
+                speed = 0;
                 isMovementEnabled = false;
             }
             
-            SmartDashboard.putBoolean("Pivot Manual Control", false);
+            manualControlEntry.set(false);
+        }
+
+        // Apply speed to motor
+        if (Double.isNaN(position)) {
+            io.set(speed);
+        } else {
+            io.setPosition(position, gravityFeedforward(position));
         }
+        commandedSpeedLog.append(speed);
+        commandedPositionLog.append(position);
+        commandedPosition = position;
         
         // Always update these values
-        SmartDashboard.putNumber("Pivot Position", m_encoder.getPosition());
-        SmartDashboard.putNumber("Pivot Goal Position", m_goalAngle);
-        SmartDashboard.putNumber("Pivot Speed", pivotMotor.get());
-        SmartDashboard.putBoolean("Pivot At Goal", isPivotAtGoal());
+        double currentPosition = inputs.positionRotations;
+        positionEntry.set(currentPosition);
+        goalEntry.set(m_goalAngle);
+        speedEntry.set(Double.isNaN(speed) ? inputs.appliedOutput : speed);
+        errorEntry.set(Math.abs(currentPosition - m_goalAngle));
+        atGoalEntry.set(isPivotAtGoal());
+        telemetry.publish();
+        profile.stop();
+    }
+
+
+    /**
+     * Voltage that holds the pivot against gravity at a position. Only sent with each goal, so it is exact for holding
+     * the goal but not during the swing to it: on a long move the SPARK MAX's PID makes up the difference between
+     * the goal's feedforward and the one the current angle needs, which shows as extra tracking error mid-move.
+     * @param position Position in motor rotations
+     * @return Feedforward in volts
+     */
+    private static double gravityFeedforward(double position) {
+        return GRAVITY_VOLTS * Math.cos((position - LEVEL_POSITION) / GEAR_RATIO * 2 * Math.PI);
     }
 
 
@@ -161,22 +257,35 @@ public class PivotSubsystem extends SubsystemBase {
      * Reset the encoder position to zero
      */
     public void resetEncoder() {
-        pivotMotor.getEncoder().setPosition(0);
+        io.resetPosition();
         m_goalAngle = 0;
         m_controller.reset(0);
-        SmartDashboard.putString("Pivot Status", "Encoder Reset");
+        statusEntry.set("Encoder Reset");
+    }
+
+
+    /**
+     * Returns the current position of the pivot in motor rotations, as read at the start of the loop
+     */
+    public double getCurrentPosition() {
+        return inputs.positionRotations;
+    }
+
+
+    /**
+     * Returns true once the pivot has settled at the current goal, as detected by the superstructure loop
+     */
+    public boolean isSettled() {
+        if (!ONBOARD_CONTROL) {
+            // The loop only sees a speed, fall back to this loop's sample
+            return !isManualControl && Math.abs(inputs.positionRotations - m_goalAngle) < GOAL_TOLERANCE;
+        }
+        return isMovementEnabled && !isManualControl && inputs.atGoal && settledGoal == m_goalAngle;
     }
 
 
     public boolean isPivotAtGoal() {
-        double currentPosition = m_encoder.getPosition();
-        double error = Math.abs(currentPosition - m_goalAngle);
-       
-        // Debug values
-        SmartDashboard.putNumber("Pivot Error", error);
-        SmartDashboard.putNumber("Current Position", currentPosition);
-        SmartDashboard.putNumber("Goal Position", m_goalAngle);
-       
+        double error = Math.abs(inputs.positionRotations - m_goalAngle);
         return error < 0.5; // Increased tolerance
     }
 
@@ -212,9 +321,9 @@ public class PivotSubsystem extends SubsystemBase {
         })
         .andThen(this.run(() -> {}))
         .until(() -> {
-            double error = Math.abs(m_encoder.getPosition() - m_goalAngle);
-            boolean isMoving = Math.abs(m_encoder.getVelocity()) > 0.01;
-            boolean atGoal = error < 0.03;
+            double error = Math.abs(inputs.positionRotations - m_goalAngle);
+            boolean isMoving = Math.abs(inputs.velocityRPM) > 0.01;
+            boolean atGoal = error < GOAL_TOLERANCE;
             return atGoal && !isMoving;
         });
     }
@@ -226,9 +335,9 @@ public class PivotSubsystem extends SubsystemBase {
         })
         .andThen(this.run(() -> {}))
         .until(() -> {
-            double error = Math.abs(m_encoder.getPosition() - m_goalAngle);
-            boolean isMoving = Math.abs(m_encoder.getVelocity()) > 0.01;
-            boolean atGoal = error < 0.03;
+            double error = Math.abs(inputs.positionRotations - m_goalAngle);
+            boolean isMoving = Math.abs(inputs.velocityRPM) > 0.01;
+            boolean atGoal = error < GOAL_TOLERANCE;
             return atGoal && !isMoving;
         });
     }
@@ -240,9 +349,9 @@ public class PivotSubsystem extends SubsystemBase {
         })
         .andThen(this.run(() -> {}))
         .until(() -> {
-            double error = Math.abs(m_encoder.getPosition() - m_goalAngle);
-            boolean isMoving = Math.abs(m_encoder.getVelocity()) > 0.01;
-            boolean atGoal = error < 0.03;
+            double error = Math.abs(inputs.positionRotations - m_goalAngle);
+            boolean isMoving = Math.abs(inputs.velocityRPM) > 0.01;
+            boolean atGoal = error < GOAL_TOLERANCE;
             return atGoal && !isMoving;
         });
     }
@@ -254,9 +363,9 @@ public class PivotSubsystem extends SubsystemBase {
         })
         .andThen(this.run(() -> {}))
         .until(() -> {
-            double error = Math.abs(m_encoder.getPosition() - m_goalAngle);
-            boolean isMoving = Math.abs(m_encoder.getVelocity()) > 0.01;
-            boolean atGoal = error < 0.03;
+            double error = Math.abs(inputs.positionRotations - m_goalAngle);
+            boolean isMoving = Math.abs(inputs.velocityRPM) > 0.01;
+            boolean atGoal = error < GOAL_TOLERANCE;
             return atGoal && !isMoving;
         });
     }
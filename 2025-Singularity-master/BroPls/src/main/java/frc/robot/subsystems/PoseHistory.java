@@ -0,0 +1,202 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Fixed-size ring buffer of timestamped robot poses stored in primitive arrays. It is written and cleared by a single
+ * thread at a time (the {@link OdometryThread} holds its lock for both) and may be read from any thread without locking.
+ * Readers retry when the writer laps the slot they were reading or clears the buffer underneath them.
+ */
+public class PoseHistory
+{
+
+  /**
+   * Sample timestamps in FPGA seconds.
+   */
+  private final double[] timestamps;
+  /**
+   * Field relative X positions in meters.
+   */
+  private final double[] xs;
+  /**
+   * Field relative Y positions in meters.
+   */
+  private final double[] ys;
+  /**
+   * Field relative headings in radians.
+   */
+  private final double[] thetas;
+  /**
+   * Capacity minus one, capacity is always a power of two.
+   */
+  private final int      mask;
+  /**
+   * Total number of samples ever written. The newest sample lives at {@code (writeCount - 1) & mask}.
+   */
+  private volatile long  writeCount = 0;
+  /**
+   * Logical index of the oldest sample written since the last {@link #clear()}. Clearing only moves this forward so
+   * {@link #writeCount} stays monotonic for readers validating a slot.
+   */
+  private volatile long  firstValid = 0;
+
+  /**
+   * Create a pose history.
+   *
+   * @param capacity Minimum number of samples to keep, rounded up to the next power of two.
+   */
+  public PoseHistory(int capacity)
+  {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    timestamps = new double[size];
+    xs = new double[size];
+    ys = new double[size];
+    thetas = new double[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Append a sample. Must only be called from the single writer thread.
+   *
+   * @param timestamp Capture time of the sample in FPGA seconds.
+   * @param x         Field relative X in meters.
+   * @param y         Field relative Y in meters.
+   * @param theta     Heading in radians.
+   */
+  public void add(double timestamp, double x, double y, double theta)
+  {
+    long count = writeCount;
+    int  index = (int) (count & mask);
+    timestamps[index] = timestamp;
+    xs[index] = x;
+    ys[index] = y;
+    thetas[index] = theta;
+    // Volatile store publishes the slot to readers.
+    writeCount = count + 1;
+  }
+
+  /**
+   * Drop every sample, used when the pose is reset so nothing interpolates across the jump. Must not run concurrently
+   * with {@link #add}.
+   */
+  public void clear()
+  {
+    firstValid = writeCount;
+  }
+
+  /**
+   * Number of samples that can be held at once.
+   *
+   * @return Buffer capacity.
+   */
+  public int capacity()
+  {
+    return mask + 1;
+  }
+
+  /**
+   * Timestamp of the newest sample.
+   *
+   * @return FPGA timestamp in seconds, or {@link Double#NaN} if nothing has been written.
+   */
+  public double getLatestTimestamp()
+  {
+    while (true)
+    {
+      long count = writeCount;
+      if (count <= firstValid)
+      {
+        return Double.NaN;
+      }
+      double timestamp = timestamps[(int) ((count - 1) & mask)];
+      if (isValid(count - 1))
+      {
+        return timestamp;
+      }
+    }
+  }
+
+  /**
+   * Interpolate the pose at the given time. Times newer than the newest sample return the newest sample.
+   *
+   * @param timestamp FPGA timestamp in seconds.
+   * @param out       Array of at least 3 elements to receive {x, y, theta}.
+   * @return false if the buffer is empty or the timestamp is older than the oldest retained sample or the last clear.
+   */
+  public boolean sample(double timestamp, double[] out)
+  {
+    while (true)
+    {
+      long count = writeCount;
+      long first = firstValid;
+      if (count <= first)
+      {
+        return false;
+      }
+      long newest = count - 1;
+      // Leave one slot of slack so the writer can fill the next slot while we read.
+      long oldest = Math.max(first, count - capacity() + 1);
+
+      int newestIndex = (int) (newest & mask);
+      if (timestamp >= timestamps[newestIndex])
+      {
+        out[0] = xs[newestIndex];
+        out[1] = ys[newestIndex];
+        out[2] = thetas[newestIndex];
+        if (isValid(newest))
+        {
+          return true;
+        }
+        continue;
+      }
+      if (timestamp < timestamps[(int) (oldest & mask)])
+      {
+        if (isValid(oldest))
+        {
+          return false;
+        }
+        continue;
+      }
+
+      // Binary search for the last sample at or before the timestamp.
+      long low  = oldest;
+      long high = newest;
+      while (high - low > 1)
+      {
+        long mid = (low + high) >>> 1;
+        if (timestamps[(int) (mid & mask)] <= timestamp)
+        {
+          low = mid;
+        } else
+        {
+          high = mid;
+        }
+      }
+      int    lowIndex  = (int) (low & mask);
+      int    highIndex = (int) (high & mask);
+      double span      = timestamps[highIndex] - timestamps[lowIndex];
+      double t         = span > 0 ? (timestamp - timestamps[lowIndex]) / span : 0;
+      out[0] = xs[lowIndex] + (xs[highIndex] - xs[lowIndex]) * t;
+      out[1] = ys[lowIndex] + (ys[highIndex] - ys[lowIndex]) * t;
+      out[2] = thetas[lowIndex] + MathUtil.angleModulus(thetas[highIndex] - thetas[lowIndex]) * t;
+      if (isValid(low))
+      {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Check that the writer has not overwritten or cleared a sample since it was read.
+   *
+   * @param sequence Logical index of the oldest sample that was read.
+   * @return true if the read values are consistent.
+   */
+  private boolean isValid(long sequence)
+  {
+    // Keep the plain array reads from floating below the re-check of the write counter.
+    VarHandle.acquireFence();
+    return writeCount - sequence < capacity() && sequence >= firstValid;
+  }
+}
@@ -0,0 +1,249 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import swervelib.SwerveDrive;
+import swervelib.SwerveModule;
+
+/**
+ * Teleop drive path that goes from chassis velocities to module setpoints using only primitive doubles and
+ * preallocated {@link SwerveModuleState}s. It mirrors what {@link SwerveDrive#drive(Translation2d, double, boolean,
+ * boolean)} does for field relative, closed loop driving: angular velocity compensation, discretization, inverse
+ * kinematics and desaturation, without creating geometry or {@link edu.wpi.first.math.kinematics.ChassisSpeeds} each
+ * loop.
+ * <p>
+ * {@link SwerveModuleState} needs an immutable {@link Rotation2d}, so module angles are rounded to one of
+ * {@link #ANGLE_STEPS} shared instances instead of creating one whenever a target angle changes. Nothing here allocates
+ * per loop. {@link SwerveDrive#setModuleStates}, which receives the states on the robot, still allocates inside YAGSL,
+ * so the drive commands as a whole are bounded by YAGSL's own per-call cost rather than zero.
+ */
+public class PrimitiveSwerveDrive
+{
+
+  /**
+   * Module angle steps per turn, about 0.09 degrees apart, well below what the module angle controllers resolve.
+   */
+  static final         int          ANGLE_STEPS      = 4096;
+  /**
+   * Size of one module angle step in radians.
+   */
+  static final         double       ANGLE_RESOLUTION = 2 * Math.PI / ANGLE_STEPS;
+  /**
+   * Every module angle a state can be given, indexed by step.
+   */
+  private static final Rotation2d[] ROTATIONS        = new Rotation2d[ANGLE_STEPS];
+
+  static
+  {
+    for (int i = 0; i < ANGLE_STEPS; i++)
+    {
+      ROTATIONS[i] = new Rotation2d(MathUtil.angleModulus(i * ANGLE_RESOLUTION));
+    }
+  }
+
+  /**
+   * Maximum chassis velocity in meters per second, read on every call since it can be changed at runtime.
+   */
+  private final DoubleSupplier      maximumVelocity;
+  /**
+   * Receives the module states, {@link SwerveDrive#setModuleStates} on the robot.
+   */
+  private final Consumer<SwerveModuleState[]> output;
+  /**
+   * Measured yaw rate in radians per second, CCW positive.
+   */
+  private final DoubleSupplier      yawRate;
+  /**
+   * Module X locations relative to the robot center in meters.
+   */
+  private final double[]            moduleX;
+  /**
+   * Module Y locations relative to the robot center in meters.
+   */
+  private final double[]            moduleY;
+  /**
+   * Target module angles, kept while a module is not moving.
+   */
+  private final Rotation2d[]        moduleRotations;
+  /**
+   * Preallocated module states handed to {@link SwerveDrive#setModuleStates}.
+   */
+  private final SwerveModuleState[] states;
+  /**
+   * Heading offset per rad/s of measured rotation, see {@link SwerveDrive#setAngularVelocityCompensation}.
+   */
+  private final double              angularVelocityCoefficient;
+  /**
+   * Discretization period in seconds.
+   */
+  private final double              discretizationPeriod;
+
+  /**
+   * Create the drive path.
+   *
+   * @param swerveDrive                {@link SwerveDrive} to command.
+   * @param yawRate                    Measured yaw rate in radians per second, CCW positive.
+   * @param angularVelocityCoefficient Angular velocity skew compensation coefficient, 0 to disable.
+   * @param discretizationPeriod       Loop period used to discretize chassis speeds in seconds.
+   */
+  public PrimitiveSwerveDrive(SwerveDrive swerveDrive, DoubleSupplier yawRate, double angularVelocityCoefficient,
+                              double discretizationPeriod)
+  {
+    this(moduleLocations(swerveDrive),
+         moduleAngles(swerveDrive),
+         swerveDrive::getMaximumChassisVelocity,
+         states -> swerveDrive.setModuleStates(states, false),
+         yawRate,
+         angularVelocityCoefficient,
+         discretizationPeriod);
+  }
+
+  /**
+   * Create the drive path without a {@link SwerveDrive}, for tests.
+   *
+   * @param moduleLocations            Module locations relative to the robot center in meters.
+   * @param initialAngles              Current module angles.
+   * @param maximumVelocity            Maximum chassis velocity in meters per second.
+   * @param output                     Receives the module states.
+   * @param yawRate                    Measured yaw rate in radians per second, CCW positive.
+   * @param angularVelocityCoefficient Angular velocity skew compensation coefficient, 0 to disable.
+   * @param discretizationPeriod       Loop period used to discretize chassis speeds in seconds.
+   */
+  PrimitiveSwerveDrive(Translation2d[] moduleLocations, Rotation2d[] initialAngles, DoubleSupplier maximumVelocity,
+                       Consumer<SwerveModuleState[]> output, DoubleSupplier yawRate,
+                       double angularVelocityCoefficient, double discretizationPeriod)
+  {
+    this.maximumVelocity = maximumVelocity;
+    this.output = output;
+    this.yawRate = yawRate;
+    this.angularVelocityCoefficient = angularVelocityCoefficient;
+    this.discretizationPeriod = discretizationPeriod;
+
+    moduleX = new double[moduleLocations.length];
+    moduleY = new double[moduleLocations.length];
+    moduleRotations = new Rotation2d[moduleLocations.length];
+    states = new SwerveModuleState[moduleLocations.length];
+    for (int i = 0; i < moduleLocations.length; i++)
+    {
+      moduleX[i] = moduleLocations[i].getX();
+      moduleY[i] = moduleLocations[i].getY();
+      moduleRotations[i] = initialAngles[i];
+      states[i] = new SwerveModuleState(0, moduleRotations[i]);
+    }
+  }
+
+  /**
+   * Module locations of a swerve drive.
+   *
+   * @param swerveDrive {@link SwerveDrive} to read.
+   * @return Locations relative to the robot center in meters.
+   */
+  private static Translation2d[] moduleLocations(SwerveDrive swerveDrive)
+  {
+    SwerveModule[]  modules   = swerveDrive.getModules();
+    Translation2d[] locations = new Translation2d[modules.length];
+    for (int i = 0; i < modules.length; i++)
+    {
+      locations[i] = modules[i].configuration.moduleLocation;
+    }
+    return locations;
+  }
+
+  /**
+   * Current module angles of a swerve drive.
+   *
+   * @param swerveDrive {@link SwerveDrive} to read.
+   * @return Module angles.
+   */
+  private static Rotation2d[] moduleAngles(SwerveDrive swerveDrive)
+  {
+    SwerveModule[] modules = swerveDrive.getModules();
+    Rotation2d[]   angles  = new Rotation2d[modules.length];
+    for (int i = 0; i < modules.length; i++)
+    {
+      angles[i] = modules[i].getState().angle;
+    }
+    return angles;
+  }
+
+  /**
+   * Drive field relative with closed loop module velocities.
+   *
+   * @param vxMetersPerSecond     Field relative X velocity, away from the blue alliance wall.
+   * @param vyMetersPerSecond     Field relative Y velocity.
+   * @param omegaRadiansPerSecond Angular velocity, CCW positive.
+   * @param headingRadians        Current robot heading.
+   */
+  public void driveFieldOriented(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond,
+                                 double headingRadians)
+  {
+    // Convert to robot relative, leading the heading by the measured yaw rate to counter skew while rotating, the same
+    // as YAGSL's angular velocity compensation.
+    double heading = headingRadians + yawRate.getAsDouble() * angularVelocityCoefficient;
+    double cos     = Math.cos(heading);
+    double sin     = Math.sin(heading);
+    drive(vxMetersPerSecond * cos + vyMetersPerSecond * sin,
+          -vxMetersPerSecond * sin + vyMetersPerSecond * cos,
+          omegaRadiansPerSecond);
+  }
+
+  /**
+   * Drive robot relative with closed loop module velocities.
+   *
+   * @param vxMetersPerSecond     Robot relative X velocity, towards the front.
+   * @param vyMetersPerSecond     Robot relative Y velocity, towards the left.
+   * @param omegaRadiansPerSecond Angular velocity, CCW positive.
+   */
+  public void drive(double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond)
+  {
+    // Discretize, same as ChassisSpeeds.discretize but inlined as a Pose2d log over one period.
+    double dtheta = omegaRadiansPerSecond * discretizationPeriod;
+    double vx     = vxMetersPerSecond;
+    double vy     = vyMetersPerSecond;
+    if (dtheta != 0)
+    {
+      double halfDtheta  = dtheta / 2.0;
+      double cosMinusOne = Math.cos(dtheta) - 1;
+      double halfThetaByTanOfHalfDtheta = Math.abs(cosMinusOne) < 1E-9
+                                          ? 1.0 - dtheta * dtheta / 12.0
+                                          : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+      vx = vxMetersPerSecond * halfThetaByTanOfHalfDtheta + vyMetersPerSecond * halfDtheta;
+      vy = -vxMetersPerSecond * halfDtheta + vyMetersPerSecond * halfThetaByTanOfHalfDtheta;
+    }
+
+    // Inverse kinematics, keeping the previous angle for a module that is not moving.
+    double maxModuleSpeed = 0;
+    for (int i = 0; i < states.length; i++)
+    {
+      double moduleVx = vx - omegaRadiansPerSecond * moduleY[i];
+      double moduleVy = vy + omegaRadiansPerSecond * moduleX[i];
+      double speed    = Math.hypot(moduleVx, moduleVy);
+      states[i].speedMetersPerSecond = speed;
+      if (speed > 1E-6)
+      {
+        long step = Math.round(Math.atan2(moduleVy, moduleVx) / ANGLE_RESOLUTION);
+        moduleRotations[i] = ROTATIONS[(int) (step & (ANGLE_STEPS - 1))];
+      }
+      // Always reassign, the modules optimize the states we hand them in place.
+      states[i].angle = moduleRotations[i];
+      maxModuleSpeed = Math.max(maxModuleSpeed, speed);
+    }
+
+    // Desaturate
+    double maxSpeed = maximumVelocity.getAsDouble();
+    if (maxModuleSpeed > maxSpeed)
+    {
+      double scale = maxSpeed / maxModuleSpeed;
+      for (SwerveModuleState state : states)
+      {
+        state.speedMetersPerSecond *= scale;
+      }
+    }
+
+    output.accept(states);
+  }
+}
@@ -0,0 +1,61 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.MatchLog;
+
+/**
+ * Hardware layer of the {@link ShooterSubsystem}. The subsystem only talks to the motors through this interface, so
+ * the same code runs on the robot, in simulation and against a recorded match log.
+ */
+public interface ShooterIO {
+
+    /**
+     * Sensor values read once per loop by {@link #updateInputs(ShooterIOInputs)}.
+     */
+    class ShooterIOInputs {
+        public static final String LEFT_VELOCITY_KEY = "Shooter/Inputs/Left Velocity";
+        public static final String RIGHT_VELOCITY_KEY = "Shooter/Inputs/Right Velocity";
+        public static final String LEFT_OUTPUT_KEY = "Shooter/Inputs/Left Output";
+        public static final String RIGHT_OUTPUT_KEY = "Shooter/Inputs/Right Output";
+        public static final String LEFT_CURRENT_KEY = "Shooter/Inputs/Left Current";
+        public static final String RIGHT_CURRENT_KEY = "Shooter/Inputs/Right Current";
+
+        public double leftVelocityRotationsPerSec = 0;
+        public double rightVelocityRotationsPerSec = 0;
+        public double leftOutput = 0; // Applied duty cycle
+        public double rightOutput = 0;
+        public double leftCurrentAmps = 0;
+        public double rightCurrentAmps = 0;
+
+        private final MatchLog.DoubleChannel leftVelocityLog = MatchLog.getInstance().addDouble(LEFT_VELOCITY_KEY);
+        private final MatchLog.DoubleChannel rightVelocityLog = MatchLog.getInstance().addDouble(RIGHT_VELOCITY_KEY);
+        private final MatchLog.DoubleChannel leftOutputLog = MatchLog.getInstance().addDouble(LEFT_OUTPUT_KEY);
+        private final MatchLog.DoubleChannel rightOutputLog = MatchLog.getInstance().addDouble(RIGHT_OUTPUT_KEY);
+        private final MatchLog.DoubleChannel leftCurrentLog = MatchLog.getInstance().addDouble(LEFT_CURRENT_KEY);
+        private final MatchLog.DoubleChannel rightCurrentLog = MatchLog.getInstance().addDouble(RIGHT_CURRENT_KEY);
+
+        /**
+         * Append every input to the match log so {@link ShooterIOReplay} can play them back.
+         */
+        public void log() {
+            leftVelocityLog.append(leftVelocityRotationsPerSec);
+            rightVelocityLog.append(rightVelocityRotationsPerSec);
+            leftOutputLog.append(leftOutput);
+            rightOutputLog.append(rightOutput);
+            leftCurrentLog.append(leftCurrentAmps);
+            rightCurrentLog.append(rightCurrentAmps);
+        }
+    }
+
+    /**
+     * Read the sensors into the inputs.
+     * @param inputs Inputs to fill
+     */
+    default void updateInputs(ShooterIOInputs inputs) {}
+
+    /**
+     * Drive both motors open loop
+     * @param left Left motor duty cycle (-1 to 1)
+     * @param right Right motor duty cycle (-1 to 1)
+     */
+    default void setOutputs(double left, double right) {}
+}
@@ -0,0 +1,58 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.ReplayLog;
+
+/**
+ * {@link ShooterIO} that plays back the inputs of a recorded match. Commands are not sent anywhere, the last one is
+ * kept so the replay can compare it with what the robot did.
+ */
+public class ShooterIOReplay implements ShooterIO {
+    private final ReplayLog.DoubleSeries leftVelocity;
+    private final ReplayLog.DoubleSeries rightVelocity;
+    private final ReplayLog.DoubleSeries leftOutput;
+    private final ReplayLog.DoubleSeries rightOutput;
+    private final ReplayLog.DoubleSeries leftCurrent;
+    private final ReplayLog.DoubleSeries rightCurrent;
+
+    private double commandedLeft = 0;
+    private double commandedRight = 0;
+
+    public ShooterIOReplay(ReplayLog log) {
+        leftVelocity = log.getDouble(ShooterIOInputs.LEFT_VELOCITY_KEY, 0);
+        rightVelocity = log.getDouble(ShooterIOInputs.RIGHT_VELOCITY_KEY, 0);
+        leftOutput = log.getDouble(ShooterIOInputs.LEFT_OUTPUT_KEY, 0);
+        rightOutput = log.getDouble(ShooterIOInputs.RIGHT_OUTPUT_KEY, 0);
+        leftCurrent = log.getDouble(ShooterIOInputs.LEFT_CURRENT_KEY, 0);
+        rightCurrent = log.getDouble(ShooterIOInputs.RIGHT_CURRENT_KEY, 0);
+    }
+
+    @Override
+    public void updateInputs(ShooterIOInputs inputs) {
+        inputs.leftVelocityRotationsPerSec = leftVelocity.get();
+        inputs.rightVelocityRotationsPerSec = rightVelocity.get();
+        inputs.leftOutput = leftOutput.get();
+        inputs.rightOutput = rightOutput.get();
+        inputs.leftCurrentAmps = leftCurrent.get();
+        inputs.rightCurrentAmps = rightCurrent.get();
+    }
+
+    @Override
+    public void setOutputs(double left, double right) {
+        commandedLeft = left;
+        commandedRight = right;
+    }
+
+    /**
+     * Left duty cycle of the last command
+     */
+    public double getCommandedLeft() {
+        return commandedLeft;
+    }
+
+    /**
+     * Right duty cycle of the last command
+     */
+    public double getCommandedRight() {
+        return commandedRight;
+    }
+}
@@ -0,0 +1,44 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+
+/**
+ * Simulated {@link ShooterIO}. Runs the real {@link ShooterIOTalonFX} code against Phoenix's simulated TalonFXs, each
+ * spinning a flywheel model.
+ */
+public class ShooterIOSim extends ShooterIOTalonFX {
+    private static final double MOMENT_OF_INERTIA = 0.002; // kg m^2 per side, placeholder
+
+    private final TalonFXSimState leftSim = leftMotor.getSimState();
+    private final TalonFXSimState rightSim = rightMotor.getSimState();
+    private final FlywheelSim leftWheel = createWheel();
+    private final FlywheelSim rightWheel = createWheel();
+
+    private static FlywheelSim createWheel() {
+        return new FlywheelSim(LinearSystemId.createFlywheelSystem(DCMotor.getKrakenX60(1), MOMENT_OF_INERTIA, 1.0),
+                               DCMotor.getKrakenX60(1));
+    }
+
+    @Override
+    public void updateInputs(ShooterIOInputs inputs) {
+        step(leftSim, leftWheel);
+        step(rightSim, rightWheel);
+        // The loop's batch was refreshed before this step, read the new state
+        refreshSignals();
+        super.updateInputs(inputs);
+    }
+
+    private static void step(TalonFXSimState sim, FlywheelSim wheel) {
+        sim.setSupplyVoltage(RobotController.getBatteryVoltage());
+        wheel.setInputVoltage(sim.getMotorVoltage());
+        wheel.update(TimedRobot.kDefaultPeriod);
+        double rotationsPerSec = wheel.getAngularVelocityRPM() / 60.0;
+        sim.setRotorVelocity(rotationsPerSec);
+        sim.addRotorPosition(rotationsPerSec * TimedRobot.kDefaultPeriod);
+    }
+}
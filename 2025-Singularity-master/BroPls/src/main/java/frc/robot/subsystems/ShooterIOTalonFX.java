@@ -0,0 +1,76 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
+import frc.robot.util.ControlFrameFilter;
+import frc.robot.util.StatusSignalRegistry;
+
+/**
+ * {@link ShooterIO} for the two shooter TalonFXs.
+ */
+public class ShooterIOTalonFX implements ShooterIO {
+    // Define motor CAN IDs
+    private static final int LEFT_MOTOR_ID = 17; // CAN ID for left motor
+    private static final int RIGHT_MOTOR_ID = 18; // CAN ID for right motor
+    private static final int MODE_DUTY_CYCLE = 0;
+
+    protected final TalonFX leftMotor = new TalonFX(LEFT_MOTOR_ID);
+    protected final TalonFX rightMotor = new TalonFX(RIGHT_MOTOR_ID);
+
+    // Duty cycle (percentage) control objects, sent one-shot and only when they change
+    private final DutyCycleOut leftControl = new DutyCycleOut(0).withUpdateFreqHz(0);
+    private final DutyCycleOut rightControl = new DutyCycleOut(0).withUpdateFreqHz(0);
+    private final ControlFrameFilter leftFilter =
+            new ControlFrameFilter("Shooter Left", ControlFrameFilter.KEEP_ALIVE_TALONFX);
+    private final ControlFrameFilter rightFilter =
+            new ControlFrameFilter("Shooter Right", ControlFrameFilter.KEEP_ALIVE_TALONFX);
+
+    // Status signals, refreshed with every other device's by StatusSignalRegistry at the start of each loop
+    private final StatusSignal<AngularVelocity> leftVelocity = leftMotor.getVelocity();
+    private final StatusSignal<AngularVelocity> rightVelocity = rightMotor.getVelocity();
+    private final StatusSignal<Double> leftOutput = leftMotor.getDutyCycle();
+    private final StatusSignal<Double> rightOutput = rightMotor.getDutyCycle();
+    private final StatusSignal<Current> leftCurrent = leftMotor.getStatorCurrent();
+    private final StatusSignal<Current> rightCurrent = rightMotor.getStatorCurrent();
+
+    public ShooterIOTalonFX() {
+        // Only the signals read below are sent, everything else on both motors is switched off
+        StatusSignalRegistry registry = StatusSignalRegistry.getInstance();
+        registry.addDevice("Shooter Left", leftMotor, true)
+                .add(50, leftVelocity, leftOutput, leftCurrent);
+        registry.addDevice("Shooter Right", rightMotor, true)
+                .add(50, rightVelocity, rightOutput, rightCurrent);
+    }
+
+    @Override
+    public void updateInputs(ShooterIOInputs inputs) {
+        inputs.leftVelocityRotationsPerSec = leftVelocity.getValueAsDouble();
+        inputs.rightVelocityRotationsPerSec = rightVelocity.getValueAsDouble();
+        inputs.leftOutput = leftOutput.getValueAsDouble();
+        inputs.rightOutput = rightOutput.getValueAsDouble();
+        inputs.leftCurrentAmps = leftCurrent.getValueAsDouble();
+        inputs.rightCurrentAmps = rightCurrent.getValueAsDouble();
+    }
+
+    /**
+     * Refresh the signals read by {@link #updateInputs(ShooterIOInputs)} out of the loop's batch, used by the simulation
+     * after it has moved the motors.
+     */
+    protected void refreshSignals() {
+        BaseStatusSignal.refreshAll(leftVelocity, rightVelocity, leftOutput, rightOutput, leftCurrent, rightCurrent);
+    }
+
+    @Override
+    public void setOutputs(double left, double right) {
+        if (leftFilter.shouldSend(MODE_DUTY_CYCLE, left)) {
+            leftMotor.setControl(leftControl.withOutput(left));
+        }
+        if (rightFilter.shouldSend(MODE_DUTY_CYCLE, right)) {
+            rightMotor.setControl(rightControl.withOutput(right));
+        }
+    }
+}
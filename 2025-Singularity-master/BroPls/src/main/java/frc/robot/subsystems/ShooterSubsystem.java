@@ -1,34 +1,56 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix6.hardware.TalonFX; // Import for Falcon/Kraken motors
-import com.ctre.phoenix6.controls.DutyCycleOut; // Import for percentage output control
 import edu.wpi.first.wpilibj2.command.Command; // Import for Command creation
 import edu.wpi.first.wpilibj2.command.SubsystemBase; // Base class for subsystems
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController; // Import for Xbox controller
+import frc.robot.util.LoopProfiler; // Import for loop timing
+import frc.robot.util.MatchLog; // Import for match logging
+import frc.robot.util.TelemetryTable; // Import for dashboard values
 
 public class ShooterSubsystem extends SubsystemBase {
-    
-    // Define motor CAN IDs
-    private static final int LEFT_MOTOR_ID = 17; // CAN ID for left motor
-    private static final int RIGHT_MOTOR_ID = 18; // CAN ID for right motor
+
+    // Match log entries of the request applied each loop, read back by MatchReplay
+    public static final String LEFT_REQUEST_KEY = "Shooter/Request/Left";
+    public static final String RIGHT_REQUEST_KEY = "Shooter/Request/Right";
     
     // Define motor speed values (0.0 to 1.0)
     private static final double INTAKE_SPEED = 0.8; // 80% speed for intake
     private static final double SHOOTING_SPEED = 0.8; // 80% speed for shooting
     private static final double TRIGGER_THRESHOLD = 0.1; // Minimum trigger value to activate
 
-    // Create motor objects (public for direct access from commands)
-    public final TalonFX leftMotor = new TalonFX(LEFT_MOTOR_ID); // Initialize left motor
-    public final TalonFX rightMotor = new TalonFX(RIGHT_MOTOR_ID); // Initialize right motor
-    
-    // Create duty cycle (percentage) control object (public for direct access from commands)
-    public final DutyCycleOut speedControl = new DutyCycleOut(0); // Initialize with 0% output
+    // Hardware layer and the inputs it reads each loop
+    private final ShooterIO io;
+    private final ShooterIO.ShooterIOInputs inputs = new ShooterIO.ShooterIOInputs();
+
+    // Requested duty cycles, applied from periodic()
+    private double leftRequest = 0;
+    private double rightRequest = 0;
+
+    // Dashboard values, published from periodic() only
+    private final TelemetryTable telemetry = new TelemetryTable("Shooter");
+    private final TelemetryTable.DoubleEntry leftOutputEntry = telemetry.addDouble("Shooter Left Output");
+    private final TelemetryTable.DoubleEntry rightOutputEntry = telemetry.addDouble("Shooter Right Output");
+    private final LoopProfiler.Section profile = LoopProfiler.getInstance().addSection("Shooter");
+    private final MatchLog.DoubleChannel leftRequestLog = MatchLog.getInstance().addDouble(LEFT_REQUEST_KEY);
+    private final MatchLog.DoubleChannel rightRequestLog = MatchLog.getInstance().addDouble(RIGHT_REQUEST_KEY);
     
     /**
-     * Constructor - Just initializes the motors
+     * Constructor - Just stores the hardware layer
+     * @param io {@link ShooterIOTalonFX} on the robot, {@link ShooterIOSim} in simulation or {@link ShooterIOReplay}
+     *           when replaying a match log
+     */
+    public ShooterSubsystem(ShooterIO io) {
+        this.io = io;
+    }
+
+    /**
+     * Set the duty cycle of both motors, applied on the next periodic()
+     * @param left Left motor duty cycle (-1 to 1)
+     * @param right Right motor duty cycle (-1 to 1)
      */
-    public ShooterSubsystem() {
-        // No additional configuration needed for simplicity
+    public void setOutputs(double left, double right) {
+        leftRequest = left;
+        rightRequest = right;
     }
     
     /**
@@ -43,25 +65,34 @@ public class ShooterSubsystem extends SubsystemBase {
             
             // Right trigger pressed - SHOOTING MODE
             if (rightTrigger > TRIGGER_THRESHOLD) {
-                // Set left motor forward
-                leftMotor.setControl(speedControl.withOutput(SHOOTING_SPEED)); 
-                // Set right motor backward
-                rightMotor.setControl(speedControl.withOutput(-SHOOTING_SPEED));
+                // Set left motor forward, right motor backward
+                setOutputs(SHOOTING_SPEED, -SHOOTING_SPEED);
             }
             // Left trigger pressed - INTAKE MODE 
             else if (leftTrigger > TRIGGER_THRESHOLD) {
-                // Set left motor backward
-                leftMotor.setControl(speedControl.withOutput(-INTAKE_SPEED));
-                // Set right motor forward
-                rightMotor.setControl(speedControl.withOutput(INTAKE_SPEED));
+                // Set left motor backward, right motor forward
+                setOutputs(-INTAKE_SPEED, INTAKE_SPEED);
             }
             // No triggers pressed - STOP MOTORS
             else {
-                // Stop left motor
-                leftMotor.setControl(speedControl.withOutput(0));
-                // Stop right motor
-                rightMotor.setControl(speedControl.withOutput(0));
+                setOutputs(0, 0);
             }
         });
     }
-}
\ No newline at end of file
+
+    @Override
+    public void periodic() {
+        profile.start();
+        io.updateInputs(inputs);
+        inputs.log();
+        leftRequestLog.append(leftRequest);
+        rightRequestLog.append(rightRequest);
+        io.setOutputs(leftRequest, rightRequest);
+
+        // Publish the applied duty cycle of each motor
+        leftOutputEntry.set(inputs.leftOutput);
+        rightOutputEntry.set(inputs.rightOutput);
+        telemetry.publish();
+        profile.stop();
+    }
+}
@@ -0,0 +1,390 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.Constants;
+import frc.robot.util.LatencyHistogram;
+import frc.robot.util.MatchLog;
+import frc.robot.util.SnapshotBuffer;
+
+/**
+ * Dedicated high rate loop for the elevator and pivot hardware, so vision or telemetry spikes in the main loop do not
+ * delay mechanism control.
+ * <p>
+ * Each cycle reads both mechanisms' sensors, applies the latest request from {@link Elevator} and
+ * {@link PivotSubsystem} and detects when each has settled at its position goal. The subsystems never touch the
+ * hardware directly, they get the {@link ElevatorIO} and {@link PivotIO} returned by {@link #getElevatorIO()} and
+ * {@link #getPivotIO()}, which only copy requests in and sensor values out through {@link SnapshotBuffer}s. Both
+ * mechanisms profile on their motor controllers, so a new goal starts moving within one cycle instead of one main loop.
+ * <p>
+ * The deviation of each cycle's start from the nominal period and the time each cycle takes are published under
+ * {@code /Superstructure} and logged once a second.
+ */
+public class SuperstructureSupervisor
+{
+
+  /**
+   * Loop period in seconds.
+   */
+  public static final  double PERIOD              = 0.005;
+  /**
+   * Consecutive cycles within tolerance and below the settle speed before a mechanism counts as at its goal.
+   */
+  private static final int    SETTLE_CYCLES       = 4;
+  /**
+   * Speed below which a mechanism counts as stopped. Placeholders, tune on the robot.
+   */
+  private static final double ELEVATOR_SETTLE_IPS = 2.0;
+  private static final double PIVOT_SETTLE_RPM    = 6.0;
+  /**
+   * Seconds between publishes.
+   */
+  private static final double PUBLISH_PERIOD      = 1.0;
+
+  /**
+   * Offsets into the request snapshots.
+   */
+  private static final int ELEVATOR_POSITION = 0, ELEVATOR_VOLTS = 1, ELEVATOR_RESETS = 2, ELEVATOR_REQUEST_SIZE = 3;
+  private static final int PIVOT_POSITION    = 0, PIVOT_FEEDFORWARD = 1, PIVOT_SPEED = 2, PIVOT_RESETS = 3,
+      PIVOT_REQUEST_SIZE = 4;
+  /**
+   * Offsets into the status snapshots. The goal the at goal flag refers to is echoed, so a reader can tell a stale flag
+   * from one for its latest request.
+   */
+  private static final int POSITION          = 0, VELOCITY = 1, OUTPUT = 2, CURRENT = 3, GOAL = 4, AT_GOAL = 5,
+      STATUS_SIZE = 6;
+
+  private final ElevatorIO     elevatorIO;
+  private final PivotIO        pivotIO;
+  private final Notifier       notifier;
+  private final SnapshotBuffer elevatorRequests = new SnapshotBuffer(ELEVATOR_REQUEST_SIZE);
+  private final SnapshotBuffer pivotRequests    = new SnapshotBuffer(PIVOT_REQUEST_SIZE);
+  private final SnapshotBuffer elevatorStatus   = new SnapshotBuffer(STATUS_SIZE);
+  private final SnapshotBuffer pivotStatus      = new SnapshotBuffer(STATUS_SIZE);
+  private final ElevatorView   elevatorView     = new ElevatorView();
+  private final PivotView      pivotView        = new PivotView();
+
+  /**
+   * State owned by the loop thread.
+   */
+  private final ElevatorIO.ElevatorIOInputs elevatorInputs   = new ElevatorIO.ElevatorIOInputs(false);
+  private final PivotIO.PivotIOInputs       pivotInputs      = new PivotIO.PivotIOInputs(false);
+  private final double[]                    elevatorRequest  = new double[ELEVATOR_REQUEST_SIZE];
+  private final double[]                    pivotRequest     = new double[PIVOT_REQUEST_SIZE];
+  private final double[]                    status           = new double[STATUS_SIZE];
+  private       double                      elevatorResets   = 0;
+  private       double                      pivotResets      = 0;
+  private       int                         elevatorSettled  = 0;
+  private       int                         pivotSettled     = 0;
+  private final LatencyHistogram            jitter           = new LatencyHistogram();
+  private final LatencyHistogram            cycleTime        = new LatencyHistogram();
+  private       long                        lastStart        = 0;
+  private       long                        lastPublish      = 0;
+  private final DoublePublisher             jitterP50Publisher;
+  private final DoublePublisher             jitterP99Publisher;
+  private final DoublePublisher             jitterMaxPublisher;
+  private final DoublePublisher             cycleP99Publisher;
+  private final DoublePublisher             cycleMaxPublisher;
+  private final MatchLog.DoubleChannel      jitterP99Log;
+  private final MatchLog.DoubleChannel      jitterMaxLog;
+  private final MatchLog.DoubleChannel      cycleMaxLog;
+
+  /**
+   * Create the loop and read the sensors once, so the subsystems start from real values. It does not run until
+   * {@link #start()} is called.
+   *
+   * @param elevatorIO Elevator hardware, {@link ElevatorIOTalonFX} on the robot or {@link ElevatorIOSim} in simulation.
+   * @param pivotIO    Pivot hardware, {@link PivotIOSparkMax} on the robot or {@link PivotIOSim} in simulation.
+   */
+  public SuperstructureSupervisor(ElevatorIO elevatorIO, PivotIO pivotIO)
+  {
+    this.elevatorIO = elevatorIO;
+    this.pivotIO = pivotIO;
+
+    NetworkTable table = NetworkTableInstance.getDefault().getTable("Superstructure");
+    jitterP50Publisher = table.getDoubleTopic("JitterP50Ms").publish();
+    jitterP99Publisher = table.getDoubleTopic("JitterP99Ms").publish();
+    jitterMaxPublisher = table.getDoubleTopic("JitterMaxMs").publish();
+    cycleP99Publisher = table.getDoubleTopic("CycleP99Ms").publish();
+    cycleMaxPublisher = table.getDoubleTopic("CycleMaxMs").publish();
+    jitterP99Log = MatchLog.getInstance().addDouble("Superstructure/Jitter p99");
+    jitterMaxLog = MatchLog.getInstance().addDouble("Superstructure/Jitter Max");
+    cycleMaxLog = MatchLog.getInstance().addDouble("Superstructure/Cycle Max");
+
+    // Nothing is commanded until the subsystems send a request
+    elevatorRequest[ELEVATOR_POSITION] = Double.NaN;
+    pivotRequest[PIVOT_POSITION] = Double.NaN;
+    elevatorRequests.write(elevatorRequest);
+    pivotRequests.write(pivotRequest);
+    elevatorIO.updateInputs(elevatorInputs);
+    pivotIO.updateInputs(pivotInputs);
+    publishStatus();
+
+    notifier = new Notifier(this::update);
+    notifier.setName("Superstructure");
+  }
+
+  /**
+   * Start the loop.
+   */
+  public void start()
+  {
+    notifier.startPeriodic(PERIOD);
+  }
+
+  /**
+   * Stop the loop. The motor controllers keep their last request until their control timeout.
+   */
+  public void stop()
+  {
+    notifier.stop();
+  }
+
+  /**
+   * Hardware layer for the {@link Elevator}, backed by this loop. Call its methods from the main thread only.
+   *
+   * @return {@link ElevatorIO}
+   */
+  public ElevatorIO getElevatorIO()
+  {
+    return elevatorView;
+  }
+
+  /**
+   * Hardware layer for the {@link PivotSubsystem}, backed by this loop. Call its methods from the main thread only.
+   *
+   * @return {@link PivotIO}
+   */
+  public PivotIO getPivotIO()
+  {
+    return pivotView;
+  }
+
+  /**
+   * One cycle: read the sensors, apply the latest requests, detect settling and publish the status.
+   */
+  private void update()
+  {
+    long start = System.nanoTime();
+    if (lastStart != 0)
+    {
+      jitter.record(Math.abs(start - lastStart - (long) (PERIOD * 1e9)));
+    } else
+    {
+      lastPublish = start;
+    }
+    lastStart = start;
+
+    elevatorIO.updateInputs(elevatorInputs);
+    pivotIO.updateInputs(pivotInputs);
+
+    elevatorRequests.read(elevatorRequest);
+    if (elevatorRequest[ELEVATOR_RESETS] != elevatorResets)
+    {
+      elevatorResets = elevatorRequest[ELEVATOR_RESETS];
+      elevatorIO.resetPosition();
+    }
+    double elevatorGoal = elevatorRequest[ELEVATOR_POSITION];
+    if (Double.isNaN(elevatorGoal))
+    {
+      elevatorIO.setVoltage(elevatorRequest[ELEVATOR_VOLTS]);
+    } else
+    {
+      elevatorIO.setPosition(elevatorGoal);
+    }
+
+    pivotRequests.read(pivotRequest);
+    if (pivotRequest[PIVOT_RESETS] != pivotResets)
+    {
+      pivotResets = pivotRequest[PIVOT_RESETS];
+      pivotIO.resetPosition();
+    }
+    double pivotGoal = pivotRequest[PIVOT_POSITION];
+    if (Double.isNaN(pivotGoal))
+    {
+      pivotIO.set(pivotRequest[PIVOT_SPEED]);
+    } else
+    {
+      pivotIO.setPosition(pivotGoal, pivotRequest[PIVOT_FEEDFORWARD]);
+    }
+
+    elevatorSettled = settled(elevatorSettled, elevatorInputs.positionInches, elevatorGoal, Constants.kAllowedError,
+                              elevatorInputs.velocityInchesPerSec, ELEVATOR_SETTLE_IPS);
+    pivotSettled = settled(pivotSettled, pivotInputs.positionRotations, pivotGoal, PivotSubsystem.GOAL_TOLERANCE,
+                           pivotInputs.velocityRPM, PIVOT_SETTLE_RPM);
+    publishStatus();
+
+    long end = System.nanoTime();
+    cycleTime.record(end - start);
+    if (end - lastPublish >= PUBLISH_PERIOD * 1e9)
+    {
+      lastPublish = end;
+      publishJitter();
+    }
+  }
+
+  /**
+   * Count consecutive cycles a mechanism has been within tolerance of its goal and below the settle speed.
+   */
+  private static int settled(int cycles, double position, double goal, double tolerance, double velocity,
+                             double settleVelocity)
+  {
+    if (Double.isNaN(goal) || Math.abs(position - goal) > tolerance || Math.abs(velocity) > settleVelocity)
+    {
+      return 0;
+    }
+    return Math.min(cycles + 1, SETTLE_CYCLES);
+  }
+
+  private void publishStatus()
+  {
+    status[POSITION] = elevatorInputs.positionInches;
+    status[VELOCITY] = elevatorInputs.velocityInchesPerSec;
+    status[OUTPUT] = elevatorInputs.appliedVolts;
+    status[CURRENT] = elevatorInputs.currentAmps;
+    status[GOAL] = elevatorRequest[ELEVATOR_POSITION];
+    status[AT_GOAL] = elevatorSettled >= SETTLE_CYCLES ? 1 : 0;
+    elevatorStatus.write(status);
+
+    status[POSITION] = pivotInputs.positionRotations;
+    status[VELOCITY] = pivotInputs.velocityRPM;
+    status[OUTPUT] = pivotInputs.appliedOutput;
+    status[CURRENT] = pivotInputs.currentAmps;
+    status[GOAL] = pivotRequest[PIVOT_POSITION];
+    status[AT_GOAL] = pivotSettled >= SETTLE_CYCLES ? 1 : 0;
+    pivotStatus.write(status);
+  }
+
+  private void publishJitter()
+  {
+    jitterP50Publisher.set(jitter.getPercentileMillis(0.5));
+    jitterP99Publisher.set(jitter.getPercentileMillis(0.99));
+    jitterMaxPublisher.set(jitter.getMaxMillis());
+    cycleP99Publisher.set(cycleTime.getPercentileMillis(0.99));
+    cycleMaxPublisher.set(cycleTime.getMaxMillis());
+    jitterP99Log.append(jitter.getPercentileMillis(0.99) / 1e3);
+    jitterMaxLog.append(jitter.getMaxMillis() / 1e3);
+    cycleMaxLog.append(cycleTime.getMaxMillis() / 1e3);
+    jitter.reset();
+    cycleTime.reset();
+  }
+
+  /**
+   * Whether a status snapshot says the mechanism has settled at the given goal.
+   */
+  private static boolean isAtGoal(double[] status, double goal)
+  {
+    return status[AT_GOAL] != 0 && Double.doubleToLongBits(status[GOAL]) == Double.doubleToLongBits(goal);
+  }
+
+  /**
+   * {@link ElevatorIO} handed to the {@link Elevator}.
+   */
+  private final class ElevatorView implements ElevatorIO
+  {
+
+    private final double[] request = new double[ELEVATOR_REQUEST_SIZE];
+    private final double[] latest  = new double[STATUS_SIZE];
+
+    private ElevatorView()
+    {
+      request[ELEVATOR_POSITION] = Double.NaN;
+    }
+
+    @Override
+    public void updateInputs(ElevatorIOInputs inputs)
+    {
+      elevatorStatus.read(latest);
+      inputs.positionInches = latest[POSITION];
+      inputs.velocityInchesPerSec = latest[VELOCITY];
+      inputs.appliedVolts = latest[OUTPUT];
+      inputs.currentAmps = latest[CURRENT];
+      inputs.atGoal = isAtGoal(latest, request[ELEVATOR_POSITION]);
+    }
+
+    @Override
+    public void setVoltage(double volts)
+    {
+      if (!Double.isNaN(request[ELEVATOR_POSITION]) || request[ELEVATOR_VOLTS] != volts)
+      {
+        request[ELEVATOR_POSITION] = Double.NaN;
+        request[ELEVATOR_VOLTS] = volts;
+        elevatorRequests.write(request);
+      }
+    }
+
+    @Override
+    public void setPosition(double inches)
+    {
+      if (request[ELEVATOR_POSITION] != inches)
+      {
+        request[ELEVATOR_POSITION] = inches;
+        elevatorRequests.write(request);
+      }
+    }
+
+    @Override
+    public void resetPosition()
+    {
+      request[ELEVATOR_RESETS]++;
+      elevatorRequests.write(request);
+    }
+  }
+
+  /**
+   * {@link PivotIO} handed to the {@link PivotSubsystem}.
+   */
+  private final class PivotView implements PivotIO
+  {
+
+    private final double[] request = new double[PIVOT_REQUEST_SIZE];
+    private final double[] latest  = new double[STATUS_SIZE];
+
+    private PivotView()
+    {
+      request[PIVOT_POSITION] = Double.NaN;
+    }
+
+    @Override
+    public void updateInputs(PivotIOInputs inputs)
+    {
+      pivotStatus.read(latest);
+      inputs.positionRotations = latest[POSITION];
+      inputs.velocityRPM = latest[VELOCITY];
+      inputs.appliedOutput = latest[OUTPUT];
+      inputs.currentAmps = latest[CURRENT];
+      inputs.atGoal = isAtGoal(latest, request[PIVOT_POSITION]);
+    }
+
+    @Override
+    public void set(double speed)
+    {
+      if (!Double.isNaN(request[PIVOT_POSITION]) || request[PIVOT_SPEED] != speed)
+      {
+        request[PIVOT_POSITION] = Double.NaN;
+        request[PIVOT_SPEED] = speed;
+        pivotRequests.write(request);
+      }
+    }
+
+    @Override
+    public void setPosition(double rotations, double feedforwardVolts)
+    {
+      if (request[PIVOT_POSITION] != rotations || request[PIVOT_FEEDFORWARD] != feedforwardVolts)
+      {
+        request[PIVOT_POSITION] = rotations;
+        request[PIVOT_FEEDFORWARD] = feedforwardVolts;
+        pivotRequests.write(request);
+      }
+    }
+
+    @Override
+    public void resetPosition()
+    {
+      request[PIVOT_RESETS]++;
+      pivotRequests.write(request);
+    }
+  }
+}
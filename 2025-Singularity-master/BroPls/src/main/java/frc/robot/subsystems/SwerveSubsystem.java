@@ -6,6 +6,9 @@ package frc.robot.subsystems;
 
 import static edu.wpi.first.units.Units.Meter;
 
+import com.ctre.phoenix6.hardware.CANcoder;
+import com.ctre.phoenix6.hardware.Pigeon2;
+import com.ctre.phoenix6.hardware.TalonFX;
 import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.commands.PathPlannerAuto;
 import com.pathplanner.lib.commands.PathfindingCommand;
@@ -14,8 +17,6 @@ import com.pathplanner.lib.config.RobotConfig;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
-import com.pathplanner.lib.util.DriveFeedforwards;
-import com.pathplanner.lib.util.swerve.SwerveSetpoint;
 import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Pose2d;
@@ -26,6 +27,8 @@ import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.trajectory.Trajectory;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
@@ -33,25 +36,33 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.RobotModeTriggers;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Config;
 import frc.robot.Constants;
+import frc.robot.Constants.DrivebaseConstants;
+import frc.robot.commands.drivebase.SetpointGeneratorDrive;
 import frc.robot.subsystems.Vision.Cameras;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.MatchLog;
+import frc.robot.util.PathLibrary;
+import frc.robot.util.PathLibraryGoals;
+import frc.robot.util.RobotStorage;
+import frc.robot.util.StatusSignalRegistry;
+import frc.robot.util.TelemetryBudget;
 import java.io.File;
-import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
 import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
-import org.json.simple.parser.ParseException;
 import org.photonvision.targeting.PhotonPipelineResult;
 import swervelib.SwerveController;
 import swervelib.SwerveDrive;
 import swervelib.SwerveDriveTest;
+import swervelib.SwerveModule;
 import swervelib.math.SwerveMath;
 import swervelib.parser.SwerveControllerConfiguration;
 import swervelib.parser.SwerveDriveConfiguration;
 import swervelib.parser.SwerveParser;
 import swervelib.telemetry.SwerveDriveTelemetry;
-import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
 
 public class SwerveSubsystem extends SubsystemBase
 {
@@ -64,10 +75,49 @@ public class SwerveSubsystem extends SubsystemBase
    * Enable vision odometry updates while driving.
    */
   private final boolean     visionDriveTest = false;
+  /**
+   * Record every vision frame for desktop replay, only used when {@link #visionDriveTest} is enabled.
+   */
+  private final boolean     visionRecording = false;
   /**
    * PhotonVision class to keep an accurate odometry.
    */
   private       Vision      vision;
+  /**
+   * Timestamped history of odometry poses, used to look up where the robot was when a vision frame was captured.
+   */
+  private final PoseHistory    poseHistory = new PoseHistory(DrivebaseConstants.POSE_HISTORY_SIZE);
+  /**
+   * High rate odometry loop which replaces the {@link SwerveDrive} odometry thread.
+   */
+  private final OdometryThread odometryThread;
+  /**
+   * Drive path that allocates nothing before YAGSL, used by the teleop drive commands.
+   */
+  private final PrimitiveSwerveDrive primitiveDrive;
+  /**
+   * Drivetrain model parsed once from the PathPlanner GUI settings, null if the settings could not be loaded.
+   */
+  private final DrivetrainModel      drivetrainModel;
+  /**
+   * Offline precomputed paths used by {@link #driveToPose(Pose2d)}, null if the library is not deployed.
+   */
+  private final PathLibrary          pathLibrary;
+  /**
+   * Goals the path library is generated for, see {@link PathLibraryGoals}.
+   */
+  private final List<Pose2d>         pathGoals   = PathLibraryGoals.create(Vision.fieldLayout);
+  /**
+   * Match log channels for the estimated pose.
+   */
+  private final MatchLog.DoubleChannel poseXLog      = MatchLog.getInstance().addDouble("Drive/Pose X");
+  private final MatchLog.DoubleChannel poseYLog      = MatchLog.getInstance().addDouble("Drive/Pose Y");
+  private final MatchLog.DoubleChannel poseThetaLog  = MatchLog.getInstance().addDouble("Drive/Pose Theta");
+  /**
+   * Loop time of {@link #periodic()} and of the vision update within it.
+   */
+  private final LoopProfiler.Section   profile       = LoopProfiler.getInstance().addSection("Swerve");
+  private final LoopProfiler.Section   visionProfile = LoopProfiler.getInstance().addSection("Vision");
 
   /**
    * Initialize {@link SwerveDrive} with the directory provided.
@@ -84,7 +134,8 @@ public class SwerveSubsystem extends SubsystemBase
                                                                       Meter.of(4)),
                                                     Rotation2d.fromDegrees(180));
     // Configure the Telemetry before creating the SwerveDrive to avoid unnecessary objects being created.
-    SwerveDriveTelemetry.verbosity = TelemetryVerbosity.HIGH;
+    // Created at the most detailed tier, TelemetryBudget steps it down at runtime when loops run long.
+    SwerveDriveTelemetry.verbosity = TelemetryBudget.TIERS[0];
     try
     {
       swerveDrive = new SwerveParser(directory).createSwerveDrive(Constants.MAX_SPEED, startingPose);
@@ -98,15 +149,22 @@ public class SwerveSubsystem extends SubsystemBase
     swerveDrive.setCosineCompensator(false);//!SwerveDriveTelemetry.isSimulation); // Disables cosine compensation for simulations since it causes discrepancies not seen in real life.
     swerveDrive.setAngularVelocityCompensation(true,
                                                true,
-                                               0.1); //Correct for skew that gets worse as angular velocity increases. Start with a coefficient of 0.1.
+                                               DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT); //Correct for skew that gets worse as angular velocity increases. Start with a coefficient of 0.1.
     swerveDrive.setModuleEncoderAutoSynchronize(false,
                                                 1); // Enable if you want to resynchronize your absolute encoders and motor encoders periodically when they are not moving.
     // swerveDrive.pushOffsetsToEncoders(); // Set the absolute encoder to be used over the internal encoder and push the offsets onto it. Throws warning if not possible
+    odometryThread = createOdometryThread();
+    registerStatusSignals();
+    primitiveDrive = new PrimitiveSwerveDrive(swerveDrive,
+                                              odometryThread::getYawRate,
+                                              DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT,
+                                              TimedRobot.kDefaultPeriod);
+    drivetrainModel = loadDrivetrainModel();
+    pathLibrary = loadPathLibrary();
     if (visionDriveTest)
     {
+      // Vision is fused at frame capture time against the odometry thread's pose history.
       setupPhotonVision();
-      // Stop the odometry thread if we are using vision that way we can synchronize updates better.
-      swerveDrive.stopOdometryThread();
     }
     setupPathPlanner();
     RobotModeTriggers.autonomous().onTrue(Commands.runOnce(this::zeroGyro));
@@ -125,6 +183,101 @@ public class SwerveSubsystem extends SubsystemBase
                                   Constants.MAX_SPEED,
                                   new Pose2d(new Translation2d(Meter.of(2), Meter.of(0)),
                                              Rotation2d.fromDegrees(0)));
+    odometryThread = createOdometryThread();
+    registerStatusSignals();
+    primitiveDrive = new PrimitiveSwerveDrive(swerveDrive,
+                                              odometryThread::getYawRate,
+                                              DrivebaseConstants.ANGULAR_VELOCITY_COEFFICIENT,
+                                              TimedRobot.kDefaultPeriod);
+    drivetrainModel = null;
+    pathLibrary = null;
+  }
+
+  /**
+   * Parse the PathPlanner GUI settings once for PathPlanner and the setpoint generator.
+   *
+   * @return {@link DrivetrainModel}, or null if the settings could not be loaded.
+   */
+  private DrivetrainModel loadDrivetrainModel()
+  {
+    try
+    {
+      return DrivetrainModel.fromGUISettings(swerveDrive.getMaximumChassisAngularVelocity());
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Failed to load PathPlanner GUI settings: " + e, e.getStackTrace());
+      return null;
+    }
+  }
+
+  /**
+   * Create and start the odometry thread, replacing the one inside {@link SwerveDrive}.
+   *
+   * @return Running {@link OdometryThread}.
+   */
+  private OdometryThread createOdometryThread()
+  {
+    OdometryThread thread = new OdometryThread(swerveDrive,
+                                               poseHistory,
+                                               SwerveDriveTelemetry.isSimulation
+                                               ? DrivebaseConstants.SIM_ODOMETRY_PERIOD
+                                               : DrivebaseConstants.ODOMETRY_PERIOD);
+    thread.start();
+    return thread;
+  }
+
+  /**
+   * Declare the rates of the Phoenix signals YAGSL reads. The odometry thread refreshes them, so they are left out of
+   * the main loop batch and its signal age logging, and their undeclared frames stay on for YAGSL's telemetry.
+   */
+  private void registerStatusSignals()
+  {
+    double               odometryRate = 1.0 / (SwerveDriveTelemetry.isSimulation
+                                               ? DrivebaseConstants.SIM_ODOMETRY_PERIOD
+                                               : DrivebaseConstants.ODOMETRY_PERIOD);
+    StatusSignalRegistry registry     = StatusSignalRegistry.getInstance();
+    for (SwerveModule module : swerveDrive.getModules())
+    {
+      String name = "Swerve/" + module.configuration.name;
+      if (module.getDriveMotor().getMotor() instanceof TalonFX drive)
+      {
+        registry.addDevice(name + "/Drive", drive, false)
+                .add(odometryRate, drive.getPosition(), drive.getVelocity());
+      }
+      if (module.getAbsoluteEncoder().getAbsoluteEncoder() instanceof CANcoder encoder)
+      {
+        registry.addDevice(name + "/Encoder", encoder, false)
+                .add(50, encoder.getAbsolutePosition());
+      }
+    }
+    if (swerveDrive.getGyro().getIMU() instanceof Pigeon2 pigeon)
+    {
+      registry.addDevice("Swerve/Pigeon", pigeon, false)
+              .add(odometryRate, pigeon.getYaw(), pigeon.getAngularVelocityZWorld());
+    }
+  }
+
+  /**
+   * Memory-map the precomputed path library from the deploy directory.
+   *
+   * @return {@link PathLibrary}, or null if it is missing or invalid.
+   */
+  private PathLibrary loadPathLibrary()
+  {
+    File file = new File(Filesystem.getDeployDirectory(), PathLibrary.FILE_NAME);
+    if (!file.exists())
+    {
+      DriverStation.reportWarning("No path library deployed, driveToPose will pathfind live", false);
+      return null;
+    }
+    try
+    {
+      return PathLibrary.load(file);
+    } catch (Exception e)
+    {
+      DriverStation.reportError("Failed to load path library: " + e, e.getStackTrace());
+      return null;
+    }
   }
 
   /**
@@ -132,18 +285,30 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void setupPhotonVision()
   {
-    vision = new Vision(swerveDrive::getPose, swerveDrive.field);
+    vision = new Vision(this::getPose, swerveDrive.field);
+    if (visionRecording)
+    {
+      // Recordings go to the USB drive on the robot so they survive redeploys.
+      vision.startRecording(RobotStorage.directory("vision"), poseHistory);
+    }
   }
 
   @Override
   public void periodic()
   {
-    // When vision is enabled we must manually update odometry in SwerveDrive
+    profile.start();
+    // Odometry runs on its own thread, vision measurements are applied at their capture timestamps.
     if (visionDriveTest)
     {
-      swerveDrive.updateOdometry();
-      vision.updatePoseEstimation(swerveDrive);
+      visionProfile.start();
+      vision.updatePoseEstimation(swerveDrive, odometryThread);
+      visionProfile.stop();
     }
+    Pose2d pose = getPose();
+    poseXLog.append(pose.getX());
+    poseYLog.append(pose.getY());
+    poseThetaLog.append(pose.getRotation().getRadians());
+    profile.stop();
   }
 
   @Override
@@ -156,12 +321,14 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void setupPathPlanner()
   {
-    // Load the RobotConfig from the GUI settings. You should probably
-    // store this in your Constants file
-    RobotConfig config;
     try
     {
-      config = RobotConfig.fromGUISettings();
+      // The RobotConfig is parsed from the GUI settings once at boot, see DrivetrainModel.
+      if (drivetrainModel == null)
+      {
+        throw new IllegalStateException("PathPlanner GUI settings unavailable, AutoBuilder not configured");
+      }
+      RobotConfig config = drivetrainModel.robotConfig;
 
       final boolean enableFeedforward = true;
       // Configure AutoBuilder last
@@ -259,7 +426,9 @@ public class SwerveSubsystem extends SubsystemBase
   }
 
   /**
-   * Use PathPlanner Path finding to go to a point on the field.
+   * Go to a point on the field. Uses a precomputed path from the {@link PathLibrary} when one exists for the current
+   * start region and goal, otherwise falls back to PathPlanner Path finding. The choice is made when the command is
+   * scheduled.
    *
    * @param pose Target {@link Pose2d} to go to.
    * @return PathFinding command
@@ -271,46 +440,34 @@ public class SwerveSubsystem extends SubsystemBase
         swerveDrive.getMaximumChassisVelocity(), 4.0,
         swerveDrive.getMaximumChassisAngularVelocity(), Units.degreesToRadians(720));
 
+    return Commands.defer(() -> {
+      if (pathLibrary != null)
+      {
+        Optional<PathPlannerPath> path = pathLibrary.getPath(getPose(), pose, constraints);
+        if (path.isPresent())
+        {
+          return AutoBuilder.followPath(path.get());
+        }
+      }
 // Since AutoBuilder is configured, we can use it to build pathfinding commands
-    return AutoBuilder.pathfindToPose(
-        pose,
-        constraints,
-        edu.wpi.first.units.Units.MetersPerSecond.of(0) // Goal end velocity in meters/sec
-                                     );
+      return AutoBuilder.pathfindToPose(
+          pose,
+          constraints,
+          edu.wpi.first.units.Units.MetersPerSecond.of(0) // Goal end velocity in meters/sec
+                                       );
+    }, Set.of(this));
   }
 
   /**
-   * Drive with {@link SwerveSetpointGenerator} from 254, implemented by PathPlanner.
+   * Drive to the {@link PathLibraryGoals} goal nearest to where the robot is when the command starts, so the path comes
+   * from the precomputed library when it is deployed.
    *
-   * @param robotRelativeChassisSpeed Robot relative {@link ChassisSpeeds} to achieve.
-   * @return {@link Command} to run.
-   * @throws IOException    If the PathPlanner GUI settings is invalid
-   * @throws ParseException If PathPlanner GUI settings is nonexistent.
+   * @return PathFinding command
    */
-  private Command driveWithSetpointGenerator(Supplier<ChassisSpeeds> robotRelativeChassisSpeed)
-  throws IOException, ParseException
+  public Command driveToNearestGoal()
   {
-    SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator(RobotConfig.fromGUISettings(),
-                                                                            swerveDrive.getMaximumChassisAngularVelocity());
-    AtomicReference<SwerveSetpoint> prevSetpoint
-        = new AtomicReference<>(new SwerveSetpoint(swerveDrive.getRobotVelocity(),
-                                                   swerveDrive.getStates(),
-                                                   DriveFeedforwards.zeros(swerveDrive.getModules().length)));
-    AtomicReference<Double> previousTime = new AtomicReference<>();
-
-    return startRun(() -> previousTime.set(Timer.getFPGATimestamp()),
-                    () -> {
-                      double newTime = Timer.getFPGATimestamp();
-                      SwerveSetpoint newSetpoint = setpointGenerator.generateSetpoint(prevSetpoint.get(),
-                                                                                      robotRelativeChassisSpeed.get(),
-                                                                                      newTime - previousTime.get());
-                      swerveDrive.drive(newSetpoint.robotRelativeSpeeds(),
-                                        newSetpoint.moduleStates(),
-                                        newSetpoint.feedforwards().linearForces());
-                      prevSetpoint.set(newSetpoint);
-                      previousTime.set(newTime);
-
-                    });
+    return Commands.defer(() -> driveToPose(PathLibraryGoals.nearest(pathGoals, getPose().getTranslation())),
+                          Set.of(this));
   }
 
   /**
@@ -321,18 +478,25 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public Command driveWithSetpointGeneratorFieldRelative(Supplier<ChassisSpeeds> fieldRelativeSpeeds)
   {
-    try
+    if (drivetrainModel == null)
     {
-      return driveWithSetpointGenerator(() -> {
-        return ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds.get(), getHeading());
-
-      });
-    } catch (Exception e)
-    {
-      DriverStation.reportError(e.toString(), true);
+      DriverStation.reportError("PathPlanner GUI settings unavailable, setpoint generator disabled", false);
+      return Commands.none();
     }
-    return Commands.none();
+    return new SetpointGeneratorDrive(this,
+                                      drivetrainModel.setpointGenerator,
+                                      () -> ChassisSpeeds.fromFieldRelativeSpeeds(fieldRelativeSpeeds.get(),
+                                                                                  getHeading()));
+  }
 
+  /**
+   * Gets the drivetrain model shared by PathPlanner and the setpoint generator.
+   *
+   * @return {@link DrivetrainModel}, or null if the PathPlanner GUI settings could not be loaded.
+   */
+  public DrivetrainModel getDrivetrainModel()
+  {
+    return drivetrainModel;
   }
 
 
@@ -385,7 +549,7 @@ public class SwerveSubsystem extends SubsystemBase
   public Command driveToDistanceCommand(double distanceInMeters, double speedInMetersPerSecond)
   {
     return run(() -> drive(new ChassisSpeeds(speedInMetersPerSecond, 0, 0)))
-        .until(() -> swerveDrive.getPose().getTranslation().getDistance(new Translation2d(0, 0)) >
+        .until(() -> getPose().getTranslation().getDistance(new Translation2d(0, 0)) >
                      distanceInMeters);
   }
 
@@ -402,31 +566,34 @@ public class SwerveSubsystem extends SubsystemBase
   }
 
   /**
-   * Command to drive the robot using translative values and heading as angular velocity.
+   * Command to drive the robot using translative values and heading as angular velocity. Runs through
+   * {@link PrimitiveSwerveDrive}, so the only per-loop allocation is inside YAGSL's module state handling.
    *
-   * @param translationX     Translation in the X direction. Cubed for smoother controls.
-   * @param translationY     Translation in the Y direction. Cubed for smoother controls.
+   * @param translationX     Translation in the X direction.
+   * @param translationY     Translation in the Y direction.
    * @param angularRotationX Angular velocity of the robot to set. Cubed for smoother controls.
    * @return Drive command.
    */
   public Command driveCommand(DoubleSupplier translationX, DoubleSupplier translationY, DoubleSupplier angularRotationX)
   {
     return run(() -> {
+      double maxVelocity = swerveDrive.getMaximumChassisVelocity() * DrivebaseConstants.TRANSLATION_SCALE;
+      double rotation    = angularRotationX.getAsDouble();
       // Make the robot move
-      swerveDrive.drive(SwerveMath.scaleTranslation(new Translation2d(
-                            translationX.getAsDouble() * swerveDrive.getMaximumChassisVelocity(),
-                            translationY.getAsDouble() * swerveDrive.getMaximumChassisVelocity()), 0.8),
-                        Math.pow(angularRotationX.getAsDouble(), 3) * swerveDrive.getMaximumChassisAngularVelocity(),
-                        true,
-                        false);
+      primitiveDrive.driveFieldOriented(translationX.getAsDouble() * maxVelocity,
+                                        translationY.getAsDouble() * maxVelocity,
+                                        rotation * rotation * rotation *
+                                        swerveDrive.getMaximumChassisAngularVelocity(),
+                                        getPose().getRotation().getRadians());
     });
   }
 
   /**
-   * Command to drive the robot using translative values and heading as a setpoint.
+   * Command to drive the robot using translative values and heading as a setpoint. Runs through
+   * {@link PrimitiveSwerveDrive}, so the only per-loop allocation is inside YAGSL's module state handling.
    *
-   * @param translationX Translation in the X direction. Cubed for smoother controls.
-   * @param translationY Translation in the Y direction. Cubed for smoother controls.
+   * @param translationX Translation in the X direction.
+   * @param translationY Translation in the Y direction.
    * @param headingX     Heading X to calculate angle of the joystick.
    * @param headingY     Heading Y to calculate angle of the joystick.
    * @return Drive command.
@@ -436,16 +603,23 @@ public class SwerveSubsystem extends SubsystemBase
   {
     // swerveDrive.setHeadingCorrection(true); // Normally you would want heading correction for this kind of control.
     return run(() -> {
-
-      Translation2d scaledInputs = SwerveMath.scaleTranslation(new Translation2d(translationX.getAsDouble(),
-                                                                                 translationY.getAsDouble()), 0.8);
+      SwerveController controller  = swerveDrive.swerveController;
+      double           maxVelocity = swerveDrive.getMaximumChassisVelocity() * DrivebaseConstants.TRANSLATION_SCALE;
+      double           heading     = getPose().getRotation().getRadians();
+      double           x           = headingX.getAsDouble();
+      double           y           = headingY.getAsDouble();
+
+      // Hold the last heading when the stick is released.
+      if (!controller.withinHypotDeadband(x, y))
+      {
+        controller.lastAngleScalar = Math.atan2(x, y);
+      }
 
       // Make the robot move
-      driveFieldOriented(swerveDrive.swerveController.getTargetSpeeds(scaledInputs.getX(), scaledInputs.getY(),
-                                                                      headingX.getAsDouble(),
-                                                                      headingY.getAsDouble(),
-                                                                      swerveDrive.getOdometryHeading().getRadians(),
-                                                                      swerveDrive.getMaximumChassisVelocity()));
+      primitiveDrive.driveFieldOriented(translationX.getAsDouble() * maxVelocity,
+                                        translationY.getAsDouble() * maxVelocity,
+                                        controller.headingCalculate(heading, controller.lastAngleScalar),
+                                        heading);
     });
   }
 
@@ -465,9 +639,10 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void drive(Translation2d translation, double rotation, boolean fieldRelative)
   {
-    swerveDrive.drive(translation,
+    // Rotate by the fused heading ourselves, YAGSL would use its odometry heading which has no vision in it.
+    swerveDrive.drive(fieldRelative ? translation.rotateBy(getHeading().unaryMinus()) : translation,
                       rotation,
-                      fieldRelative,
+                      false,
                       false); // Open loop is disabled since it shouldn't be used most of the time.
   }
 
@@ -478,7 +653,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void driveFieldOriented(ChassisSpeeds velocity)
   {
-    swerveDrive.driveFieldOriented(velocity);
+    swerveDrive.drive(ChassisSpeeds.fromFieldRelativeSpeeds(velocity, getHeading()));
   }
 
   /**
@@ -489,7 +664,7 @@ public class SwerveSubsystem extends SubsystemBase
   public Command driveFieldOriented(Supplier<ChassisSpeeds> velocity)
   {
     return run(() -> {
-      swerveDrive.driveFieldOriented(velocity.get());
+      driveFieldOriented(velocity.get());
     });
   }
 
@@ -523,17 +698,28 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void resetOdometry(Pose2d initialHolonomicPose)
   {
-    swerveDrive.resetOdometry(initialHolonomicPose);
+    odometryThread.resetPose(initialHolonomicPose);
   }
 
   /**
-   * Gets the current pose (position and rotation) of the robot, as reported by odometry.
+   * Gets the current pose (position and rotation) of the robot, as reported by odometry. Never blocks on the odometry
+   * thread.
    *
    * @return The robot's pose
    */
   public Pose2d getPose()
   {
-    return swerveDrive.getPose();
+    return odometryThread.getPose();
+  }
+
+  /**
+   * Gets the timestamped history of wheel odometry poses, without vision corrections. Cleared on every pose reset.
+   *
+   * @return {@link PoseHistory} written by the odometry thread.
+   */
+  public PoseHistory getPoseHistory()
+  {
+    return poseHistory;
   }
 
   /**
@@ -561,7 +747,7 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void zeroGyro()
   {
-    swerveDrive.zeroGyro();
+    odometryThread.zeroGyro();
   }
 
   /**
@@ -718,7 +904,8 @@ public class SwerveSubsystem extends SubsystemBase
    */
   public void addFakeVisionReading()
   {
-    swerveDrive.addVisionMeasurement(new Pose2d(3, 3, Rotation2d.fromDegrees(65)), Timer.getFPGATimestamp());
+    // Same std devs SwerveDrivePoseEstimator uses when none are given.
+    odometryThread.addVisionMeasurement(Timer.getFPGATimestamp(), 3, 3, Math.toRadians(65), 0.9, 0.9, 0.9);
   }
 
   /**
@@ -1,7 +1,6 @@
 package frc.robot.subsystems;
 
 import static edu.wpi.first.units.Units.Microseconds;
-import static edu.wpi.first.units.Units.Milliseconds;
 import static edu.wpi.first.units.Units.Seconds;
 
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
@@ -21,10 +20,17 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.NetworkTablesJNI;
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import frc.robot.Robot;
+import frc.robot.util.MatchLog;
 import java.awt.Desktop;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Supplier;
@@ -54,6 +60,18 @@ public class Vision
    */
   public static final AprilTagFieldLayout fieldLayout                     = AprilTagFieldLayout.loadField(
       AprilTagFields.k2025ReefscapeAndyMark);
+  /**
+   * Tag poses from {@link #fieldLayout} indexed by fiducial ID.
+   */
+  public static final AprilTagTable       tagTable                        = new AprilTagTable(fieldLayout);
+  /**
+   * Period of each camera worker thread in seconds.
+   */
+  private static final double             WORKER_PERIOD                   = 0.005;
+  /**
+   * Number of estimates each camera can queue before new ones are dropped.
+   */
+  private static final int                ESTIMATE_QUEUE_SIZE             = 32;
   /**
    * Ambiguity defined as a value between (0,1). Used in {@link Vision#filterPose}.
    */
@@ -74,6 +92,10 @@ public class Vision
    * Field from {@link swervelib.SwerveDrive#field}
    */
   private             Field2d             field2d;
+  /**
+   * Estimate polled from a camera queue, reused every loop.
+   */
+  private final       double[]            estimate                        = new double[VisionEstimateQueue.SAMPLE_SIZE];
 
 
   /**
@@ -99,6 +121,11 @@ public class Vision
 
       openSimCameraViews();
     }
+
+    for (Cameras c : Cameras.values())
+    {
+      c.startWorker();
+    }
   }
 
   /**
@@ -111,10 +138,10 @@ public class Vision
    */
   public static Pose2d getAprilTagPose(int aprilTag, Transform2d robotOffset)
   {
-    Optional<Pose3d> aprilTagPose3d = fieldLayout.getTagPose(aprilTag);
-    if (aprilTagPose3d.isPresent())
+    Pose2d aprilTagPose = tagTable.getPose2d(aprilTag);
+    if (aprilTagPose != null)
     {
-      return aprilTagPose3d.get().toPose2d().transformBy(robotOffset);
+      return aprilTagPose.transformBy(robotOffset);
     } else
     {
       throw new RuntimeException("Cannot get AprilTag " + aprilTag + " from field " + fieldLayout.toString());
@@ -123,11 +150,12 @@ public class Vision
   }
 
   /**
-   * Update the pose estimation inside of {@link SwerveDrive} with all of the given poses.
+   * Fuse every new camera estimate into the odometry.
    *
-   * @param swerveDrive {@link SwerveDrive} instance.
+   * @param swerveDrive {@link SwerveDrive} instance, used for the simulated robot pose.
+   * @param odometry    {@link OdometryThread} that fuses the estimates.
    */
-  public void updatePoseEstimation(SwerveDrive swerveDrive)
+  public void updatePoseEstimation(SwerveDrive swerveDrive, OdometryThread odometry)
   {
     if (SwerveDriveTelemetry.isSimulation && swerveDrive.getSimulationDriveTrainPose().isPresent())
     {
@@ -140,22 +168,35 @@ public class Vision
        */
       visionSim.update(swerveDrive.getSimulationDriveTrainPose().get());
     }
+    // Each camera worker has already fetched results, estimated poses and computed std devs off the main thread.
     for (Cameras camera : Cameras.values())
     {
-      Optional<EstimatedRobotPose> poseEst = getEstimatedGlobalPose(camera);
-      if (poseEst.isPresent())
+      // Alert is not thread safe, so the worker only flags the camera and the main loop raises the alert.
+      camera.latencyAlert.set(camera.health.isDegraded());
+      while (camera.estimates.poll(estimate))
       {
-        var pose = poseEst.get();
-        swerveDrive.addVisionMeasurement(pose.estimatedPose.toPose2d(),
-                                         pose.timestampSeconds,
-                                         camera.curStdDevs);
+        // Fused against the odometry history at the capture time.
+        odometry.addVisionMeasurement(estimate[VisionEstimateQueue.TIMESTAMP],
+                                      estimate[VisionEstimateQueue.X],
+                                      estimate[VisionEstimateQueue.Y],
+                                      estimate[VisionEstimateQueue.THETA],
+                                      estimate[VisionEstimateQueue.STD_DEV_X],
+                                      estimate[VisionEstimateQueue.STD_DEV_Y],
+                                      estimate[VisionEstimateQueue.STD_DEV_THETA]);
+        if (Robot.isSimulation())
+        {
+          visionSim.getDebugField().getObject("VisionEstimation")
+                   .setPose(new Pose2d(estimate[VisionEstimateQueue.X],
+                                       estimate[VisionEstimateQueue.Y],
+                                       new Rotation2d(estimate[VisionEstimateQueue.THETA])));
+        }
       }
     }
 
   }
 
   /**
-   * Generates the estimated robot pose. Returns empty if:
+   * Gets the latest estimated robot pose from the camera worker. Returns empty if:
    * <ul>
    *  <li> No Pose Estimates could be generated</li>
    * <li> The generated pose estimate was considered not accurate</li>
@@ -238,8 +279,12 @@ public class Vision
    */
   public double getDistanceFromAprilTag(int id)
   {
-    Optional<Pose3d> tag = fieldLayout.getTagPose(id);
-    return tag.map(pose3d -> PhotonUtils.getDistanceToPose(currentPose.get(), pose3d.toPose2d())).orElse(-1.0);
+    if (!tagTable.contains(id))
+    {
+      return -1.0;
+    }
+    Pose2d pose = currentPose.get();
+    return Math.hypot(tagTable.getX(id) - pose.getX(), tagTable.getY(id) - pose.getY());
   }
 
   /**
@@ -269,6 +314,45 @@ public class Vision
 
   }
 
+  /**
+   * Record every pipeline result from every camera, with the odometry pose at its capture time, for replay with
+   * {@link frc.robot.util.VisionReplay}. Each camera writes its own file named after the camera and start time.
+   *
+   * @param directory Directory to write recordings to, created if missing.
+   * @param history   Odometry history sampled at each frame's capture time.
+   */
+  public void startRecording(File directory, PoseHistory history)
+  {
+    if (!directory.isDirectory() && !directory.mkdirs())
+    {
+      DriverStation.reportWarning("Cannot create vision recording directory " + directory, false);
+      return;
+    }
+    String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    for (Cameras c : Cameras.values())
+    {
+      File file = new File(directory, c.camera.getName() + "-" + stamp + VisionRecorder.FILE_EXTENSION);
+      try
+      {
+        c.startRecording(file, history);
+      } catch (IOException e)
+      {
+        DriverStation.reportError("Failed to start vision recording " + file + ": " + e, e.getStackTrace());
+      }
+    }
+  }
+
+  /**
+   * Stop recording on every camera and flush the files.
+   */
+  public void stopRecording()
+  {
+    for (Cameras c : Cameras.values())
+    {
+      c.stopRecording();
+    }
+  }
+
   /**
    * Vision simulation.
    *
@@ -307,9 +391,10 @@ public class Vision
     List<PhotonTrackedTarget> targets = new ArrayList<PhotonTrackedTarget>();
     for (Cameras c : Cameras.values())
     {
-      if (!c.resultsList.isEmpty())
+      List<PhotonPipelineResult> resultsList = c.resultsList;
+      if (!resultsList.isEmpty())
       {
-        PhotonPipelineResult latest = c.resultsList.get(0);
+        PhotonPipelineResult latest = resultsList.get(0);
         if (latest.hasTargets())
         {
           targets.addAll(latest.targets);
@@ -320,9 +405,9 @@ public class Vision
     List<Pose2d> poses = new ArrayList<>();
     for (PhotonTrackedTarget target : targets)
     {
-      if (fieldLayout.getTagPose(target.getFiducialId()).isPresent())
+      Pose2d targetPose = tagTable.getPose2d(target.getFiducialId());
+      if (targetPose != null)
       {
-        Pose2d targetPose = fieldLayout.getTagPose(target.getFiducialId()).get().toPose2d();
         poses.add(targetPose);
       }
     }
@@ -371,39 +456,52 @@ public class Vision
      * Camera instance for comms.
      */
     public final  PhotonCamera                 camera;
+    /**
+     * Latency, frame rate and dropped frame statistics, updated by the worker thread.
+     */
+    public final  CameraHealth                 health;
+    /**
+     * Pose estimation and standard deviation heuristic, shared with {@link frc.robot.util.VisionReplay}.
+     */
+    public final  VisionEstimator              estimator;
     /**
      * Pose estimator for camera.
      */
     public final  PhotonPoseEstimator          poseEstimator;
     /**
-     * Standard Deviation for single tag readings for pose estimation.
+     * Current standard deviations used. Preallocated and updated in place by the worker thread.
+     */
+    public final  Matrix<N3, N1>               curStdDevs;
+    /**
+     * Estimated robot pose. Written by the worker thread.
      */
-    private final Matrix<N3, N1>               singleTagStdDevs;
+    public volatile Optional<EstimatedRobotPose> estimatedRobotPose = Optional.empty();
     /**
-     * Standard deviation for multi-tag readings for pose estimation.
+     * Estimates produced by the worker thread, drained by {@link Vision#updatePoseEstimation}.
      */
-    private final Matrix<N3, N1>               multiTagStdDevs;
+    public final  VisionEstimateQueue          estimates          = new VisionEstimateQueue(ESTIMATE_QUEUE_SIZE);
     /**
-     * Transform of the camera rotation and translation relative to the center of the robot
+     * Whether each result with targets produced an estimate, read by the log analyzer.
      */
-    private final Transform3d                  robotToCamTransform;
+    private final MatchLog.BooleanChannel      acceptedLog;
     /**
-     * Current standard deviations used.
+     * Worker thread that fetches results and runs pose estimation for this camera.
      */
-    public        Matrix<N3, N1>               curStdDevs;
+    private       Notifier                     worker;
     /**
-     * Estimated robot pose.
+     * Recorder for every result the worker fetches, null when not recording.
      */
-    public Optional<EstimatedRobotPose> estimatedRobotPose = Optional.empty();
+    private volatile VisionRecorder            recorder;
 
     /**
      * Simulated camera instance which only exists during simulations.
      */
     public        PhotonCameraSim              cameraSim;
     /**
-     * Results list to be updated periodically and cached to avoid unnecessary queries.
+     * Results list to be updated periodically and cached to avoid unnecessary queries. Replaced, never modified, by the
+     * worker thread.
      */
-    public        List<PhotonPipelineResult>   resultsList       = new ArrayList<>();
+    public volatile List<PhotonPipelineResult> resultsList       = new ArrayList<>();
     /**
      * Last read from the camera timestamp to prevent lag due to slow data fetches.
      */
@@ -425,17 +523,18 @@ public class Vision
       latencyAlert = new Alert("'" + name + "' Camera is experiencing high latency.", AlertType.kWarning);
 
       camera = new PhotonCamera(name);
+      health = new CameraHealth(name);
+      acceptedLog = MatchLog.getInstance().addBoolean("Vision/" + name + "/Accepted");
 
       // https://docs.wpilib.org/en/stable/docs/software/basic-programming/coordinate-system.html
-      robotToCamTransform = new Transform3d(robotToCamTranslation, robotToCamRotation);
-
-      poseEstimator = new PhotonPoseEstimator(Vision.fieldLayout,
-                                              PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-                                              robotToCamTransform);
-      poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
-
-      this.singleTagStdDevs = singleTagStdDevs;
-      this.multiTagStdDevs = multiTagStdDevsMatrix;
+      estimator = new VisionEstimator(Vision.fieldLayout,
+                                      Vision.tagTable,
+                                      new Transform3d(robotToCamTranslation, robotToCamRotation),
+                                      PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
+                                      singleTagStdDevs.getData(),
+                                      multiTagStdDevsMatrix.getData());
+      poseEstimator = estimator.getPoseEstimator();
+      curStdDevs = estimator.curStdDevs;
 
       if (Robot.isSimulation())
       {
@@ -464,7 +563,20 @@ public class Vision
     {
       if (Robot.isSimulation())
       {
-        systemSim.addCamera(cameraSim, robotToCamTransform);
+        systemSim.addCamera(cameraSim, estimator.getRobotToCamTransform());
+      }
+    }
+
+    /**
+     * Start the worker thread which fetches results, estimates poses and computes standard deviations for this camera.
+     */
+    public void startWorker()
+    {
+      if (worker == null)
+      {
+        worker = new Notifier(this::updateUnreadResults);
+        worker.setName(camera.getName() + " vision");
+        worker.startPeriodic(WORKER_PERIOD);
       }
     }
 
@@ -476,6 +588,7 @@ public class Vision
      */
     public Optional<PhotonPipelineResult> getBestResult()
     {
+      List<PhotonPipelineResult> resultsList = this.resultsList;
       if (resultsList.isEmpty())
       {
         return Optional.empty();
@@ -503,29 +616,29 @@ public class Vision
      */
     public Optional<PhotonPipelineResult> getLatestResult()
     {
+      List<PhotonPipelineResult> resultsList = this.resultsList;
       return resultsList.isEmpty() ? Optional.empty() : Optional.of(resultsList.get(0));
     }
 
     /**
-     * Get the estimated robot pose. Updates the current robot pose estimation, standard deviations, and flushes the
-     * cache of results.
+     * Get the latest estimated robot pose computed by the worker thread.
      *
      * @return Estimated pose.
      */
     public Optional<EstimatedRobotPose> getEstimatedGlobalPose()
     {
-      updateUnreadResults();
       return estimatedRobotPose;
     }
 
     /**
-     * Update the latest results, cached with a maximum refresh rate of 1req/15ms. Sorts the list by timestamp.
+     * Update the latest results, cached with a maximum refresh rate of half the measured frame interval, at most 15 ms.
+     * Sorts the list by timestamp. Runs on the worker thread.
      */
     private void updateUnreadResults()
     {
       double mostRecentTimestamp = resultsList.isEmpty() ? 0.0 : resultsList.get(0).getTimestampSeconds();
       double currentTimestamp    = Microseconds.of(NetworkTablesJNI.now()).in(Seconds);
-      double debounceTime        = Milliseconds.of(15).in(Seconds);
+      double debounceTime        = health.getDebounceSeconds();
       for (PhotonPipelineResult result : resultsList)
       {
         mostRecentTimestamp = Math.max(mostRecentTimestamp, result.getTimestampSeconds());
@@ -533,100 +646,103 @@ public class Vision
       if ((resultsList.isEmpty() || (currentTimestamp - mostRecentTimestamp >= debounceTime)) &&
           (currentTimestamp - lastReadTimestamp) >= debounceTime)
       {
-        resultsList = Robot.isReal() ? camera.getAllUnreadResults() : cameraSim.getCamera().getAllUnreadResults();
+        List<PhotonPipelineResult> unreadResults = Robot.isReal() ? camera.getAllUnreadResults()
+                                                                  : cameraSim.getCamera().getAllUnreadResults();
         lastReadTimestamp = currentTimestamp;
-        resultsList.sort((PhotonPipelineResult a, PhotonPipelineResult b) -> {
+        unreadResults.sort((PhotonPipelineResult a, PhotonPipelineResult b) -> {
           return a.getTimestampSeconds() >= b.getTimestampSeconds() ? 1 : -1;
         });
-        if (!resultsList.isEmpty())
+        resultsList = unreadResults;
+        for (int i = 0; i < unreadResults.size(); i++)
+        {
+          health.record(unreadResults.get(i), currentTimestamp);
+        }
+        if (!unreadResults.isEmpty())
         {
-          updateEstimatedGlobalPose();
+          record(unreadResults);
+          updateEstimatedGlobalPose(unreadResults);
         }
       }
+      health.update(currentTimestamp);
     }
 
     /**
-     * The latest estimated robot pose on the field from vision data. This may be empty. This should only be called once
-     * per loop.
-     *
-     * <p>Also includes updates for the standard deviations, which can (optionally) be retrieved with
-     * {@link Cameras#updateEstimationStdDevs}
+     * Run pose estimation on every new result and queue each estimate with its standard deviations for the main loop.
+     * The standard deviations are scaled by {@link CameraHealth#getTrustScale()} so slow or lossy frames count less.
      *
-     * @return An {@link EstimatedRobotPose} with an estimated pose, estimate timestamp, and targets used for
-     * estimation.
+     * @param results New results sorted oldest first.
      */
-    private void updateEstimatedGlobalPose()
+    private void updateEstimatedGlobalPose(List<PhotonPipelineResult> results)
     {
       Optional<EstimatedRobotPose> visionEst = Optional.empty();
-      for (var change : resultsList)
+      double                       trust     = health.getTrustScale();
+      for (var change : results)
       {
-        visionEst = poseEstimator.update(change);
-        updateEstimationStdDevs(visionEst, change.getTargets());
+        visionEst = estimator.update(change);
+        if (change.hasTargets())
+        {
+          acceptedLog.append(visionEst.isPresent());
+        }
+        if (visionEst.isPresent())
+        {
+          Pose3d pose = visionEst.get().estimatedPose;
+          estimates.offer(visionEst.get().timestampSeconds,
+                          pose.getX(),
+                          pose.getY(),
+                          pose.getRotation().getZ(),
+                          curStdDevs.get(0, 0) * trust,
+                          curStdDevs.get(1, 0) * trust,
+                          curStdDevs.get(2, 0) * trust);
+        }
       }
       estimatedRobotPose = visionEst;
     }
 
     /**
-     * Calculates new standard deviations This algorithm is a heuristic that creates dynamic standard deviations based
-     * on number of tags, estimation strategy, and distance from the tags.
+     * Start recording every result from this camera, replacing any recording in progress.
      *
-     * @param estimatedPose The estimated pose to guess standard deviations for.
-     * @param targets       All targets in this camera frame
+     * @param file    File to write.
+     * @param history Odometry history sampled at each frame's capture time.
+     * @throws IOException If the file could not be created.
      */
-    private void updateEstimationStdDevs(
-        Optional<EstimatedRobotPose> estimatedPose, List<PhotonTrackedTarget> targets)
+    public void startRecording(File file, PoseHistory history) throws IOException
     {
-      if (estimatedPose.isEmpty())
-      {
-        // No pose input. Default to single-tag std devs
-        curStdDevs = singleTagStdDevs;
+      stopRecording();
+      recorder = new VisionRecorder(file, camera.getName(), estimator, history);
+    }
 
-      } else
+    /**
+     * Stop recording and close the file, does nothing if not recording.
+     */
+    public void stopRecording()
+    {
+      VisionRecorder current = recorder;
+      recorder = null;
+      if (current != null)
       {
-        // Pose present. Start running Heuristic
-        var    estStdDevs = singleTagStdDevs;
-        int    numTags    = 0;
-        double avgDist    = 0;
-
-        // Precalculation - see how many tags we found, and calculate an average-distance metric
-        for (var tgt : targets)
-        {
-          var tagPose = poseEstimator.getFieldTags().getTagPose(tgt.getFiducialId());
-          if (tagPose.isEmpty())
-          {
-            continue;
-          }
-          numTags++;
-          avgDist +=
-              tagPose
-                  .get()
-                  .toPose2d()
-                  .getTranslation()
-                  .getDistance(estimatedPose.get().estimatedPose.toPose2d().getTranslation());
-        }
+        current.close();
+      }
+    }
 
-        if (numTags == 0)
-        {
-          // No tags visible. Default to single-tag std devs
-          curStdDevs = singleTagStdDevs;
-        } else
+    /**
+     * Write results to the recorder, if any. Runs on the worker thread.
+     *
+     * @param results New results sorted oldest first.
+     */
+    private void record(List<PhotonPipelineResult> results)
+    {
+      VisionRecorder current = recorder;
+      if (current == null)
+      {
+        return;
+      }
+      for (int i = 0; i < results.size(); i++)
+      {
+        if (!current.record(results.get(i)))
         {
-          // One or more tags visible, run the full heuristic.
-          avgDist /= numTags;
-          // Decrease std devs if multiple targets are visible
-          if (numTags > 1)
-          {
-            estStdDevs = multiTagStdDevs;
-          }
-          // Increase std devs based on (average) distance
-          if (numTags == 1 && avgDist > 4)
-          {
-            estStdDevs = VecBuilder.fill(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
-          } else
-          {
-            estStdDevs = estStdDevs.times(1 + (avgDist * avgDist / 30));
-          }
-          curStdDevs = estStdDevs;
+          DriverStation.reportWarning("Stopped recording '" + camera.getName() + "' camera after a write error", false);
+          stopRecording();
+          return;
         }
       }
     }
@@ -634,4 +750,4 @@ public class Vision
 
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package frc.robot.subsystems;
+
+/**
+ * Bounded single-producer single-consumer queue of timestamped vision pose estimates. Each camera worker thread offers
+ * estimates and the main loop polls them, neither side takes a lock or allocates. When the queue is full new estimates
+ * are dropped and counted.
+ */
+public class VisionEstimateQueue
+{
+
+  /**
+   * Number of doubles stored per estimate.
+   */
+  public static final int SAMPLE_SIZE = 7;
+  /**
+   * Offsets into a polled sample.
+   */
+  public static final int TIMESTAMP = 0, X = 1, Y = 2, THETA = 3, STD_DEV_X = 4, STD_DEV_Y = 5, STD_DEV_THETA = 6;
+
+  private final double[]   data;
+  private final int        mask;
+  /**
+   * Next sequence to read, only written by the consumer.
+   */
+  private volatile long    head    = 0;
+  /**
+   * Next sequence to write, only written by the producer.
+   */
+  private volatile long    tail    = 0;
+  /**
+   * Estimates dropped because the queue was full, only written by the producer.
+   */
+  private volatile long    dropped = 0;
+
+  /**
+   * Create a queue.
+   *
+   * @param capacity Minimum number of estimates to hold, rounded up to the next power of two.
+   */
+  public VisionEstimateQueue(int capacity)
+  {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    data = new double[size * SAMPLE_SIZE];
+    mask = size - 1;
+  }
+
+  /**
+   * Add an estimate. Must only be called from the producer thread.
+   *
+   * @return false if the queue was full and the estimate was dropped.
+   */
+  public boolean offer(double timestamp, double x, double y, double theta,
+                       double stdDevX, double stdDevY, double stdDevTheta)
+  {
+    long sequence = tail;
+    if (sequence - head > mask)
+    {
+      dropped = dropped + 1;
+      return false;
+    }
+    int offset = (int) (sequence & mask) * SAMPLE_SIZE;
+    data[offset + TIMESTAMP] = timestamp;
+    data[offset + X] = x;
+    data[offset + Y] = y;
+    data[offset + THETA] = theta;
+    data[offset + STD_DEV_X] = stdDevX;
+    data[offset + STD_DEV_Y] = stdDevY;
+    data[offset + STD_DEV_THETA] = stdDevTheta;
+    // Volatile store publishes the sample to the consumer.
+    tail = sequence + 1;
+    return true;
+  }
+
+  /**
+   * Remove the oldest estimate. Must only be called from the consumer thread.
+   *
+   * @param out Array of at least {@link #SAMPLE_SIZE} elements to receive the estimate.
+   * @return false if the queue was empty.
+   */
+  public boolean poll(double[] out)
+  {
+    long sequence = head;
+    if (sequence == tail)
+    {
+      return false;
+    }
+    System.arraycopy(data, (int) (sequence & mask) * SAMPLE_SIZE, out, 0, SAMPLE_SIZE);
+    // Volatile store hands the slot back to the producer.
+    head = sequence + 1;
+    return true;
+  }
+
+  /**
+   * Number of estimates waiting to be polled.
+   *
+   * @return Queue depth.
+   */
+  public int size()
+  {
+    return (int) (tail - head);
+  }
+
+  /**
+   * Number of estimates dropped because the consumer fell behind.
+   *
+   * @return Dropped estimate count.
+   */
+  public long getDroppedCount()
+  {
+    return dropped;
+  }
+}
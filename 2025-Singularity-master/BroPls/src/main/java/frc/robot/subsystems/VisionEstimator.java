@@ -0,0 +1,227 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import java.util.List;
+import java.util.Optional;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+/**
+ * Pose estimation and standard deviation heuristic for a single camera. Shared by {@link Vision.Cameras} on the robot
+ * and by {@link frc.robot.util.VisionReplay} on the desktop so recorded frames go through exactly the same code.
+ */
+public class VisionEstimator
+{
+
+  /**
+   * Pose estimator for camera.
+   */
+  private final PhotonPoseEstimator poseEstimator;
+  /**
+   * Tag positions used by the heuristic.
+   */
+  private final AprilTagTable       tagTable;
+  /**
+   * Transform of the camera rotation and translation relative to the center of the robot
+   */
+  private final Transform3d         robotToCamTransform;
+  /**
+   * Standard Deviation for single tag readings for pose estimation, as {x, y, theta}.
+   */
+  private final double[]            singleTagStdDevs;
+  /**
+   * Standard deviation for multi-tag readings for pose estimation, as {x, y, theta}.
+   */
+  private final double[]            multiTagStdDevs;
+  /**
+   * Current standard deviations used. Preallocated and updated in place by {@link #update}.
+   */
+  public final  Matrix<N3, N1>      curStdDevs       = VecBuilder.fill(0, 0, 0);
+  /**
+   * Single tag results whose best target is more ambiguous than this are ignored. 1 disables the filter.
+   */
+  private       double              maximumAmbiguity = 1;
+
+  /**
+   * Create the estimator.
+   *
+   * @param fieldLayout         April Tag Field Layout of the year.
+   * @param tagTable            Tag table built from the same layout.
+   * @param robotToCamTransform Camera transform relative to the center of the robot.
+   * @param strategy            Primary {@link PoseStrategy}, falls back to {@link PoseStrategy#LOWEST_AMBIGUITY}.
+   * @param singleTagStdDevs    Single AprilTag standard deviations {x, y, theta}.
+   * @param multiTagStdDevs     Multi AprilTag standard deviations {x, y, theta}.
+   */
+  public VisionEstimator(AprilTagFieldLayout fieldLayout, AprilTagTable tagTable, Transform3d robotToCamTransform,
+                         PoseStrategy strategy, double[] singleTagStdDevs, double[] multiTagStdDevs)
+  {
+    this.tagTable = tagTable;
+    this.robotToCamTransform = robotToCamTransform;
+    this.singleTagStdDevs = singleTagStdDevs.clone();
+    this.multiTagStdDevs = multiTagStdDevs.clone();
+
+    poseEstimator = new PhotonPoseEstimator(fieldLayout, strategy, robotToCamTransform);
+    poseEstimator.setMultiTagFallbackStrategy(PoseStrategy.LOWEST_AMBIGUITY);
+  }
+
+  /**
+   * Get the underlying PhotonVision pose estimator.
+   *
+   * @return {@link PhotonPoseEstimator}
+   */
+  public PhotonPoseEstimator getPoseEstimator()
+  {
+    return poseEstimator;
+  }
+
+  /**
+   * Get the camera transform.
+   *
+   * @return Camera transform relative to the center of the robot.
+   */
+  public Transform3d getRobotToCamTransform()
+  {
+    return robotToCamTransform;
+  }
+
+  /**
+   * Get the single tag standard deviations.
+   *
+   * @return Copy of {x, y, theta}.
+   */
+  public double[] getSingleTagStdDevs()
+  {
+    return singleTagStdDevs.clone();
+  }
+
+  /**
+   * Get the multi tag standard deviations.
+   *
+   * @return Copy of {x, y, theta}.
+   */
+  public double[] getMultiTagStdDevs()
+  {
+    return multiTagStdDevs.clone();
+  }
+
+  /**
+   * Ignore single tag results above an ambiguity.
+   *
+   * @param maximumAmbiguity Ambiguity defined as a value between (0,1), 1 disables the filter.
+   */
+  public void setMaximumAmbiguity(double maximumAmbiguity)
+  {
+    this.maximumAmbiguity = maximumAmbiguity;
+  }
+
+  /**
+   * Estimate the robot pose from one pipeline result and update {@link #curStdDevs}.
+   *
+   * @param result Pipeline result, results must be passed oldest first.
+   * @return Estimated pose, empty if there is no usable estimate.
+   */
+  public Optional<EstimatedRobotPose> update(PhotonPipelineResult result)
+  {
+    Optional<EstimatedRobotPose> estimate = Optional.empty();
+    if (!isTooAmbiguous(result))
+    {
+      estimate = poseEstimator.update(result);
+    }
+    updateEstimationStdDevs(estimate, result.getTargets());
+    return estimate;
+  }
+
+  /**
+   * Check a single tag result against {@link #maximumAmbiguity}.
+   */
+  private boolean isTooAmbiguous(PhotonPipelineResult result)
+  {
+    if (maximumAmbiguity >= 1 || result.getTargets().size() != 1)
+    {
+      return false;
+    }
+    double ambiguity = result.getTargets().get(0).getPoseAmbiguity();
+    return ambiguity != -1 && ambiguity > maximumAmbiguity;
+  }
+
+  /**
+   * Calculates new standard deviations This algorithm is a heuristic that creates dynamic standard deviations based
+   * on number of tags, estimation strategy, and distance from the tags. Works on primitives and writes the result into
+   * {@link #curStdDevs} without allocating.
+   *
+   * @param estimatedPose The estimated pose to guess standard deviations for.
+   * @param targets       All targets in this camera frame
+   */
+  void updateEstimationStdDevs(
+      Optional<EstimatedRobotPose> estimatedPose, List<PhotonTrackedTarget> targets)
+  {
+    if (estimatedPose.isEmpty())
+    {
+      // No pose input. Default to single-tag std devs
+      setStdDevs(singleTagStdDevs, 1);
+      return;
+    }
+
+    // Pose present. Start running Heuristic
+    Pose3d pose    = estimatedPose.get().estimatedPose;
+    double poseX   = pose.getX();
+    double poseY   = pose.getY();
+    int    numTags = 0;
+    double avgDist = 0;
+
+    // Precalculation - see how many tags we found, and calculate an average-distance metric
+    for (int i = 0; i < targets.size(); i++)
+    {
+      int id = targets.get(i).getFiducialId();
+      if (!tagTable.contains(id))
+      {
+        continue;
+      }
+      numTags++;
+      avgDist += Math.hypot(tagTable.getX(id) - poseX, tagTable.getY(id) - poseY);
+    }
+
+    if (numTags == 0)
+    {
+      // No tags visible. Default to single-tag std devs
+      setStdDevs(singleTagStdDevs, 1);
+      return;
+    }
+
+    // One or more tags visible, run the full heuristic.
+    avgDist /= numTags;
+    if (numTags == 1 && avgDist > 4)
+    {
+      // Increase std devs based on (average) distance
+      curStdDevs.set(0, 0, Double.MAX_VALUE);
+      curStdDevs.set(1, 0, Double.MAX_VALUE);
+      curStdDevs.set(2, 0, Double.MAX_VALUE);
+    } else
+    {
+      // Decrease std devs if multiple targets are visible
+      setStdDevs(numTags > 1 ? multiTagStdDevs : singleTagStdDevs, 1 + (avgDist * avgDist / 30));
+    }
+  }
+
+  /**
+   * Write scaled standard deviations into {@link #curStdDevs}.
+   *
+   * @param stdDevs Base {x, y, theta} standard deviations.
+   * @param scale   Multiplier for every element.
+   */
+  private void setStdDevs(double[] stdDevs, double scale)
+  {
+    curStdDevs.set(0, 0, stdDevs[0] * scale);
+    curStdDevs.set(1, 0, stdDevs[1] * scale);
+    curStdDevs.set(2, 0, stdDevs[2] * scale);
+  }
+}
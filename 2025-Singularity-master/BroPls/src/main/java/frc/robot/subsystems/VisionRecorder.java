@@ -0,0 +1,281 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.Timer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.photonvision.common.dataflow.structures.Packet;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Writes every {@link PhotonPipelineResult} from one camera to a compact binary file so it can be fed back through
+ * {@link VisionEstimator} off the robot. Results are stored in PhotonVision's own wire format, followed by the odometry
+ * pose at the frame's capture time.
+ * <p>
+ * File layout, big-endian:
+ * <pre>
+ * header: int magic, int version, UTF camera name,
+ *         double x, y, z, roll, pitch, yaw (robot to camera),
+ *         double[3] single tag std devs, double[3] multi tag std devs
+ * record: double capture timestamp, double FPGA record time,
+ *         boolean has odometry, double odometry x, y, theta,
+ *         int length, byte[length] serialized result
+ * </pre>
+ */
+public class VisionRecorder
+{
+
+  /**
+   * Extension used for recordings.
+   */
+  public static final String FILE_EXTENSION = ".pvrec";
+  /**
+   * File magic, "PVRC".
+   */
+  public static final int    MAGIC          = 0x50565243;
+  /**
+   * File format version.
+   */
+  public static final int    VERSION        = 1;
+
+  /**
+   * Output stream, null once closed.
+   */
+  private       DataOutputStream out;
+  /**
+   * Odometry history sampled at each capture timestamp.
+   */
+  private final PoseHistory      history;
+  /**
+   * Odometry pose at capture time, reused for every record.
+   */
+  private final double[]         odometry = new double[3];
+  /**
+   * Serialization buffer, reused for every record.
+   */
+  private final Packet           packet   = new Packet(1024);
+
+  /**
+   * Create a recording and write its header.
+   *
+   * @param file       File to write, overwritten if it exists.
+   * @param cameraName Name of the recorded camera.
+   * @param estimator  Estimator whose camera transform and standard deviations are stored in the header.
+   * @param history    Odometry history sampled at each frame's capture time.
+   * @throws IOException If the file could not be written.
+   */
+  public VisionRecorder(File file, String cameraName, VisionEstimator estimator, PoseHistory history)
+      throws IOException
+  {
+    this.history = history;
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeUTF(cameraName);
+    Transform3d robotToCam = estimator.getRobotToCamTransform();
+    out.writeDouble(robotToCam.getX());
+    out.writeDouble(robotToCam.getY());
+    out.writeDouble(robotToCam.getZ());
+    out.writeDouble(robotToCam.getRotation().getX());
+    out.writeDouble(robotToCam.getRotation().getY());
+    out.writeDouble(robotToCam.getRotation().getZ());
+    writeDoubles(estimator.getSingleTagStdDevs());
+    writeDoubles(estimator.getMultiTagStdDevs());
+  }
+
+  /**
+   * Append a result.
+   *
+   * @param result Pipeline result as received from the camera.
+   * @return false if the recorder is closed or the write failed.
+   */
+  public synchronized boolean record(PhotonPipelineResult result)
+  {
+    if (out == null)
+    {
+      return false;
+    }
+    double  timestamp   = result.getTimestampSeconds();
+    boolean hasOdometry = history.sample(timestamp, odometry);
+
+    packet.clear();
+    PhotonPipelineResult.photonStruct.pack(packet, result);
+    byte[] data = packet.getWrittenDataCopy();
+    try
+    {
+      out.writeDouble(timestamp);
+      out.writeDouble(Timer.getFPGATimestamp());
+      out.writeBoolean(hasOdometry);
+      out.writeDouble(hasOdometry ? odometry[0] : 0);
+      out.writeDouble(hasOdometry ? odometry[1] : 0);
+      out.writeDouble(hasOdometry ? odometry[2] : 0);
+      out.writeInt(data.length);
+      out.write(data);
+      return true;
+    } catch (IOException e)
+    {
+      close();
+      return false;
+    }
+  }
+
+  /**
+   * Flush and close the file. Safe to call more than once.
+   */
+  public synchronized void close()
+  {
+    if (out == null)
+    {
+      return;
+    }
+    try
+    {
+      out.close();
+    } catch (IOException e)
+    {
+      // Nothing left to do with a recording we cannot flush.
+    }
+    out = null;
+  }
+
+  private void writeDoubles(double[] values) throws IOException
+  {
+    for (double value : values)
+    {
+      out.writeDouble(value);
+    }
+  }
+
+  /**
+   * Reads a recording written by {@link VisionRecorder}.
+   */
+  public static class Reader implements AutoCloseable
+  {
+
+    /**
+     * Recorded camera name.
+     */
+    public final  String          cameraName;
+    /**
+     * Recorded robot to camera transform as {x, y, z, roll, pitch, yaw}.
+     */
+    public final  double[]        robotToCam       = new double[6];
+    /**
+     * Recorded single tag standard deviations {x, y, theta}.
+     */
+    public final  double[]        singleTagStdDevs = new double[3];
+    /**
+     * Recorded multi tag standard deviations {x, y, theta}.
+     */
+    public final  double[]        multiTagStdDevs  = new double[3];
+    /**
+     * Capture timestamp of the last record read.
+     */
+    public        double          timestamp;
+    /**
+     * FPGA time the last record was written on the robot.
+     */
+    public        double          recordTimestamp;
+    /**
+     * Whether odometry was available for the last record.
+     */
+    public        boolean         hasOdometry;
+    /**
+     * Odometry pose {x, y, theta} of the last record.
+     */
+    public final  double[]        odometry         = new double[3];
+    private final DataInputStream in;
+
+    /**
+     * Open a recording and read its header.
+     *
+     * @param file Recording to read.
+     * @throws IOException If the file is not a recording or could not be read.
+     */
+    public Reader(File file) throws IOException
+    {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+      if (in.readInt() != MAGIC)
+      {
+        in.close();
+        throw new IOException(file + " is not a vision recording");
+      }
+      int version = in.readInt();
+      if (version != VERSION)
+      {
+        in.close();
+        throw new IOException(file + " has unsupported version " + version);
+      }
+      cameraName = in.readUTF();
+      readDoubles(robotToCam);
+      readDoubles(singleTagStdDevs);
+      readDoubles(multiTagStdDevs);
+    }
+
+    /**
+     * Read the next record into the public fields.
+     *
+     * @return Serialized {@link PhotonPipelineResult}, or null at the end of the file.
+     * @throws IOException If the file could not be read.
+     */
+    public byte[] next() throws IOException
+    {
+      try
+      {
+        timestamp = in.readDouble();
+      } catch (EOFException e)
+      {
+        return null;
+      }
+      try
+      {
+        recordTimestamp = in.readDouble();
+        hasOdometry = in.readBoolean();
+        readDoubles(odometry);
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return data;
+      } catch (EOFException e)
+      {
+        // Recording was cut off mid record, e.g. the robot lost power.
+        return null;
+      }
+    }
+
+    /**
+     * Deserialize a record and restore its timestamp, which is not part of PhotonVision's wire format.
+     *
+     * @param data      Bytes returned by {@link #next()}.
+     * @param timestamp Capture timestamp of the record.
+     * @return Pipeline result with the same {@link PhotonPipelineResult#getTimestampSeconds()} it had when recorded.
+     */
+    public static PhotonPipelineResult unpack(byte[] data, double timestamp)
+    {
+      PhotonPipelineResult result = PhotonPipelineResult.photonStruct.unpack(new Packet(data));
+      long latencyMicros = result.metadata.publishTimestampMicros - result.metadata.captureTimestampMicros;
+      result.setReceiveTimestampMicros(Math.round(timestamp * 1e6) + latencyMicros);
+      return result;
+    }
+
+    private void readDoubles(double[] values) throws IOException
+    {
+      for (int i = 0; i < values.length; i++)
+      {
+        values[i] = in.readDouble();
+      }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      in.close();
+    }
+  }
+}
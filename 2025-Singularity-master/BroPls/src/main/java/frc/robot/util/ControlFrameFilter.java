@@ -0,0 +1,169 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Change-only gate for one motor controller's control frames. The IO layer asks {@link #shouldSend(int, double)} before
+ * every {@code setControl} or {@code set}, and the frame goes out only when the control mode or value changed, or when
+ * the keep-alive period has passed since the last frame. The keep-alive stays below the controller's control timeout
+ * so a held output never lapses.
+ * <p>
+ * Sent and skipped frames are counted per device. {@link #publishAll()}, called once per loop, publishes the rates under
+ * {@code /CAN/<device>} and logs the sent rate once a second.
+ * <p>
+ * {@link #shouldSend(int, double)} and {@link #invalidate()} must be called from one thread, the one driving the
+ * device. The counters are volatile so the main thread can read them from {@link #publishAll()}.
+ */
+public final class ControlFrameFilter
+{
+
+  /**
+   * Keep-alive for Phoenix 6 one-shot control requests, which the TalonFX drops after 50 ms without a refresh.
+   */
+  public static final  double KEEP_ALIVE_TALONFX  = 0.04;
+  /**
+   * Keep-alive for SPARK MAX setpoints, which are held as long as the heartbeat runs. Only meaningful with REVLib's own
+   * periodic resend turned off through {@code setControlFramePeriodMs(0)}, otherwise it sends the frames regardless.
+   */
+  public static final  double KEEP_ALIVE_SPARKMAX = 0.5;
+  /**
+   * Seconds between publishes.
+   */
+  private static final double PUBLISH_PERIOD      = 1.0;
+
+  private static final List<ControlFrameFilter> filters     = new ArrayList<>();
+  private static       NetworkTable             table;
+  private static       DoublePublisher          totalSentPublisher;
+  private static       DoublePublisher          totalSkippedPublisher;
+  private static       TelemetryBudget.Source   telemetry;
+  private static       long                     lastPublish = 0;
+
+  private final long                   keepAliveMicros;
+  private final DoublePublisher        sentPublisher;
+  private final DoublePublisher        skippedPublisher;
+  private final MatchLog.DoubleChannel sentLog;
+  private       int                    lastMode    = -1;
+  private       double                 lastValue   = Double.NaN;
+  private volatile long                lastSent    = 0;
+  private volatile long                sent        = 0;
+  private volatile long                skipped     = 0;
+  private       long                   publishedSent;
+  private       long                   publishedSkipped;
+
+  /**
+   * Create a filter for one device. Call from the main thread.
+   *
+   * @param device          Device name shown under {@code /CAN}.
+   * @param keepAlivePeriod Maximum time between frames in seconds.
+   */
+  public ControlFrameFilter(String device, double keepAlivePeriod)
+  {
+    if (table == null)
+    {
+      table = NetworkTableInstance.getDefault().getTable("CAN");
+      totalSentPublisher = table.getDoubleTopic("ControlTxPerSecond").publish();
+      totalSkippedPublisher = table.getDoubleTopic("ControlSkippedPerSecond").publish();
+      telemetry = TelemetryBudget.getInstance().addSource("CAN");
+    }
+    keepAliveMicros = (long) (keepAlivePeriod * 1e6);
+    sentPublisher = table.getDoubleTopic(device + "/ControlTxPerSecond").publish();
+    skippedPublisher = table.getDoubleTopic(device + "/ControlSkippedPerSecond").publish();
+    sentLog = MatchLog.getInstance().addDouble("CAN/" + device + "/Control Tx");
+    filters.add(this);
+  }
+
+  /**
+   * Whether a control frame should be sent, counting it as sent if so.
+   *
+   * @param mode  Control mode, any id unique within the device.
+   * @param value Requested output in the mode's units.
+   * @return true if the mode or value changed or the keep-alive expired.
+   */
+  public boolean shouldSend(int mode, double value)
+  {
+    long now = RobotController.getFPGATime();
+    // Compare bits so NaN is treated as a value like any other.
+    if (mode == lastMode && Double.doubleToLongBits(value) == Double.doubleToLongBits(lastValue)
+        && now - lastSent < keepAliveMicros)
+    {
+      // Single writer, so plain read-modify-write of the volatiles is safe.
+      skipped = skipped + 1;
+      return false;
+    }
+    lastMode = mode;
+    lastValue = value;
+    lastSent = now;
+    sent = sent + 1;
+    return true;
+  }
+
+  /**
+   * Force the next frame out, for when the controller may have lost its setpoint, e.g. after a config change.
+   */
+  public void invalidate()
+  {
+    lastMode = -1;
+  }
+
+  /**
+   * Control frames sent since startup.
+   *
+   * @return Sent frame count.
+   */
+  public long getSentCount()
+  {
+    return sent;
+  }
+
+  /**
+   * Control frames suppressed since startup.
+   *
+   * @return Skipped frame count.
+   */
+  public long getSkippedCount()
+  {
+    return skipped;
+  }
+
+  /**
+   * Publish per-device and total frame rates if the period has elapsed. Call once per loop from the main thread.
+   */
+  public static void publishAll()
+  {
+    long now = RobotController.getFPGATime();
+    if (table == null || now - lastPublish < PUBLISH_PERIOD * 1e6)
+    {
+      return;
+    }
+    double elapsed = (now - lastPublish) / 1e6;
+    lastPublish = now;
+
+    telemetry.start();
+    long totalSent    = 0;
+    long totalSkipped = 0;
+    for (int i = 0; i < filters.size(); i++)
+    {
+      // Read each counter once, the device's thread may be counting while we publish.
+      ControlFrameFilter filter       = filters.get(i);
+      long               sent         = filter.sent;
+      long               skipped      = filter.skipped;
+      long               sentDelta    = sent - filter.publishedSent;
+      long               skippedDelta = skipped - filter.publishedSkipped;
+      filter.publishedSent = sent;
+      filter.publishedSkipped = skipped;
+      filter.sentPublisher.set(sentDelta / elapsed);
+      filter.skippedPublisher.set(skippedDelta / elapsed);
+      filter.sentLog.append(sentDelta / elapsed);
+      totalSent += sentDelta;
+      totalSkipped += skippedDelta;
+    }
+    totalSentPublisher.set(totalSent / elapsed);
+    totalSkippedPublisher.set(totalSkipped / elapsed);
+    telemetry.stop((filters.size() + 1) * 2 * Double.BYTES);
+  }
+}
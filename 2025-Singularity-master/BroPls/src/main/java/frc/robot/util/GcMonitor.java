@@ -0,0 +1,146 @@
+package frc.robot.util;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Garbage collection and allocation monitor built on the standard management beans.
+ * <p>
+ * Every collection reported by a {@link GarbageCollectorMXBean} is counted, and its duration is taken from the GC
+ * notification. Concurrent collector cycles are left out, since they do not pause the main thread. Allocation is read
+ * from the per-thread counter of {@link com.sun.management.ThreadMXBean}. {@link LoopProfiler} uses it to charge
+ * allocated bytes to each section.
+ */
+public final class GcMonitor
+{
+
+  private static final GcMonitor instance = new GcMonitor();
+
+  private final com.sun.management.ThreadMXBean threads;
+  private final boolean                         allocationSupported;
+  private final MemoryMXBean                    memory;
+  /**
+   * Totals written by the GC notification thread.
+   */
+  private volatile long                         pauseCount;
+  private volatile long                         pauseMillis;
+  private volatile long                         maxPauseMillis;
+  private          long                         publishedPauseCount;
+  private          long                         publishedPauseMillis;
+  private          IntegerPublisher             pauseCountPublisher;
+  private          DoublePublisher              pauseMillisPublisher;
+  private          DoublePublisher              maxPausePublisher;
+  private          DoublePublisher              heapUsedPublisher;
+
+  private GcMonitor()
+  {
+    boolean supported = false;
+    com.sun.management.ThreadMXBean threadBean = null;
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+        && bean.isThreadAllocatedMemorySupported())
+    {
+      bean.setThreadAllocatedMemoryEnabled(true);
+      threadBean = bean;
+      supported = true;
+    }
+    threads = threadBean;
+    allocationSupported = supported;
+    memory = ManagementFactory.getMemoryMXBean();
+
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+    {
+      if (collector instanceof NotificationEmitter emitter)
+      {
+        emitter.addNotificationListener((notification, handback) -> {
+          if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType()))
+          {
+            return;
+          }
+          GarbageCollectionNotificationInfo info =
+              GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+          if (info.getGcName().contains("Concurrent"))
+          {
+            return;
+          }
+          long duration = info.getGcInfo().getDuration();
+          // Single notification thread, so plain read-modify-write of the volatiles is safe.
+          pauseMillis = pauseMillis + duration;
+          maxPauseMillis = Math.max(maxPauseMillis, duration);
+          pauseCount = pauseCount + 1;
+        }, null, null);
+      }
+    }
+  }
+
+  /**
+   * Get the robot wide GC monitor.
+   *
+   * @return {@link GcMonitor}
+   */
+  public static GcMonitor getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Bytes allocated by the calling thread since it started.
+   *
+   * @return Allocated bytes, always 0 if the JVM does not support per-thread allocation counting.
+   */
+  public long getAllocatedBytes()
+  {
+    return allocationSupported ? threads.getCurrentThreadAllocatedBytes() : 0;
+  }
+
+  /**
+   * Number of stop-the-world collections since startup.
+   *
+   * @return Pause count.
+   */
+  public long getPauseCount()
+  {
+    return pauseCount;
+  }
+
+  /**
+   * Total duration of stop-the-world collections since startup.
+   *
+   * @return Duration in milliseconds.
+   */
+  public long getPauseMillis()
+  {
+    return pauseMillis;
+  }
+
+  /**
+   * Publish pauses since the last call and the heap in use under {@code GC} in the given table.
+   *
+   * @param table Table to publish to.
+   */
+  void publish(NetworkTable table)
+  {
+    if (pauseCountPublisher == null)
+    {
+      pauseCountPublisher = table.getIntegerTopic("GC/Pauses").publish();
+      pauseMillisPublisher = table.getDoubleTopic("GC/PauseMs").publish();
+      maxPausePublisher = table.getDoubleTopic("GC/MaxPauseMs").publish();
+      heapUsedPublisher = table.getDoubleTopic("GC/HeapUsedMB").publish();
+    }
+    long count  = pauseCount;
+    long millis = pauseMillis;
+    pauseCountPublisher.set(count - publishedPauseCount);
+    pauseMillisPublisher.set(millis - publishedPauseMillis);
+    maxPausePublisher.set(maxPauseMillis);
+    maxPauseMillis = 0;
+    heapUsedPublisher.set(memory.getHeapMemoryUsage().getUsed() / 1e6);
+    publishedPauseCount = count;
+    publishedPauseMillis = millis;
+  }
+}
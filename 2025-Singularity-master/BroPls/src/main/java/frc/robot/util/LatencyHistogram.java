@@ -0,0 +1,124 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-memory latency histogram with log-linear buckets. Durations below 16 us get their own bucket, above that every
+ * power of two is split into 8 buckets, so percentiles are within 12.5% of the true value up to 16 s. Recording never
+ * allocates.
+ */
+public final class LatencyHistogram
+{
+
+  private static final int SUB_BUCKET_BITS  = 3;
+  private static final int SUB_BUCKETS      = 1 << SUB_BUCKET_BITS;
+  private static final int LINEAR_BUCKETS   = 2 * SUB_BUCKETS;
+  private static final int MAX_EXPONENT     = 24;
+  private static final int BUCKETS          = LINEAR_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKETS];
+  private       long   count  = 0;
+  private       long   max    = 0;
+  private       long   last   = 0;
+
+  /**
+   * Record a duration.
+   *
+   * @param nanos Duration in nanoseconds.
+   */
+  public void record(long nanos)
+  {
+    long micros = Math.max(0, nanos / 1000);
+    counts[bucket(micros)]++;
+    count++;
+    max = Math.max(max, micros);
+    last = micros;
+  }
+
+  /**
+   * Forget every recorded duration.
+   */
+  public void reset()
+  {
+    Arrays.fill(counts, 0);
+    count = 0;
+    max = 0;
+  }
+
+  /**
+   * Number of durations recorded since the last {@link #reset()}.
+   *
+   * @return Sample count.
+   */
+  public long getCount()
+  {
+    return count;
+  }
+
+  /**
+   * Longest duration recorded since the last {@link #reset()}.
+   *
+   * @return Duration in milliseconds.
+   */
+  public double getMaxMillis()
+  {
+    return max / 1e3;
+  }
+
+  /**
+   * Most recently recorded duration, kept across {@link #reset()}.
+   *
+   * @return Duration in milliseconds.
+   */
+  public double getLastMillis()
+  {
+    return last / 1e3;
+  }
+
+  /**
+   * Duration below which the given fraction of samples fall.
+   *
+   * @param percentile Fraction between 0 and 1.
+   * @return Upper edge of the bucket holding the percentile in milliseconds, capped at the max, 0 if empty.
+   */
+  public double getPercentileMillis(double percentile)
+  {
+    if (count == 0)
+    {
+      return 0;
+    }
+    long target     = Math.max(1, (long) Math.ceil(percentile * count));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; i++)
+    {
+      cumulative += counts[i];
+      if (cumulative >= target)
+      {
+        return Math.min(upperEdge(i), max) / 1e3;
+      }
+    }
+    return max / 1e3;
+  }
+
+  private static int bucket(long micros)
+  {
+    if (micros < LINEAR_BUCKETS)
+    {
+      return (int) micros;
+    }
+    int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT - 1);
+    int sub      = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return Math.min(BUCKETS - 1, LINEAR_BUCKETS + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub);
+  }
+
+  private static long upperEdge(int bucket)
+  {
+    if (bucket < LINEAR_BUCKETS)
+    {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+    int sub      = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+}
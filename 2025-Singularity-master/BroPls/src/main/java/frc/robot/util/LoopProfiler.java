@@ -0,0 +1,303 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Loop time histograms and allocated bytes for every subsystem {@code periodic()}, trigger polling and every running
+ * command's {@code execute()}, all on the main thread. Allocation is measured with {@link GcMonitor}, whose GC pause
+ * stats are published alongside.
+ * <p>
+ * Subsystems wrap their periodic body with a {@link Section}. Commands are timed from {@link CommandScheduler} callbacks.
+ * Each command's time runs from the end of the previous command, or from the end of trigger polling for the first one.
+ * Trigger polling is timed by an action bound last on the default button loop, so {@link #install()} must be called
+ * after every binding is made.
+ * <p>
+ * p50, p99, max and the average and max bytes allocated per run are published under {@code /LoopProfiler} once a
+ * second. When the main loop overruns its period, the duration, allocation and p99 of every section that ran in that
+ * loop are printed with any GC pauses during the loop, at most once a second.
+ */
+public final class LoopProfiler
+{
+
+  /**
+   * Maximum number of distinct command names tracked, any more share one histogram.
+   */
+  private static final int    MAX_COMMANDS   = 64;
+  /**
+   * Seconds between publishes.
+   */
+  private static final double PUBLISH_PERIOD = 1.0;
+
+  private static final LoopProfiler instance = new LoopProfiler(TimedRobot.kDefaultPeriod);
+
+  /**
+   * Timed block of main loop code.
+   */
+  public static final class Section
+  {
+
+    private final LoopProfiler     profiler;
+    private final String           name;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final DoublePublisher  p50Publisher;
+    private final DoublePublisher  p99Publisher;
+    private final DoublePublisher  maxPublisher;
+    private final DoublePublisher  averageBytesPublisher;
+    private final DoublePublisher  maxBytesPublisher;
+    private       long             startNanos;
+    private       long             startBytes;
+    private       long             lastBytes;
+    private       long             windowBytes;
+    private       long             maxBytes;
+    /**
+     * Loop in which this section last ran.
+     */
+    private       long             lastLoop = -1;
+
+    private Section(LoopProfiler profiler, NetworkTable table, String name)
+    {
+      this.profiler = profiler;
+      this.name = name;
+      p50Publisher = table.getDoubleTopic(name + "/p50Ms").publish();
+      p99Publisher = table.getDoubleTopic(name + "/p99Ms").publish();
+      maxPublisher = table.getDoubleTopic(name + "/MaxMs").publish();
+      averageBytesPublisher = table.getDoubleTopic(name + "/AllocBytesAvg").publish();
+      maxBytesPublisher = table.getDoubleTopic(name + "/AllocBytesMax").publish();
+    }
+
+    /**
+     * Mark the start of the section.
+     */
+    public void start()
+    {
+      startNanos = System.nanoTime();
+      startBytes = profiler.gc.getAllocatedBytes();
+    }
+
+    /**
+     * Mark the end of the section and record its duration.
+     */
+    public void stop()
+    {
+      long now   = System.nanoTime();
+      long bytes = profiler.gc.getAllocatedBytes();
+      record(now - startNanos, bytes - startBytes);
+      profiler.lastMark = now;
+      profiler.lastMarkBytes = bytes;
+    }
+
+    private void record(long nanos, long bytes)
+    {
+      histogram.record(nanos);
+      lastBytes = bytes;
+      windowBytes += bytes;
+      maxBytes = Math.max(maxBytes, bytes);
+      lastLoop = profiler.loops;
+    }
+
+    private void publish()
+    {
+      p50Publisher.set(histogram.getPercentileMillis(0.5));
+      p99Publisher.set(histogram.getPercentileMillis(0.99));
+      maxPublisher.set(histogram.getMaxMillis());
+      averageBytesPublisher.set(histogram.getCount() > 0 ? (double) windowBytes / histogram.getCount() : 0);
+      maxBytesPublisher.set(maxBytes);
+      histogram.reset();
+      windowBytes = 0;
+      maxBytes = 0;
+    }
+
+    private void describe(StringBuilder builder)
+    {
+      if (lastLoop != profiler.loops)
+      {
+        return;
+      }
+      builder.append("\n  ").append(name)
+             .append(": last ").append(String.format("%.2f", histogram.getLastMillis()))
+             .append(" ms, p99 ").append(String.format("%.2f", histogram.getPercentileMillis(0.99)))
+             .append(" ms, max ").append(String.format("%.2f", histogram.getMaxMillis()))
+             .append(" ms, allocated ").append(lastBytes).append(" B");
+    }
+  }
+
+  private final double                period;
+  private final NetworkTable          table;
+  private final List<Section>         sections        = new ArrayList<>();
+  /**
+   * Command sections by name, so a command rebuilt with the same name keeps its histogram and topics.
+   */
+  private final Map<String, Section>  commands        = new HashMap<>();
+  /**
+   * Sections of commands seen so far, saves a name lookup per execute. Weak so rebuilt commands can be collected,
+   * {@link Command} does not override equals so this compares by identity.
+   */
+  private final Map<Command, Section> commandCache    = new WeakHashMap<>();
+  private final Section               loop;
+  private final Section               triggers;
+  private final Section               otherCommands;
+  private final GcMonitor             gc              = GcMonitor.getInstance();
+  /**
+   * End of the last timed block in this loop, in {@link System#nanoTime()}.
+   */
+  private       long                  lastMark        = 0;
+  /**
+   * Bytes allocated by the main thread at {@link #lastMark}.
+   */
+  private       long                  lastMarkBytes   = 0;
+  /**
+   * GC pauses when the loop started.
+   */
+  private       long                  loopPauseCount  = 0;
+  private       long                  loopPauseMillis = 0;
+  /**
+   * Number of loops started.
+   */
+  private       long                  loops           = 0;
+  private       double                lastPublish     = 0;
+  private       double                lastDump        = Double.NEGATIVE_INFINITY;
+  private       boolean               installed       = false;
+
+  private LoopProfiler(double period)
+  {
+    this.period = period;
+    table = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+    loop = addSection("Loop");
+    triggers = addSection("Triggers");
+    otherCommands = new Section(this, table, "Commands/Other");
+  }
+
+  /**
+   * Get the robot wide loop profiler.
+   *
+   * @return {@link LoopProfiler}
+   */
+  public static LoopProfiler getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Register a section, usually a subsystem's {@code periodic()}.
+   *
+   * @param name Name shown under {@code /LoopProfiler}.
+   * @return {@link Section} to wrap the code with.
+   */
+  public Section addSection(String name)
+  {
+    Section section = new Section(this, table, name);
+    sections.add(section);
+    return section;
+  }
+
+  /**
+   * Start timing trigger polling and commands. Call once, after every trigger binding has been made.
+   */
+  public void install()
+  {
+    if (installed)
+    {
+      return;
+    }
+    installed = true;
+    CommandScheduler scheduler = CommandScheduler.getInstance();
+    scheduler.getDefaultButtonLoop().bind(() -> mark(triggers));
+    scheduler.onCommandExecute(command -> mark(commandSection(command)));
+  }
+
+  /**
+   * Mark the start of the main loop. Call before {@link CommandScheduler#run()}.
+   */
+  public void beginLoop()
+  {
+    loops++;
+    loopPauseCount = gc.getPauseCount();
+    loopPauseMillis = gc.getPauseMillis();
+    loop.start();
+    lastMark = System.nanoTime();
+    lastMarkBytes = gc.getAllocatedBytes();
+  }
+
+  /**
+   * Charge the time and allocation since the last mark to a section.
+   */
+  private void mark(Section section)
+  {
+    long now   = System.nanoTime();
+    long bytes = gc.getAllocatedBytes();
+    section.record(now - lastMark, bytes - lastMarkBytes);
+    lastMark = now;
+    lastMarkBytes = bytes;
+  }
+
+  /**
+   * Mark the end of the main loop, publish once a second and print a breakdown if the loop overran.
+   *
+   * @param loopTime Time since the loop started in seconds, including the mode periodic functions.
+   * @param now      Current time in seconds.
+   */
+  public void endLoop(double loopTime, double now)
+  {
+    loop.stop();
+    if (loopTime > period && now - lastDump >= PUBLISH_PERIOD)
+    {
+      lastDump = now;
+      dump(loopTime);
+    }
+    if (now - lastPublish >= PUBLISH_PERIOD)
+    {
+      lastPublish = now;
+      for (int i = 0; i < sections.size(); i++)
+      {
+        sections.get(i).publish();
+      }
+      otherCommands.publish();
+      gc.publish(table);
+    }
+  }
+
+  private Section commandSection(Command command)
+  {
+    Section section = commandCache.get(command);
+    if (section == null)
+    {
+      String name = command.getName();
+      section = commands.get(name);
+      if (section == null && commands.size() >= MAX_COMMANDS)
+      {
+        section = otherCommands;
+      } else if (section == null)
+      {
+        section = addSection("Commands/" + name);
+        commands.put(name, section);
+      }
+      commandCache.put(command, section);
+    }
+    return section;
+  }
+
+  private void dump(double loopTime)
+  {
+    StringBuilder builder = new StringBuilder("Loop overrun: ")
+        .append(String.format("%.2f", loopTime * 1e3)).append(" ms, GC pauses ")
+        .append(gc.getPauseCount() - loopPauseCount).append(" (")
+        .append(gc.getPauseMillis() - loopPauseMillis).append(" ms)");
+    for (int i = 0; i < sections.size(); i++)
+    {
+      sections.get(i).describe(builder);
+    }
+    otherCommands.describe(builder);
+    DriverStation.reportWarning(builder.toString(), false);
+  }
+}
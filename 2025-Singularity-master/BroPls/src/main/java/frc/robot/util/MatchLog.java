@@ -0,0 +1,349 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLogWriter;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.IntegerLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Binary match log in WPILOG format. Subsystems append primitive records to a bounded ring buffer and a background
+ * thread writes them to disk, so a slow USB flush never blocks the main loop. When the buffer is full new records are
+ * dropped and counted.
+ * <p>
+ * The number of dropped records, the current and peak queue depth and the number of records written are published under
+ * {@code /MatchLog} and written to the log itself under {@code MatchLog/}, to help size {@link #CAPACITY}.
+ */
+public final class MatchLog
+{
+
+  /**
+   * Records the ring buffer can hold.
+   */
+  public static final  int    CAPACITY     = 8192;
+  /**
+   * How often the writer flushes to disk and publishes its metrics, in seconds.
+   */
+  private static final double FLUSH_PERIOD = 0.5;
+  /**
+   * How long the writer sleeps when the buffer is empty, in seconds.
+   */
+  private static final double IDLE_PERIOD  = 0.01;
+  private static final int    TYPE_DOUBLE  = 0;
+  private static final int    TYPE_BOOLEAN = 1;
+
+  private static final MatchLog instance = new MatchLog(CAPACITY);
+
+  /**
+   * Handle for appending doubles to one log entry.
+   */
+  public static final class DoubleChannel
+  {
+
+    private final MatchLog log;
+    private final int      id;
+
+    private DoubleChannel(MatchLog log, int id)
+    {
+      this.log = log;
+      this.id = id;
+    }
+
+    /**
+     * Append a value timestamped now.
+     *
+     * @param value Value to log.
+     */
+    public void append(double value)
+    {
+      log.offer(id, Double.doubleToRawLongBits(value));
+    }
+  }
+
+  /**
+   * Handle for appending booleans to one log entry.
+   */
+  public static final class BooleanChannel
+  {
+
+    private final MatchLog log;
+    private final int      id;
+
+    private BooleanChannel(MatchLog log, int id)
+    {
+      this.log = log;
+      this.id = id;
+    }
+
+    /**
+     * Append a value timestamped now.
+     *
+     * @param value Value to log.
+     */
+    public void append(boolean value)
+    {
+      log.offer(id, value ? 1 : 0);
+    }
+  }
+
+  private final int[]         ids;
+  private final long[]        timestamps;
+  private final long[]        values;
+  private final int           mask;
+  /**
+   * Channel names and types, guarded by this.
+   */
+  private final List<String>  names     = new ArrayList<>();
+  private final List<Integer> types     = new ArrayList<>();
+  /**
+   * Next sequence to read, only written by the writer thread.
+   */
+  private volatile long       head      = 0;
+  /**
+   * Next sequence to write, only written by producers holding the {@link #ids} lock.
+   */
+  private volatile long       tail      = 0;
+  private volatile long       dropped   = 0;
+  private volatile long       written   = 0;
+  private volatile int        peakDepth = 0;
+  private volatile boolean    running   = false;
+
+  private MatchLog(int capacity)
+  {
+    int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+    ids = new int[size];
+    timestamps = new long[size];
+    values = new long[size];
+    mask = size - 1;
+  }
+
+  /**
+   * Get the robot wide match log.
+   *
+   * @return {@link MatchLog}
+   */
+  public static MatchLog getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Register a double entry. Channels can be registered before or after {@link #start(File)}.
+   *
+   * @param name Entry name in the log.
+   * @return Handle to append with.
+   */
+  public synchronized DoubleChannel addDouble(String name)
+  {
+    names.add(name);
+    types.add(TYPE_DOUBLE);
+    return new DoubleChannel(this, names.size() - 1);
+  }
+
+  /**
+   * Register a boolean entry. Channels can be registered before or after {@link #start(File)}.
+   *
+   * @param name Entry name in the log.
+   * @return Handle to append with.
+   */
+  public synchronized BooleanChannel addBoolean(String name)
+  {
+    names.add(name);
+    types.add(TYPE_BOOLEAN);
+    return new BooleanChannel(this, names.size() - 1);
+  }
+
+  /**
+   * Open a new log file and start the writer thread. Records appended before this are discarded.
+   *
+   * @param directory Directory to write to, created if missing. Use the USB stick on the robot.
+   */
+  public synchronized void start(File directory)
+  {
+    if (running)
+    {
+      return;
+    }
+    if (!directory.isDirectory() && !directory.mkdirs())
+    {
+      DriverStation.reportWarning("Cannot create match log directory " + directory + ", not logging", false);
+      return;
+    }
+    String        stamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+    File          file  = new File(directory, "match-" + stamp + ".wpilog");
+    DataLogWriter writer;
+    try
+    {
+      writer = new DataLogWriter(file.getAbsolutePath());
+    } catch (IOException e)
+    {
+      DriverStation.reportError("Failed to open match log " + file + ": " + e, e.getStackTrace());
+      return;
+    }
+    running = true;
+    Thread thread = new Thread(() -> write(writer), "MatchLog");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    thread.start();
+  }
+
+  /**
+   * Whether the writer thread is running.
+   *
+   * @return true if records are being written to disk.
+   */
+  public boolean isRunning()
+  {
+    return running;
+  }
+
+  /**
+   * Records dropped because the writer fell behind.
+   *
+   * @return Dropped record count.
+   */
+  public long getDroppedCount()
+  {
+    return dropped;
+  }
+
+  /**
+   * Records waiting to be written.
+   *
+   * @return Queue depth.
+   */
+  public int getQueueDepth()
+  {
+    return (int) (tail - head);
+  }
+
+  /**
+   * Queue a record, dropping it if the buffer is full.
+   */
+  private void offer(int id, long value)
+  {
+    if (!running)
+    {
+      return;
+    }
+    long timestamp = RobotController.getFPGATime();
+    // Producers only contend with each other, the writer never takes this lock.
+    synchronized (ids)
+    {
+      long sequence = tail;
+      int  depth    = (int) (sequence - head);
+      if (depth > mask)
+      {
+        dropped = dropped + 1;
+        return;
+      }
+      int index = (int) (sequence & mask);
+      ids[index] = id;
+      timestamps[index] = timestamp;
+      values[index] = value;
+      if (depth + 1 > peakDepth)
+      {
+        peakDepth = depth + 1;
+      }
+      // Volatile store publishes the record to the writer.
+      tail = sequence + 1;
+    }
+  }
+
+  /**
+   * Writer thread body. Drains the ring buffer into the file and flushes periodically.
+   */
+  private void write(DataLogWriter writer)
+  {
+    List<Object>     entries          = new ArrayList<>();
+    NetworkTable     table            = NetworkTableInstance.getDefault().getTable("MatchLog");
+    IntegerPublisher droppedPublisher = table.getIntegerTopic("Dropped").publish();
+    IntegerPublisher writtenPublisher = table.getIntegerTopic("Written").publish();
+    IntegerPublisher depthPublisher   = table.getIntegerTopic("QueueDepth").publish();
+    IntegerPublisher peakPublisher    = table.getIntegerTopic("PeakQueueDepth").publish();
+    DoublePublisher  fillPublisher    = table.getDoubleTopic("PeakQueueFill").publish();
+    IntegerLogEntry  droppedEntry     = new IntegerLogEntry(writer, "MatchLog/Dropped");
+    IntegerLogEntry  depthEntry       = new IntegerLogEntry(writer, "MatchLog/PeakQueueDepth");
+    long             idleNanos        = (long) (IDLE_PERIOD * 1e9);
+    long             flushNanos       = (long) (FLUSH_PERIOD * 1e9);
+    long             lastFlush        = System.nanoTime();
+
+    while (true)
+    {
+      long sequence = head;
+      long end      = tail;
+      if (sequence != end)
+      {
+        for (; sequence < end; sequence++)
+        {
+          int index = (int) (sequence & mask);
+          int id    = ids[index];
+          if (id >= entries.size())
+          {
+            createEntries(writer, entries);
+          }
+          Object entry = entries.get(id);
+          if (entry instanceof DoubleLogEntry doubleEntry)
+          {
+            doubleEntry.append(Double.longBitsToDouble(values[index]), timestamps[index]);
+          } else
+          {
+            ((BooleanLogEntry) entry).append(values[index] != 0, timestamps[index]);
+          }
+        }
+        written = written + (end - head);
+        // Volatile store hands the slots back to the producers.
+        head = end;
+      } else
+      {
+        LockSupport.parkNanos(idleNanos);
+      }
+
+      long now = System.nanoTime();
+      if (now - lastFlush >= flushNanos)
+      {
+        lastFlush = now;
+        int peak = peakDepth;
+        peakDepth = 0;
+        long timestamp = RobotController.getFPGATime();
+        droppedEntry.append(dropped, timestamp);
+        depthEntry.append(peak, timestamp);
+        writer.flush();
+        droppedPublisher.set(dropped);
+        writtenPublisher.set(written);
+        depthPublisher.set(getQueueDepth());
+        peakPublisher.set(peak);
+        fillPublisher.set((double) peak / (mask + 1));
+      }
+    }
+  }
+
+  /**
+   * Create log entries for channels registered since the last call. Runs on the writer thread.
+   */
+  private synchronized void createEntries(DataLogWriter writer, List<Object> entries)
+  {
+    for (int id = entries.size(); id < names.size(); id++)
+    {
+      if (types.get(id) == TYPE_DOUBLE)
+      {
+        entries.add(new DoubleLogEntry(writer, names.get(id)));
+      } else
+      {
+        entries.add(new BooleanLogEntry(writer, names.get(id)));
+      }
+    }
+  }
+}
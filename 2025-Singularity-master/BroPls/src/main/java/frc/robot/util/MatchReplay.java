@@ -0,0 +1,190 @@
+package frc.robot.util;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.ElevatorIOReplay;
+import frc.robot.subsystems.PivotIOReplay;
+import frc.robot.subsystems.PivotSubsystem;
+import frc.robot.subsystems.ShooterIOReplay;
+import frc.robot.subsystems.ShooterSubsystem;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Desktop tool run by the {@code replayMatch} Gradle task. Replays {@link MatchLog} files through the current
+ * {@link Elevator}, {@link PivotSubsystem} and {@link ShooterSubsystem} code, headless and as fast as possible.
+ * <p>
+ * Every loop, the subsystems read the logged inputs through their replay IO, the request each subsystem was following
+ * at the start of its {@code periodic()} is restored, and {@code periodic()} runs. The commands the new code sends are
+ * compared with the commands the robot sent, so a controller change can be checked against real matches before it is
+ * deployed. Commands and triggers are not run, their effect is carried by the restored requests.
+ */
+public final class MatchReplay
+{
+
+  private static final String USAGE     = "Usage: MatchReplay <match.wpilog>...";
+  /**
+   * Commands closer than this are considered equal.
+   */
+  private static final double TOLERANCE = 1e-9;
+
+  /**
+   * Replayed command checked against the logged one.
+   */
+  private static final class Comparison
+  {
+
+    private final String                 name;
+    private final ReplayLog.DoubleSeries logged;
+    private final DoubleSupplier         replayed;
+    private       int                    samples       = 0;
+    private       int                    mismatches    = 0;
+    private       int                    firstMismatch = -1;
+    private       double                 sumSquares    = 0;
+    private       double                 maxError      = 0;
+
+    private Comparison(String name, ReplayLog.DoubleSeries logged, DoubleSupplier replayed)
+    {
+      this.name = name;
+      this.logged = logged;
+      this.replayed = replayed;
+    }
+
+    private void sample(int loop)
+    {
+      double expected = logged.get();
+      double actual   = replayed.getAsDouble();
+      samples++;
+      if (Double.isNaN(expected) || Double.isNaN(actual))
+      {
+        // A NaN means the other control mode was active, both sides must agree on it.
+        if (Double.isNaN(expected) != Double.isNaN(actual))
+        {
+          mismatch(loop);
+        }
+        return;
+      }
+      double error = Math.abs(actual - expected);
+      sumSquares += error * error;
+      maxError = Math.max(maxError, error);
+      if (error > TOLERANCE)
+      {
+        mismatch(loop);
+      }
+    }
+
+    private void mismatch(int loop)
+    {
+      mismatches++;
+      if (firstMismatch < 0)
+      {
+        firstMismatch = loop;
+      }
+    }
+
+    private void print()
+    {
+      System.out.printf("  %-22s %s: rms %.6f, max %.6f, %d/%d loops differ%s%n",
+                        name, mismatches == 0 ? "MATCH" : "DIFF",
+                        samples > 0 ? Math.sqrt(sumSquares / samples) : 0, maxError, mismatches, samples,
+                        firstMismatch < 0 ? "" : ", first at loop " + firstMismatch);
+    }
+  }
+
+  private MatchReplay()
+  {
+  }
+
+  /**
+   * Replay match logs.
+   *
+   * @param args Log files.
+   * @throws IOException If a log cannot be read.
+   */
+  public static void main(String... args) throws IOException
+  {
+    if (args.length == 0)
+    {
+      throw new IllegalArgumentException(USAGE);
+    }
+    // The subsystems read the FPGA clock for dashboard rate limiting, which needs the simulated HAL.
+    if (!HAL.initialize(500, 0))
+    {
+      throw new IllegalStateException("Failed to initialize the HAL");
+    }
+    for (String arg : args)
+    {
+      replay(new File(arg));
+    }
+  }
+
+  private static void replay(File file) throws IOException
+  {
+    long      loadStart = System.nanoTime();
+    ReplayLog log       = new ReplayLog(file);
+    double    loadTime  = (System.nanoTime() - loadStart) / 1e9;
+
+    ElevatorIOReplay elevatorIO = new ElevatorIOReplay(log);
+    PivotIOReplay    pivotIO    = new PivotIOReplay(log);
+    ShooterIOReplay  shooterIO  = new ShooterIOReplay(log);
+    Elevator         elevator   = new Elevator(elevatorIO);
+    PivotSubsystem   pivot      = new PivotSubsystem(pivotIO);
+    ShooterSubsystem shooter    = new ShooterSubsystem(shooterIO);
+
+    ReplayLog.DoubleSeries  elevatorGoal        = log.getDouble(Elevator.GOAL_POSITION_KEY, Double.NaN);
+    ReplayLog.DoubleSeries  elevatorManualSpeed = log.getDouble(Elevator.MANUAL_SPEED_KEY, 0);
+    ReplayLog.DoubleSeries  pivotGoal           = log.getDouble(PivotSubsystem.GOAL_KEY, 0);
+    ReplayLog.BooleanSeries pivotEnabled        = log.getBoolean(PivotSubsystem.MOVEMENT_ENABLED_KEY);
+    ReplayLog.BooleanSeries pivotManual         = log.getBoolean(PivotSubsystem.MANUAL_CONTROL_KEY);
+    ReplayLog.DoubleSeries  pivotManualSpeed    = log.getDouble(PivotSubsystem.MANUAL_SPEED_KEY, 0);
+    ReplayLog.DoubleSeries  shooterLeft         = log.getDouble(ShooterSubsystem.LEFT_REQUEST_KEY, 0);
+    ReplayLog.DoubleSeries  shooterRight        = log.getDouble(ShooterSubsystem.RIGHT_REQUEST_KEY, 0);
+
+    List<Comparison> comparisons = new ArrayList<>();
+    addComparison(comparisons, log, "Elevator volts", Elevator.COMMANDED_VOLTS_KEY, elevatorIO::getCommandedVolts);
+    addComparison(comparisons, log, "Elevator position", Elevator.COMMANDED_POSITION_KEY,
+                  elevatorIO::getCommandedPosition);
+    addComparison(comparisons, log, "Pivot speed", PivotSubsystem.COMMANDED_SPEED_KEY, pivotIO::getCommandedSpeed);
+    addComparison(comparisons, log, "Pivot position", PivotSubsystem.COMMANDED_POSITION_KEY,
+                  pivotIO::getCommandedPosition);
+
+    long start = System.nanoTime();
+    for (int loop = 0; loop < log.getLoopCount(); loop++)
+    {
+      log.setLoop(loop);
+      elevator.restoreRequest(elevatorGoal.get(), elevatorManualSpeed.get());
+      pivot.restoreRequest(pivotGoal.get(), pivotEnabled.get(), pivotManual.get(), pivotManualSpeed.get());
+      shooter.setOutputs(shooterLeft.get(), shooterRight.get());
+      elevator.periodic();
+      pivot.periodic();
+      shooter.periodic();
+      for (int i = 0; i < comparisons.size(); i++)
+      {
+        comparisons.get(i).sample(loop);
+      }
+    }
+    double replayTime = (System.nanoTime() - start) / 1e9;
+
+    System.out.printf("%s: %d loops over %.1f s of match, loaded in %.2f s, replayed in %.2f s (%.0fx real time)%n",
+                      file.getName(), log.getLoopCount(), log.getDurationSeconds(), loadTime, replayTime,
+                      replayTime > 0 ? log.getDurationSeconds() / replayTime : 0);
+    for (Comparison comparison : comparisons)
+    {
+      comparison.print();
+    }
+  }
+
+  private static void addComparison(List<Comparison> comparisons, ReplayLog log, String name, String key,
+                                    DoubleSupplier replayed)
+  {
+    if (!log.has(key))
+    {
+      System.out.printf("  %-22s not in log, skipped%n", name);
+      return;
+    }
+    comparisons.add(new Comparison(name, log.getDouble(key, Double.NaN), replayed));
+  }
+}
@@ -0,0 +1,431 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.BooleanEntry;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.StringArrayPublisher;
+import edu.wpi.first.networktables.ValueEventData;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytes and updates per second for every NetworkTables topic, local or remote. A value listener counts each update on
+ * the NetworkTables listener thread and a {@link Notifier} ranks the topics once a second, so the main loop pays
+ * nothing. Byte counts are estimates of the wire size: the encoded value plus a fixed per-message overhead.
+ * <p>
+ * The top consumers are published under {@code /NTProfiler} as parallel arrays for a dashboard table, along with the
+ * totals. Totals, and the rates of every topic that has ever been a top consumer, are written to the {@link MatchLog}.
+ * At most {@link #MAX_TOPICS} topics are tracked individually, any more are counted as {@code Other}.
+ * <p>
+ * Counting allocates for every update on every topic, so the profiler is off by default. It runs while the
+ * {@code /NTProfiler/Enabled} dashboard toggle is set and never while the FMS is attached, see {@link #update()}.
+ */
+public final class NetworkTablesProfiler
+{
+
+  /**
+   * Topics tracked individually.
+   */
+  private static final int    MAX_TOPICS       = 1024;
+  /**
+   * Topics ranked in the report.
+   */
+  private static final int    TOP_COUNT        = 10;
+  /**
+   * Seconds between reports.
+   */
+  private static final double REPORT_PERIOD    = 1.0;
+  /**
+   * Approximate NT4 message framing per update: topic id, timestamp, type and length.
+   */
+  private static final int    MESSAGE_OVERHEAD = 10;
+  /**
+   * Own topics are not counted, the report would otherwise measure itself.
+   */
+  private static final String TABLE            = "NTProfiler";
+
+  private static final NetworkTablesProfiler instance = new NetworkTablesProfiler();
+
+  /**
+   * Combined rate of every topic under a prefix, updated with each report.
+   */
+  public static final class Prefix
+  {
+
+    private final    String prefix;
+    private volatile double bytesPerSecond = Double.NaN;
+
+    private Prefix(String prefix)
+    {
+      this.prefix = prefix;
+    }
+
+    /**
+     * Bytes per second published under the prefix as of the last report.
+     *
+     * @return Estimated wire bytes per second, NaN before the first report or while the profiler is stopped.
+     */
+    public double getBytesPerSecond()
+    {
+      return bytesPerSecond;
+    }
+  }
+
+  /**
+   * Counters of one topic, guarded by the profiler's {@link #topics} map.
+   */
+  private static final class TopicStats
+  {
+
+    private final String                 name;
+    private       long                   bytes;
+    private       long                   updates;
+    private       double                 bytesPerSecond;
+    private       double                 updatesPerSecond;
+    private       MatchLog.DoubleChannel bytesLog;
+    private       MatchLog.DoubleChannel updatesLog;
+
+    private TopicStats(String name)
+    {
+      this.name = name;
+    }
+  }
+
+  private final NetworkTableInstance     nt;
+  private final Map<Integer, TopicStats> topics  = new HashMap<>();
+  private final TopicStats               other   = new TopicStats("Other");
+  private final List<TopicStats>         ranked  = new ArrayList<>();
+  private final List<Prefix>             prefixes = new ArrayList<>();
+  private final String[]                 topNames;
+  private final double[]                 topBytes;
+  private final double[]                 topUpdates;
+  private final StringArrayPublisher     namesPublisher;
+  private final DoubleArrayPublisher     bytesPublisher;
+  private final DoubleArrayPublisher     updatesPublisher;
+  private final DoublePublisher          totalBytesPublisher;
+  private final DoublePublisher          totalUpdatesPublisher;
+  private final IntegerPublisher         topicCountPublisher;
+  private final MatchLog.DoubleChannel   totalBytesLog;
+  private final MatchLog.DoubleChannel   totalUpdatesLog;
+  private final TelemetryBudget.Source   telemetry;
+  private final Notifier                 notifier;
+  private final BooleanEntry             enabledEntry;
+  private       int                      listener = 0;
+  private volatile boolean               running  = false;
+  private       long                     lastReport;
+
+  private NetworkTablesProfiler()
+  {
+    nt = NetworkTableInstance.getDefault();
+    NetworkTable table = nt.getTable(TABLE);
+    namesPublisher = table.getStringArrayTopic("Top/Names").publish();
+    bytesPublisher = table.getDoubleArrayTopic("Top/BytesPerSecond").publish();
+    updatesPublisher = table.getDoubleArrayTopic("Top/UpdatesPerSecond").publish();
+    totalBytesPublisher = table.getDoubleTopic("TotalBytesPerSecond").publish();
+    totalUpdatesPublisher = table.getDoubleTopic("TotalUpdatesPerSecond").publish();
+    topicCountPublisher = table.getIntegerTopic("Topics").publish();
+    enabledEntry = table.getBooleanTopic("Enabled").getEntry(false);
+    enabledEntry.set(false);
+    totalBytesLog = MatchLog.getInstance().addDouble("NTProfiler/TotalBytesPerSecond");
+    totalUpdatesLog = MatchLog.getInstance().addDouble("NTProfiler/TotalUpdatesPerSecond");
+    telemetry = TelemetryBudget.getInstance().addSource(TABLE, REPORT_PERIOD);
+    topNames = new String[TOP_COUNT];
+    topBytes = new double[TOP_COUNT];
+    topUpdates = new double[TOP_COUNT];
+    notifier = new Notifier(this::report);
+    notifier.setName(TABLE);
+  }
+
+  /**
+   * Get the robot wide NetworkTables profiler.
+   *
+   * @return {@link NetworkTablesProfiler}
+   */
+  public static NetworkTablesProfiler getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Start or stop with the dashboard toggle, stopping whenever the FMS is attached. Call once per loop from the main
+   * thread.
+   */
+  public void update()
+  {
+    boolean wanted = enabledEntry.get() && !DriverStation.isFMSAttached();
+    if (wanted != running)
+    {
+      if (wanted)
+      {
+        start();
+      } else
+      {
+        stop();
+      }
+    }
+  }
+
+  /**
+   * Check if the profiler is counting updates.
+   *
+   * @return true between {@link #start()} and {@link #stop()}.
+   */
+  public boolean isRunning()
+  {
+    return running;
+  }
+
+  /**
+   * Start counting updates and reporting.
+   */
+  public synchronized void start()
+  {
+    if (listener != 0)
+    {
+      return;
+    }
+    synchronized (topics)
+    {
+      // Counts left from a previous run would be reported as one long burst.
+      for (TopicStats stats : topics.values())
+      {
+        if (stats != null)
+        {
+          stats.bytes = 0;
+          stats.updates = 0;
+        }
+      }
+      other.bytes = 0;
+      other.updates = 0;
+    }
+    lastReport = System.nanoTime();
+    running = true;
+    listener = nt.addListener(new String[]{""}, EnumSet.of(NetworkTableEvent.Kind.kValueAll), this::count);
+    notifier.startPeriodic(REPORT_PERIOD);
+  }
+
+  /**
+   * Stop counting, removing the listener so the profiler costs nothing. Prefix rates read NaN until it starts again.
+   */
+  public synchronized void stop()
+  {
+    if (listener == 0)
+    {
+      return;
+    }
+    running = false;
+    nt.removeListener(listener);
+    listener = 0;
+    notifier.stop();
+    synchronized (prefixes)
+    {
+      for (Prefix prefix : prefixes)
+      {
+        prefix.bytesPerSecond = Double.NaN;
+      }
+    }
+  }
+
+  /**
+   * Track the combined rate of every topic whose name starts with a prefix.
+   *
+   * @param prefix Topic name prefix, such as {@code /swerve/}.
+   * @return {@link Prefix} holding the rate as of the last report.
+   */
+  public Prefix addPrefix(String prefix)
+  {
+    Prefix tracked = new Prefix(prefix);
+    synchronized (prefixes)
+    {
+      prefixes.add(tracked);
+    }
+    return tracked;
+  }
+
+  /**
+   * Count one update. Runs on the NetworkTables listener thread.
+   */
+  private void count(NetworkTableEvent event)
+  {
+    ValueEventData data = event.valueData;
+    if (data == null)
+    {
+      return;
+    }
+    int bytes = MESSAGE_OVERHEAD + size(data.value);
+    synchronized (topics)
+    {
+      TopicStats stats = topics.get(data.topic);
+      if (stats == null)
+      {
+        if (topics.containsKey(data.topic))
+        {
+          return;
+        }
+        String name = data.getTopic().getName();
+        if (name.startsWith("/" + TABLE + "/"))
+        {
+          // Remembered with no counting so the name is only fetched once.
+          topics.put(data.topic, null);
+          return;
+        }
+        if (topics.size() >= MAX_TOPICS)
+        {
+          stats = other;
+        } else
+        {
+          stats = new TopicStats(name);
+          topics.put(data.topic, stats);
+        }
+      }
+      stats.bytes += bytes;
+      stats.updates++;
+    }
+  }
+
+  /**
+   * Estimated encoded size of a value.
+   */
+  private static int size(NetworkTableValue value)
+  {
+    switch (value.getType())
+    {
+      case kBoolean:
+        return 1;
+      case kFloat:
+        return Float.BYTES;
+      case kDouble:
+      case kInteger:
+        return Long.BYTES;
+      case kString:
+        return value.getString().length();
+      case kRaw:
+        return value.getRaw().length;
+      case kBooleanArray:
+        return value.getBooleanArray().length;
+      case kFloatArray:
+        return value.getFloatArray().length * Float.BYTES;
+      case kDoubleArray:
+        return value.getDoubleArray().length * Double.BYTES;
+      case kIntegerArray:
+        return value.getIntegerArray().length * Long.BYTES;
+      case kStringArray:
+      {
+        int size = 0;
+        for (String string : value.getStringArray())
+        {
+          size += string.length() + 1;
+        }
+        return size;
+      }
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Turn the counts since the last report into rates, rank them and publish. Runs on the notifier thread.
+   */
+  private void report()
+  {
+    telemetry.start();
+    long   now          = System.nanoTime();
+    double seconds      = (now - lastReport) / 1e9;
+    double totalBytes   = 0;
+    double totalUpdates = 0;
+    lastReport = now;
+
+    ranked.clear();
+    synchronized (topics)
+    {
+      for (TopicStats stats : topics.values())
+      {
+        if (stats != null)
+        {
+          rate(stats, seconds);
+        }
+      }
+      rate(other, seconds);
+    }
+    for (TopicStats stats : ranked)
+    {
+      totalBytes += stats.bytesPerSecond;
+      totalUpdates += stats.updatesPerSecond;
+    }
+    ranked.sort((a, b) -> Double.compare(b.bytesPerSecond, a.bytesPerSecond));
+    synchronized (prefixes)
+    {
+      for (Prefix prefix : prefixes)
+      {
+        if (!running)
+        {
+          // A report that raced stop() must not overwrite the NaN it left.
+          break;
+        }
+        double bytes = 0;
+        for (TopicStats stats : ranked)
+        {
+          if (stats.name.startsWith(prefix.prefix))
+          {
+            bytes += stats.bytesPerSecond;
+          }
+        }
+        prefix.bytesPerSecond = bytes;
+      }
+    }
+
+    int count = Math.min(TOP_COUNT, ranked.size());
+    for (int i = 0; i < TOP_COUNT; i++)
+    {
+      TopicStats stats = i < count ? ranked.get(i) : null;
+      topNames[i] = stats != null ? stats.name : "";
+      topBytes[i] = stats != null ? stats.bytesPerSecond : 0;
+      topUpdates[i] = stats != null ? stats.updatesPerSecond : 0;
+      if (stats != null && stats.bytesLog == null)
+      {
+        stats.bytesLog = MatchLog.getInstance().addDouble("NTProfiler/Topics" + stats.name + "/BytesPerSecond");
+        stats.updatesLog = MatchLog.getInstance().addDouble("NTProfiler/Topics" + stats.name + "/UpdatesPerSecond");
+      }
+    }
+    for (TopicStats stats : ranked)
+    {
+      if (stats.bytesLog != null)
+      {
+        stats.bytesLog.append(stats.bytesPerSecond);
+        stats.updatesLog.append(stats.updatesPerSecond);
+      }
+    }
+
+    namesPublisher.set(topNames);
+    bytesPublisher.set(topBytes);
+    updatesPublisher.set(topUpdates);
+    totalBytesPublisher.set(totalBytes);
+    totalUpdatesPublisher.set(totalUpdates);
+    topicCountPublisher.set(ranked.size());
+    totalBytesLog.append(totalBytes);
+    totalUpdatesLog.append(totalUpdates);
+    telemetry.stop(TOP_COUNT * (Double.BYTES * 2) + 3 * Double.BYTES);
+  }
+
+  /**
+   * Convert a topic's counts to rates and reset them. Called with the map locked.
+   */
+  private void rate(TopicStats stats, double seconds)
+  {
+    stats.bytesPerSecond = stats.bytes / seconds;
+    stats.updatesPerSecond = stats.updates / seconds;
+    stats.bytes = 0;
+    stats.updates = 0;
+    ranked.add(stats);
+  }
+}
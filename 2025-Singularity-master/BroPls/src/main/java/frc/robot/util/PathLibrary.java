@@ -0,0 +1,235 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Precomputed paths from start regions on the field to the goals in {@link PathLibraryGoals}, generated offline by
+ * {@link PathLibraryGenerator}. The file is memory-mapped and only the index header is read at boot; waypoints are
+ * decoded when a path is requested.
+ * <p>
+ * Paths were generated from the center of each start region, so the navgrid is stored alongside them to check the
+ * first leg from wherever the robot actually is in the region.
+ * <p>
+ * File layout, big endian:
+ * <pre>
+ * int   magic, short version
+ * float regionSize, short regionsX, short regionsY
+ * float nodeSize, short columns, short rows
+ * short goalCount, goalCount x (float x, float y, float headingRadians)
+ * rows * columns x byte navgrid, row major, 1 for an obstacle
+ * goalCount * regionsX * regionsY x int record offset, -1 if there is no path
+ * records: short pointCount, pointCount x (float x, float y)
+ * </pre>
+ */
+public final class PathLibrary
+{
+
+  /**
+   * File name relative to the deploy directory.
+   */
+  public static final String FILE_NAME = "pathplanner/pathlibrary.bin";
+  /**
+   * "PPLB"
+   */
+  static final        int    MAGIC     = 0x50504c42;
+  static final        short  VERSION   = 2;
+
+  /**
+   * Maximum distance between a requested goal and a library goal for the library to be used.
+   */
+  private static final double GOAL_TOLERANCE_METERS  = 0.05;
+  /**
+   * Maximum heading difference between a requested goal and a library goal for the library to be used.
+   */
+  private static final double GOAL_TOLERANCE_RADIANS = Math.toRadians(2);
+
+  private final MappedByteBuffer buffer;
+  private final double           regionSize;
+  private final int              regionsX;
+  private final int              regionsY;
+  private final double           nodeSize;
+  private final int              columns;
+  private final int              rows;
+  private final int              gridStart;
+  private final double[]         goalX;
+  private final double[]         goalY;
+  private final double[]         goalHeading;
+  private final int              indexStart;
+
+  private PathLibrary(MappedByteBuffer buffer)
+  {
+    this.buffer = buffer;
+    if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION)
+    {
+      throw new IllegalArgumentException("Not a version " + VERSION + " path library");
+    }
+    regionSize = buffer.getFloat(6);
+    regionsX = buffer.getShort(10);
+    regionsY = buffer.getShort(12);
+    nodeSize = buffer.getFloat(14);
+    columns = buffer.getShort(18);
+    rows = buffer.getShort(20);
+    int goalCount = buffer.getShort(22);
+    goalX = new double[goalCount];
+    goalY = new double[goalCount];
+    goalHeading = new double[goalCount];
+    for (int i = 0; i < goalCount; i++)
+    {
+      int offset = 24 + i * 12;
+      goalX[i] = buffer.getFloat(offset);
+      goalY[i] = buffer.getFloat(offset + 4);
+      goalHeading[i] = buffer.getFloat(offset + 8);
+    }
+    gridStart = 24 + goalCount * 12;
+    indexStart = headerSize(goalCount, columns * rows);
+  }
+
+  /**
+   * Memory-map a path library.
+   *
+   * @param file Library file, usually {@link #FILE_NAME} in the deploy directory.
+   * @return Path library.
+   * @throws IOException If the file cannot be mapped.
+   */
+  public static PathLibrary load(File file) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+    {
+      // The mapping stays valid after the channel is closed.
+      return new PathLibrary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Look up a precomputed path. The first waypoint is replaced with the start pose so the path begins where the robot
+   * is, as long as the navgrid shows a clear line from there to the next waypoint.
+   *
+   * @param start       Current robot pose, blue origin.
+   * @param goal        Goal pose, blue origin.
+   * @param constraints Constraints for the path.
+   * @return Path to follow, or empty if the goal or start region is not in the library or the first leg from the start
+   *     pose would cross an obstacle.
+   */
+  public Optional<PathPlannerPath> getPath(Pose2d start, Pose2d goal, PathConstraints constraints)
+  {
+    int goalIndex = findGoal(goal);
+    int rx        = (int) Math.floor(start.getX() / regionSize);
+    int ry        = (int) Math.floor(start.getY() / regionSize);
+    if (goalIndex < 0 || rx < 0 || rx >= regionsX || ry < 0 || ry >= regionsY)
+    {
+      return Optional.empty();
+    }
+    int offset = buffer.getInt(indexStart + index(goalIndex, rx, ry, regionsX, regionsY) * Integer.BYTES);
+    if (offset < 0)
+    {
+      return Optional.empty();
+    }
+
+    int      pointCount = buffer.getShort(offset);
+    double[] xs         = new double[pointCount];
+    double[] ys         = new double[pointCount];
+    for (int i = 0; i < pointCount; i++)
+    {
+      xs[i] = buffer.getFloat(offset + 2 + i * 8);
+      ys[i] = buffer.getFloat(offset + 2 + i * 8 + 4);
+    }
+    xs[0] = start.getX();
+    ys[0] = start.getY();
+    xs[pointCount - 1] = goal.getX();
+    ys[pointCount - 1] = goal.getY();
+    // The generator only checked the first leg from the region center.
+    if (!lineOfSight(xs[0], ys[0], xs[1], ys[1]))
+    {
+      return Optional.empty();
+    }
+
+    // Waypoint headings are the direction of travel, the robot rotation comes from the goal end state.
+    List<Pose2d> poses = new ArrayList<>(pointCount);
+    for (int i = 0; i < pointCount; i++)
+    {
+      int from = Math.max(0, i - 1);
+      int to   = Math.max(i + 1, 1);
+      if (to >= pointCount)
+      {
+        to = pointCount - 1;
+        from = to - 1;
+      }
+      poses.add(new Pose2d(xs[i], ys[i], new Rotation2d(xs[to] - xs[from], ys[to] - ys[from])));
+    }
+
+    PathPlannerPath path = new PathPlannerPath(PathPlannerPath.waypointsFromPoses(poses),
+                                               constraints,
+                                               null,
+                                               new GoalEndState(0, goal.getRotation()));
+    // Library paths are in blue origin field coordinates already.
+    path.preventFlipping = true;
+    return Optional.of(path);
+  }
+
+  /**
+   * Check that a straight line only crosses free navgrid nodes, sampled the same way as the generator. The end point is
+   * not checked, it is a free node or the goal.
+   */
+  private boolean lineOfSight(double x0, double y0, double x1, double y1)
+  {
+    int steps = Math.max(1, (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0) / (nodeSize / 4)));
+    for (int i = 0; i < steps; i++)
+    {
+      double t   = (double) i / steps;
+      int    col = (int) Math.floor((x0 + (x1 - x0) * t) / nodeSize);
+      int    row = (int) Math.floor((y0 + (y1 - y0) * t) / nodeSize);
+      if (row < 0 || row >= rows || col < 0 || col >= columns || buffer.get(gridStart + row * columns + col) != 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find the library goal matching a pose.
+   *
+   * @return Goal index or -1.
+   */
+  private int findGoal(Pose2d goal)
+  {
+    for (int i = 0; i < goalX.length; i++)
+    {
+      if (Math.hypot(goal.getX() - goalX[i], goal.getY() - goalY[i]) < GOAL_TOLERANCE_METERS &&
+          Math.abs(MathUtil.angleModulus(goal.getRotation().getRadians() - goalHeading[i])) < GOAL_TOLERANCE_RADIANS)
+      {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Position of a path in the offset index.
+   */
+  static int index(int goal, int rx, int ry, int regionsX, int regionsY)
+  {
+    return (goal * regionsY + ry) * regionsX + rx;
+  }
+
+  /**
+   * Size of everything before the offset index in bytes.
+   */
+  static int headerSize(int goalCount, int gridNodes)
+  {
+    return 24 + goalCount * 12 + gridNodes;
+  }
+}
@@ -0,0 +1,352 @@
+package frc.robot.util;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Desktop tool run by the {@code generatePathLibrary} Gradle task. Runs A* over the PathPlanner navgrid from the center
+ * of every start region on the field to every goal in {@link PathLibraryGoals}, shortcuts the result and writes the
+ * waypoints and the navgrid to the binary file read by {@link PathLibrary}.
+ */
+public final class PathLibraryGenerator
+{
+
+  /**
+   * Side length of a start region in meters.
+   */
+  public static final double REGION_SIZE = 1.0;
+
+  private final boolean[] obstacles;
+  private final int       columns;
+  private final int       rows;
+  private final double    nodeSize;
+
+  private PathLibraryGenerator(boolean[] obstacles, int columns, int rows, double nodeSize)
+  {
+    this.obstacles = obstacles;
+    this.columns = columns;
+    this.rows = rows;
+    this.nodeSize = nodeSize;
+  }
+
+  /**
+   * Generate the path library.
+   *
+   * @param args Path to {@code navgrid.json} and the output file.
+   * @throws IOException    If the navgrid cannot be read or the output cannot be written.
+   * @throws ParseException If the navgrid is not valid JSON.
+   */
+  public static void main(String... args) throws IOException, ParseException
+  {
+    if (args.length != 2)
+    {
+      throw new IllegalArgumentException("Usage: PathLibraryGenerator <navgrid.json> <output>");
+    }
+
+    JSONObject navgrid;
+    try (Reader reader = new FileReader(args[0]))
+    {
+      navgrid = (JSONObject) new JSONParser().parse(reader);
+    }
+    JSONObject fieldSize = (JSONObject) navgrid.get("field_size");
+    double     fieldX    = ((Number) fieldSize.get("x")).doubleValue();
+    double     fieldY    = ((Number) fieldSize.get("y")).doubleValue();
+    double     nodeSize  = ((Number) navgrid.get("nodeSizeMeters")).doubleValue();
+    JSONArray  grid      = (JSONArray) navgrid.get("grid");
+    int        rows      = grid.size();
+    int        columns   = ((JSONArray) grid.get(0)).size();
+    boolean[]  obstacles = new boolean[rows * columns];
+    for (int row = 0; row < rows; row++)
+    {
+      JSONArray line = (JSONArray) grid.get(row);
+      for (int col = 0; col < columns; col++)
+      {
+        obstacles[row * columns + col] = (Boolean) line.get(col);
+      }
+    }
+
+    List<Pose2d> goals = PathLibraryGoals.create(AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeAndyMark));
+    int regionsX = (int) Math.ceil(fieldX / REGION_SIZE);
+    int regionsY = (int) Math.ceil(fieldY / REGION_SIZE);
+
+    PathLibraryGenerator generator = new PathLibraryGenerator(obstacles, columns, rows, nodeSize);
+    int[]                offsets   = new int[goals.size() * regionsX * regionsY];
+    Arrays.fill(offsets, -1);
+    ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    DataOutputStream      records     = new DataOutputStream(recordBytes);
+    int                   pathCount   = 0;
+
+    for (int goal = 0; goal < goals.size(); goal++)
+    {
+      Pose2d goalPose = goals.get(goal);
+      for (int ry = 0; ry < regionsY; ry++)
+      {
+        for (int rx = 0; rx < regionsX; rx++)
+        {
+          double   startX = (rx + 0.5) * REGION_SIZE;
+          double   startY = (ry + 0.5) * REGION_SIZE;
+          double[] path   = generator.findPath(startX, startY, goalPose.getX(), goalPose.getY());
+          if (path == null)
+          {
+            continue;
+          }
+          offsets[PathLibrary.index(goal, rx, ry, regionsX, regionsY)] = records.size();
+          records.writeShort(path.length / 2);
+          for (double value : path)
+          {
+            records.writeFloat((float) value);
+          }
+          pathCount++;
+        }
+      }
+    }
+
+    int headerSize = PathLibrary.headerSize(goals.size(), obstacles.length);
+    int indexSize  = offsets.length * Integer.BYTES;
+    try (DataOutputStream out = new DataOutputStream(new FileOutputStream(new File(args[1]))))
+    {
+      out.writeInt(PathLibrary.MAGIC);
+      out.writeShort(PathLibrary.VERSION);
+      out.writeFloat((float) REGION_SIZE);
+      out.writeShort(regionsX);
+      out.writeShort(regionsY);
+      out.writeFloat((float) nodeSize);
+      out.writeShort(columns);
+      out.writeShort(rows);
+      out.writeShort(goals.size());
+      for (Pose2d goalPose : goals)
+      {
+        out.writeFloat((float) goalPose.getX());
+        out.writeFloat((float) goalPose.getY());
+        out.writeFloat((float) goalPose.getRotation().getRadians());
+      }
+      // The navgrid, so the library can check the first leg from the robot's actual start.
+      for (boolean obstacle : obstacles)
+      {
+        out.writeByte(obstacle ? 1 : 0);
+      }
+      for (int offset : offsets)
+      {
+        out.writeInt(offset < 0 ? -1 : headerSize + indexSize + offset);
+      }
+      recordBytes.writeTo(out);
+    }
+    System.out.println("Wrote " + pathCount + " paths to " + args[1]);
+  }
+
+  /**
+   * Find a path between two points.
+   *
+   * @return Flattened {x0, y0, x1, y1, ...} waypoints starting at the start and ending at the goal, or null if there is
+   * no path.
+   */
+  private double[] findPath(double startX, double startY, double goalX, double goalY)
+  {
+    int start = nearestFreeNode(node(startX, startY));
+    int goal  = nearestFreeNode(node(goalX, goalY));
+    // Regions that are mostly obstacle are not worth a path, the robot cannot be there.
+    if (start < 0 || goal < 0 || distance(start, node(startX, startY)) > 1)
+    {
+      return null;
+    }
+
+    int[] parents = aStar(start, goal);
+    if (parents == null)
+    {
+      return null;
+    }
+    List<Integer> nodes = new ArrayList<>();
+    for (int current = goal; current != start; current = parents[current])
+    {
+      nodes.add(0, current);
+    }
+    nodes.add(0, start);
+
+    // Shortcut every node that can be skipped with a straight line.
+    List<Integer> shortcut = new ArrayList<>();
+    shortcut.add(start);
+    int anchor = 0;
+    while (anchor < nodes.size() - 1)
+    {
+      int next = nodes.size() - 1;
+      while (next > anchor + 1 && !lineOfSight(nodes.get(anchor), nodes.get(next)))
+      {
+        next--;
+      }
+      shortcut.add(nodes.get(next));
+      anchor = next;
+    }
+
+    // Replace the snapped end nodes with the exact start and goal points.
+    double[] path = new double[shortcut.size() * 2 + (shortcut.size() == 1 ? 2 : 0)];
+    path[0] = startX;
+    path[1] = startY;
+    for (int i = 1; i < shortcut.size() - 1; i++)
+    {
+      path[i * 2] = centerX(shortcut.get(i));
+      path[i * 2 + 1] = centerY(shortcut.get(i));
+    }
+    path[path.length - 2] = goalX;
+    path[path.length - 1] = goalY;
+    return path;
+  }
+
+  /**
+   * 8 connected A* without cutting obstacle corners.
+   *
+   * @return Parent of every visited node, or null if the goal is unreachable.
+   */
+  private int[] aStar(int start, int goal)
+  {
+    int[]    parents = new int[obstacles.length];
+    double[] costs   = new double[obstacles.length];
+    Arrays.fill(parents, -1);
+    Arrays.fill(costs, Double.POSITIVE_INFINITY);
+    costs[start] = 0;
+    PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+    open.add(new double[]{distance(start, goal), start});
+
+    while (!open.isEmpty())
+    {
+      int current = (int) open.poll()[1];
+      if (current == goal)
+      {
+        return parents;
+      }
+      int row = current / columns;
+      int col = current % columns;
+      for (int dr = -1; dr <= 1; dr++)
+      {
+        for (int dc = -1; dc <= 1; dc++)
+        {
+          int r = row + dr;
+          int c = col + dc;
+          if ((dr == 0 && dc == 0) || r < 0 || r >= rows || c < 0 || c >= columns || obstacles[r * columns + c])
+          {
+            continue;
+          }
+          if (dr != 0 && dc != 0 && (obstacles[row * columns + c] || obstacles[r * columns + col]))
+          {
+            continue;
+          }
+          int    neighbor = r * columns + c;
+          double cost     = costs[current] + ((dr != 0 && dc != 0) ? Math.sqrt(2) : 1);
+          if (cost < costs[neighbor])
+          {
+            costs[neighbor] = cost;
+            parents[neighbor] = current;
+            open.add(new double[]{cost + distance(neighbor, goal), neighbor});
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Breadth first search for the closest node that is not an obstacle.
+   *
+   * @return Node index, or -1 if the point is off the grid.
+   */
+  private int nearestFreeNode(int node)
+  {
+    if (node < 0)
+    {
+      return -1;
+    }
+    boolean[]           visited = new boolean[obstacles.length];
+    ArrayDeque<Integer> queue   = new ArrayDeque<>();
+    queue.add(node);
+    visited[node] = true;
+    while (!queue.isEmpty())
+    {
+      int current = queue.poll();
+      if (!obstacles[current])
+      {
+        return current;
+      }
+      int row = current / columns;
+      int col = current % columns;
+      int[][] neighbors = {{row - 1, col}, {row + 1, col}, {row, col - 1}, {row, col + 1}};
+      for (int[] neighbor : neighbors)
+      {
+        if (neighbor[0] >= 0 && neighbor[0] < rows && neighbor[1] >= 0 && neighbor[1] < columns)
+        {
+          int index = neighbor[0] * columns + neighbor[1];
+          if (!visited[index])
+          {
+            visited[index] = true;
+            queue.add(index);
+          }
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Check that a straight line between two node centers only crosses free nodes.
+   */
+  private boolean lineOfSight(int from, int to)
+  {
+    double x0    = centerX(from);
+    double y0    = centerY(from);
+    double x1    = centerX(to);
+    double y1    = centerY(to);
+    int    steps = (int) Math.ceil(Math.hypot(x1 - x0, y1 - y0) / (nodeSize / 4));
+    for (int i = 1; i < steps; i++)
+    {
+      double t    = (double) i / steps;
+      int    node = node(x0 + (x1 - x0) * t, y0 + (y1 - y0) * t);
+      if (node < 0 || obstacles[node])
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int node(double x, double y)
+  {
+    int col = (int) Math.floor(x / nodeSize);
+    int row = (int) Math.floor(y / nodeSize);
+    return (row < 0 || row >= rows || col < 0 || col >= columns) ? -1 : row * columns + col;
+  }
+
+  private double centerX(int node)
+  {
+    return (node % columns + 0.5) * nodeSize;
+  }
+
+  private double centerY(int node)
+  {
+    return (node / columns + 0.5) * nodeSize;
+  }
+
+  /**
+   * Octile distance in nodes.
+   */
+  private double distance(int a, int b)
+  {
+    int dr = Math.abs(a / columns - b / columns);
+    int dc = Math.abs(a % columns - b % columns);
+    return Math.max(dr, dc) + (Math.sqrt(2) - 1) * Math.min(dr, dc);
+  }
+}
@@ -0,0 +1,84 @@
+package frc.robot.util;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Scoring and loading poses that {@link PathLibraryGenerator} precomputes paths to. The generator writes these poses
+ * into the library file and {@link PathLibrary} reads them back from it, so a driveToPose request only hits the library
+ * when it targets one of these poses. Driver bindings use {@link #nearest} to pick one.
+ */
+public final class PathLibraryGoals
+{
+
+  /**
+   * Distance from the AprilTag to the robot center when lined up, half the bumper length plus a small gap.
+   */
+  public static final double STANDOFF_METERS = 0.711 / 2 + 0.05 + 0.05;
+
+  /**
+   * AprilTags on the 2025 field that we drive up to. Order defines the goal index, only append to this list.
+   */
+  private static final int[] TAG_IDS = {
+      // Red coral stations, processor and reef faces
+      1, 2, 3, 6, 7, 8, 9, 10, 11,
+      // Blue coral stations, processor and reef faces
+      12, 13, 16, 17, 18, 19, 20, 21, 22
+  };
+
+  private PathLibraryGoals()
+  {
+    throw new UnsupportedOperationException("This is a utility class!");
+  }
+
+  /**
+   * Robot poses facing each goal AprilTag.
+   *
+   * @param fieldLayout Field layout of the year.
+   * @return Goal poses, blue origin, in {@link #TAG_IDS} order.
+   */
+  public static List<Pose2d> create(AprilTagFieldLayout fieldLayout)
+  {
+    List<Pose2d> goals = new ArrayList<>(TAG_IDS.length);
+    for (int id : TAG_IDS)
+    {
+      Optional<Pose3d> tagPose = fieldLayout.getTagPose(id);
+      if (tagPose.isEmpty())
+      {
+        throw new RuntimeException("Cannot get AprilTag " + id + " from field " + fieldLayout.toString());
+      }
+      goals.add(tagPose.get().toPose2d().transformBy(new Transform2d(STANDOFF_METERS, 0, Rotation2d.fromDegrees(180))));
+    }
+    return goals;
+  }
+
+  /**
+   * Goal closest to a position.
+   *
+   * @param goals    Goal poses from {@link #create}.
+   * @param position Field position, blue origin.
+   * @return Closest goal.
+   */
+  public static Pose2d nearest(List<Pose2d> goals, Translation2d position)
+  {
+    Pose2d nearest  = goals.get(0);
+    double distance = Double.POSITIVE_INFINITY;
+    for (Pose2d goal : goals)
+    {
+      double d = goal.getTranslation().getDistance(position);
+      if (d < distance)
+      {
+        nearest = goal;
+        distance = d;
+      }
+    }
+    return nearest;
+  }
+}
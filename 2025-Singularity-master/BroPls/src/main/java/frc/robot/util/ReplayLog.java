@@ -0,0 +1,270 @@
+package frc.robot.util;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link MatchLog} file loaded into memory for replay. The robot loops are recovered from the {@code Robot/Loop Time}
+ * records, which are appended once at the end of every main loop. After {@link #setLoop(int)}, each series returns the
+ * last value logged at or before the end of that loop, which is the value the robot code saw in it.
+ * <p>
+ * Loops must be visited in order, series keep a cursor so a whole match replays in linear time.
+ */
+public final class ReplayLog
+{
+
+  /**
+   * Entry appended by {@link frc.robot.Robot} at the end of every loop.
+   */
+  public static final String LOOP_KEY = "Robot/Loop Time";
+
+  /**
+   * Logged doubles of one entry.
+   */
+  public static final class DoubleSeries
+  {
+
+    private final ReplayLog log;
+    private final long[]    timestamps;
+    private final double[]  values;
+    private final double    defaultValue;
+    private       int       cursor = -1;
+
+    private DoubleSeries(ReplayLog log, long[] timestamps, double[] values, double defaultValue)
+    {
+      this.log = log;
+      this.timestamps = timestamps;
+      this.values = values;
+      this.defaultValue = defaultValue;
+    }
+
+    /**
+     * Value at the current loop.
+     *
+     * @return Last value logged at or before the end of the loop, the default if none.
+     */
+    public double get()
+    {
+      cursor = advance(timestamps, cursor, log.time);
+      return cursor < 0 ? defaultValue : values[cursor];
+    }
+  }
+
+  /**
+   * Logged booleans of one entry.
+   */
+  public static final class BooleanSeries
+  {
+
+    private final ReplayLog log;
+    private final long[]    timestamps;
+    private final boolean[] values;
+    private       int       cursor = -1;
+
+    private BooleanSeries(ReplayLog log, long[] timestamps, boolean[] values)
+    {
+      this.log = log;
+      this.timestamps = timestamps;
+      this.values = values;
+    }
+
+    /**
+     * Value at the current loop.
+     *
+     * @return Last value logged at or before the end of the loop, false if none.
+     */
+    public boolean get()
+    {
+      cursor = advance(timestamps, cursor, log.time);
+      return cursor >= 0 && values[cursor];
+    }
+  }
+
+  /**
+   * Raw records of one entry while loading.
+   */
+  private static final class Entry
+  {
+
+    private final String type;
+    private       long[] timestamps = new long[256];
+    private       long[] values     = new long[256];
+    private       int    size       = 0;
+
+    private Entry(String type)
+    {
+      this.type = type;
+    }
+
+    private void add(long timestamp, long value)
+    {
+      if (size == timestamps.length)
+      {
+        timestamps = Arrays.copyOf(timestamps, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+      }
+      timestamps[size] = timestamp;
+      values[size] = value;
+      size++;
+    }
+  }
+
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final long[]             loops;
+  /**
+   * End of the current loop in FPGA microseconds.
+   */
+  private       long               time    = Long.MIN_VALUE;
+
+  /**
+   * Load a log.
+   *
+   * @param file WPILOG written by {@link MatchLog}.
+   * @throws IOException If the file cannot be read or is not a WPILOG.
+   */
+  public ReplayLog(File file) throws IOException
+  {
+    DataLogReader reader = new DataLogReader(file.getAbsolutePath());
+    if (!reader.isValid())
+    {
+      throw new IOException(file + " is not a WPILOG file");
+    }
+    Map<Integer, Entry> byId = new HashMap<>();
+    for (DataLogRecord record : reader)
+    {
+      if (record.isStart())
+      {
+        DataLogRecord.StartRecordData start = record.getStartData();
+        Entry                         entry = entries.computeIfAbsent(start.name, name -> new Entry(start.type));
+        byId.put(start.entry, entry);
+        continue;
+      }
+      if (record.isControl())
+      {
+        continue;
+      }
+      Entry entry = byId.get(record.getEntry());
+      if (entry == null)
+      {
+        continue;
+      }
+      switch (entry.type)
+      {
+        case "double" -> entry.add(record.getTimestamp(), Double.doubleToRawLongBits(record.getDouble()));
+        case "boolean" -> entry.add(record.getTimestamp(), record.getBoolean() ? 1 : 0);
+        case "int64" -> entry.add(record.getTimestamp(), record.getInteger());
+        default ->
+        {
+          // Only primitive entries are replayed.
+        }
+      }
+    }
+    Entry loopEntry = entries.get(LOOP_KEY);
+    if (loopEntry == null || loopEntry.size == 0)
+    {
+      throw new IOException(file + " has no " + LOOP_KEY + " records");
+    }
+    loops = Arrays.copyOf(loopEntry.timestamps, loopEntry.size);
+  }
+
+  /**
+   * Number of robot loops in the log.
+   *
+   * @return Loop count.
+   */
+  public int getLoopCount()
+  {
+    return loops.length;
+  }
+
+  /**
+   * Time from the first to the last loop.
+   *
+   * @return Duration in seconds.
+   */
+  public double getDurationSeconds()
+  {
+    return (loops[loops.length - 1] - loops[0]) / 1e6;
+  }
+
+  /**
+   * Move to a loop. Loops must be visited in increasing order.
+   *
+   * @param index Loop index, from 0 to {@link #getLoopCount()} - 1.
+   */
+  public void setLoop(int index)
+  {
+    time = loops[index];
+  }
+
+  /**
+   * Whether the log has an entry.
+   *
+   * @param name Entry name.
+   * @return true if the entry was logged.
+   */
+  public boolean has(String name)
+  {
+    return entries.containsKey(name);
+  }
+
+  /**
+   * Get a double entry. A missing entry returns the default at every loop.
+   *
+   * @param name         Entry name.
+   * @param defaultValue Value before the first record.
+   * @return {@link DoubleSeries}
+   */
+  public DoubleSeries getDouble(String name, double defaultValue)
+  {
+    Entry entry = entries.get(name);
+    if (entry == null)
+    {
+      return new DoubleSeries(this, new long[0], new double[0], defaultValue);
+    }
+    double[] values = new double[entry.size];
+    for (int i = 0; i < entry.size; i++)
+    {
+      values[i] = entry.type.equals("int64") ? entry.values[i] : Double.longBitsToDouble(entry.values[i]);
+    }
+    return new DoubleSeries(this, Arrays.copyOf(entry.timestamps, entry.size), values, defaultValue);
+  }
+
+  /**
+   * Get a boolean entry. A missing entry returns false at every loop.
+   *
+   * @param name Entry name.
+   * @return {@link BooleanSeries}
+   */
+  public BooleanSeries getBoolean(String name)
+  {
+    Entry entry = entries.get(name);
+    if (entry == null)
+    {
+      return new BooleanSeries(this, new long[0], new boolean[0]);
+    }
+    boolean[] values = new boolean[entry.size];
+    for (int i = 0; i < entry.size; i++)
+    {
+      values[i] = entry.values[i] != 0;
+    }
+    return new BooleanSeries(this, Arrays.copyOf(entry.timestamps, entry.size), values);
+  }
+
+  /**
+   * Move a cursor forward to the last record at or before a time.
+   */
+  private static int advance(long[] timestamps, int cursor, long time)
+  {
+    while (cursor + 1 < timestamps.length && timestamps[cursor + 1] <= time)
+    {
+      cursor++;
+    }
+    return cursor;
+  }
+}
@@ -0,0 +1,50 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import java.io.File;
+
+/**
+ * Where recordings are written, picked the same way as {@code DataLogManager}: the USB drive at {@code /u} on the
+ * roboRIO if one is mounted and writable, otherwise the roboRIO's internal storage under {@code /home/lvuser}. In
+ * simulation recordings go to the working directory.
+ */
+public final class RobotStorage
+{
+
+  /**
+   * Mount point of the USB drive on the roboRIO.
+   */
+  private static final String USB_DRIVE = "/u";
+  /**
+   * Fallback on the roboRIO's internal storage.
+   */
+  private static final String INTERNAL  = "/home/lvuser";
+
+  private RobotStorage()
+  {
+    throw new UnsupportedOperationException("This is a utility class!");
+  }
+
+  /**
+   * Directory for one kind of recording.
+   *
+   * @param name Directory name, such as {@code logs}.
+   * @return Directory to write to, not necessarily created yet.
+   */
+  public static File directory(String name)
+  {
+    if (!RobotBase.isReal())
+    {
+      return new File(name);
+    }
+    File usb = new File(USB_DRIVE);
+    if (usb.isDirectory() && usb.canWrite())
+    {
+      return new File(usb, name);
+    }
+    DriverStation.reportWarning("No writable USB drive at " + USB_DRIVE + ", writing " + name + " to " + INTERNAL +
+                                ". Internal storage is small, plug in a USB drive.", false);
+    return new File(INTERNAL, name);
+  }
+}
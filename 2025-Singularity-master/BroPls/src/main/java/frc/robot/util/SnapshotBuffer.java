@@ -0,0 +1,80 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * Latest value of a fixed number of doubles, handed from one writer thread to any reader thread without locks or
+ * allocation. The writer bumps a sequence counter to odd before writing and back to even after, and a reader retries
+ * until it copies the values with the same even sequence before and after, so it never sees half of one write and half
+ * of another.
+ */
+public final class SnapshotBuffer
+{
+
+  private final double[]  values;
+  /**
+   * Odd while a write is in progress, only written by the writer.
+   */
+  private volatile long   sequence = 0;
+
+  /**
+   * Create a buffer of zeros.
+   *
+   * @param size Number of doubles.
+   */
+  public SnapshotBuffer(int size)
+  {
+    values = new double[size];
+  }
+
+  /**
+   * Number of doubles in a snapshot.
+   *
+   * @return Size.
+   */
+  public int size()
+  {
+    return values.length;
+  }
+
+  /**
+   * Publish new values. Must only be called from the writer thread.
+   *
+   * @param in Array of at least {@link #size()} elements to copy from.
+   */
+  public void write(double[] in)
+  {
+    long start = sequence;
+    sequence = start + 1;
+    // Keep the copy from being moved ahead of the odd sequence.
+    VarHandle.storeStoreFence();
+    System.arraycopy(in, 0, values, 0, values.length);
+    // Volatile store publishes the values to readers.
+    sequence = start + 2;
+  }
+
+  /**
+   * Copy the latest values. Safe to call from any thread, spins only while a write is in progress.
+   *
+   * @param out Array of at least {@link #size()} elements to receive the values.
+   * @return Number of writes so far, for telling whether anything changed since the last read.
+   */
+  public long read(double[] out)
+  {
+    while (true)
+    {
+      long before = sequence;
+      if ((before & 1) == 0)
+      {
+        System.arraycopy(values, 0, out, 0, values.length);
+        // Keep the copy from being moved past the check, like StampedLock.validate.
+        VarHandle.acquireFence();
+        if (sequence == before)
+        {
+          return before / 2;
+        }
+      }
+      Thread.onSpinWait();
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package frc.robot.util;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Every Phoenix 6 status signal the robot reads, declared up front with the rate it is needed at.
+ * <p>
+ * Subsystems declare their signals through {@link #addDevice(String, ParentDevice, boolean)} while they are
+ * constructed. {@link #configure()} then applies the rates and, for devices the robot owns outright, switches off every
+ * frame nobody declared. {@link #refresh()} refreshes all main loop signals in one batched call at the start of each
+ * loop, so readers only use the cached values and every subsystem sees samples from the same instant.
+ * <p>
+ * Devices read by another thread, like the swerve modules YAGSL refreshes from the odometry thread, get their rates
+ * applied but are left out of the batch so one signal is never refreshed from two threads.
+ * <p>
+ * An estimate of each device's share of the bus is published under {@code /CAN} once a second. For batched devices the
+ * age of the oldest signal is published alongside it and logged every loop as {@code CAN/<device>/Latency} in seconds.
+ * Devices read by another thread have no age here, since reading their signal timestamps from the main thread would race
+ * the thread refreshing them. Neither do devices with no declared signals, like a follower registered only so its
+ * frames are switched off, since a constant 0 would skew the latency statistics.
+ */
+public final class StatusSignalRegistry
+{
+
+  /**
+   * Seconds between publishes.
+   */
+  private static final double PUBLISH_PERIOD      = 1.0;
+  /**
+   * Approximate size of one status frame on the wire, including stuffing, in bits.
+   */
+  private static final double BITS_PER_FRAME      = 128;
+  /**
+   * CAN bus bit rate.
+   */
+  private static final double BUS_BITS_PER_SECOND = 1e6;
+
+  private static final StatusSignalRegistry instance = new StatusSignalRegistry();
+
+  /**
+   * Signals declared for one device.
+   */
+  public static final class Device
+  {
+
+    private final String                 name;
+    private final ParentDevice           device;
+    private final boolean                batched;
+    private final List<BaseStatusSignal> signals     = new ArrayList<>();
+    private final List<Double>           frequencies = new ArrayList<>();
+    private final DoublePublisher        utilizationPublisher;
+    /**
+     * Created by {@link #configure()} for batched devices with declared signals, null otherwise.
+     */
+    private       MatchLog.DoubleChannel latencyLog;
+    private       DoublePublisher        agePublisher;
+
+    private Device(NetworkTable table, String name, ParentDevice device, boolean batched)
+    {
+      this.name = name;
+      this.device = device;
+      this.batched = batched;
+      utilizationPublisher = table.getDoubleTopic(name + "/EstimatedUtilization").publish();
+    }
+
+    /**
+     * Declare signals read at the given rate.
+     *
+     * @param frequencyHz Update frequency in Hz.
+     * @param signals     Signals of this device.
+     * @return This device, for chaining.
+     */
+    public Device add(double frequencyHz, BaseStatusSignal... signals)
+    {
+      for (BaseStatusSignal signal : signals)
+      {
+        this.signals.add(signal);
+        frequencies.add(frequencyHz);
+      }
+      return this;
+    }
+
+    /**
+     * Age of the oldest signal of this device as of its last refresh. Call from the main thread.
+     *
+     * @return Age in seconds, NaN if the device has no declared signals or is not batched and so is refreshed by another
+     *     thread.
+     */
+    public double getSignalAge()
+    {
+      if (!batched || signals.isEmpty())
+      {
+        return Double.NaN;
+      }
+      double age = 0;
+      for (int i = 0; i < signals.size(); i++)
+      {
+        age = Math.max(age, signals.get(i).getTimestamp().getLatency());
+      }
+      return age;
+    }
+
+    /**
+     * Upper bound of this device's share of the bus from its status frames, counting each signal as its own frame.
+     *
+     * @return Fraction of the bus between 0 and 1.
+     */
+    public double getEstimatedUtilization()
+    {
+      double frames = 0;
+      for (int i = 0; i < signals.size(); i++)
+      {
+        frames += signals.get(i).getAppliedUpdateFrequency();
+      }
+      return frames * BITS_PER_FRAME / BUS_BITS_PER_SECOND;
+    }
+  }
+
+  private final NetworkTable       table;
+  private final List<Device>       devices     = new ArrayList<>();
+  private       BaseStatusSignal[] batch       = new BaseStatusSignal[0];
+  private       StatusCode         lastStatus  = StatusCode.OK;
+  private       long               lastPublish = 0;
+  private       boolean            configured  = false;
+
+  private StatusSignalRegistry()
+  {
+    table = NetworkTableInstance.getDefault().getTable("CAN");
+  }
+
+  /**
+   * Get the robot wide signal registry.
+   *
+   * @return {@link StatusSignalRegistry}
+   */
+  public static StatusSignalRegistry getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Register a device. Call from the main thread before {@link #configure()}.
+   *
+   * @param name    Device name shown under {@code /CAN}.
+   * @param device  Phoenix 6 device.
+   * @param batched true to refresh its signals in the main loop batch, switch off its undeclared frames and log its
+   *                signal age, false if another thread reads it and may rely on frames not declared here.
+   * @return {@link Device} to declare the signals on.
+   */
+  public Device addDevice(String name, ParentDevice device, boolean batched)
+  {
+    Device entry = new Device(table, name, device, batched);
+    devices.add(entry);
+    return entry;
+  }
+
+  /**
+   * Apply the declared rates, switch off undeclared frames on batched devices and build the refresh batch. Call once
+   * after every subsystem has been created.
+   */
+  public void configure()
+  {
+    if (configured)
+    {
+      return;
+    }
+    configured = true;
+    List<BaseStatusSignal> batched = new ArrayList<>();
+    List<ParentDevice>     owned   = new ArrayList<>();
+    for (Device device : devices)
+    {
+      for (int i = 0; i < device.signals.size(); i++)
+      {
+        report(device, device.signals.get(i).setUpdateFrequency(device.frequencies.get(i)));
+      }
+      if (device.batched)
+      {
+        batched.addAll(device.signals);
+        owned.add(device.device);
+        // Only batched signals are refreshed on the main thread, so only their age can be read from it.
+        if (!device.signals.isEmpty())
+        {
+          device.latencyLog = MatchLog.getInstance().addDouble("CAN/" + device.name + "/Latency");
+          device.agePublisher = table.getDoubleTopic(device.name + "/SignalAgeMs").publish();
+        }
+      }
+    }
+    // Declared rates are kept, everything else on these devices is disabled.
+    if (!owned.isEmpty())
+    {
+      StatusCode status = ParentDevice.optimizeBusUtilizationForAll(owned.toArray(new ParentDevice[0]));
+      if (!status.isOK())
+      {
+        DriverStation.reportWarning("Failed to optimize CAN bus utilization: " + status, false);
+      }
+    }
+    batch = batched.toArray(new BaseStatusSignal[0]);
+  }
+
+  /**
+   * Refresh every batched signal in one call and log the signal age of every batched device with declared signals. Call at the start of each
+   * loop, before any subsystem reads its inputs.
+   */
+  public void refresh()
+  {
+    if (batch.length > 0)
+    {
+      StatusCode status = BaseStatusSignal.refreshAll(batch);
+      // Report only changes in status, a missing device would otherwise warn every loop.
+      if (status != lastStatus && !status.isOK())
+      {
+        DriverStation.reportWarning("Status signal refresh failed: " + status, false);
+      }
+      lastStatus = status;
+    }
+    for (int i = 0; i < devices.size(); i++)
+    {
+      Device device = devices.get(i);
+      if (device.latencyLog != null)
+      {
+        device.latencyLog.append(device.getSignalAge());
+      }
+    }
+
+    long now = RobotController.getFPGATime();
+    if (now - lastPublish >= PUBLISH_PERIOD * 1e6)
+    {
+      lastPublish = now;
+      for (int i = 0; i < devices.size(); i++)
+      {
+        Device device = devices.get(i);
+        if (device.agePublisher != null)
+        {
+          device.agePublisher.set(device.getSignalAge() * 1e3);
+        }
+        device.utilizationPublisher.set(device.getEstimatedUtilization());
+      }
+    }
+  }
+
+  private static void report(Device device, StatusCode status)
+  {
+    if (!status.isOK())
+    {
+      DriverStation.reportWarning("Failed to set signal rate on " + device.name + ": " + status, false);
+    }
+  }
+}
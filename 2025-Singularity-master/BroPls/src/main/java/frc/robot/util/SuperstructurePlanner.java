@@ -0,0 +1,510 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.Constants;
+import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.PivotSubsystem;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Collision-free joint trajectories for the elevator and pivot, planned in (height, angle) space around rectangular
+ * keep-out regions.
+ * <p>
+ * Each joint follows the same trapezoid profile its motor controller runs on board, so a plan is a list of
+ * {@link Segment segments} where both joints start and end at rest, and one of them may start late so the other clears
+ * a keep-out region first. For every segment the delays are searched in fixed steps and the fastest pair whose sampled
+ * trajectory stays out of every region is kept. Plans with several segments go through waypoints at the corners of the
+ * regions, found with Dijkstra over the fastest segment between every pair of points.
+ * <p>
+ * Plans between every pair of {@link Preset presets} are computed once when the planner is created, so a preset
+ * button only looks a plan up. Moves from anywhere else take a few milliseconds with no fixed bound, so
+ * {@link #planAsync(double, double, Preset)} runs them on a background thread instead of the main loop. Planning only
+ * reads final fields, so it is safe from any thread.
+ */
+public final class SuperstructurePlanner
+{
+
+  /**
+   * Step between the delays tried for the late joint, in seconds.
+   */
+  private static final double DELAY_STEP        = 0.02;
+  /**
+   * Step between collision checks along a trajectory, in seconds.
+   */
+  private static final double SAMPLE_STEP       = 0.005;
+  /**
+   * Distance waypoints are kept from the corners of a region, in inches and pivot motor rotations.
+   */
+  private static final double HEIGHT_MARGIN     = 1.0;
+  private static final double ANGLE_MARGIN      = 0.1;
+  /**
+   * Pivot travel in motor rotations. Placeholder, measure on the robot.
+   */
+  private static final double MIN_ANGLE         = 0.0;
+  private static final double MAX_ANGLE         = 3.5;
+  /**
+   * Distance from a preset within which a move starts from its precomputed plan.
+   */
+  private static final double HEIGHT_TOLERANCE  = Constants.kAllowedError;
+  private static final double ANGLE_TOLERANCE   = PivotSubsystem.GOAL_TOLERANCE;
+
+  /**
+   * Regions the pivot must not enter at these heights. Placeholders, measure on the robot: the pivot swinging through
+   * the middle of its travel hits the brace below {@link Constants#kBracePosition}, and cannot reach past
+   * {@link #L4_CLEAR_ANGLE} above {@link Constants#kL4TransitionPosition}.
+   */
+  private static final double    BRACE_MIN_ANGLE = 1.0;
+  private static final double    BRACE_MAX_ANGLE = 2.5;
+  private static final double    L4_CLEAR_ANGLE  = 1.0;
+  private static final KeepOut[] KEEP_OUTS       = {
+      new KeepOut(0, Constants.kBracePosition, BRACE_MIN_ANGLE, BRACE_MAX_ANGLE),
+      new KeepOut(Constants.kL4TransitionPosition, Constants.kMaxHeight, L4_CLEAR_ANGLE, MAX_ANGLE)};
+
+  /**
+   * Superstructure presets, elevator height and pivot angle.
+   */
+  public enum Preset
+  {
+    GROUND_INTAKE(Elevator.GROUND_INTAKE_POSITION_E, PivotSubsystem.GROUND_INTAKE_POSITION),
+    ALGAE1(Elevator.ALGAE1_POSITION_E, PivotSubsystem.ALGAE1_POSITION),
+    ALGAE2(Elevator.ALGAE2_POSITION_E, PivotSubsystem.ALGAE2_POSITION),
+    BARGE_SHOOT(Elevator.BARGE_SHOOT_POSITION_E, PivotSubsystem.BARGE_SHOOT_POSITION);
+
+    /**
+     * Elevator height in inches.
+     */
+    public final double height;
+    /**
+     * Pivot angle in motor rotations.
+     */
+    public final double angle;
+
+    Preset(double height, double angle)
+    {
+      this.height = height;
+      this.angle = angle;
+    }
+  }
+
+  /**
+   * Rectangle in (height, angle) space, edges included.
+   */
+  private static final class KeepOut
+  {
+
+    private final double minHeight;
+    private final double maxHeight;
+    private final double minAngle;
+    private final double maxAngle;
+
+    private KeepOut(double minHeight, double maxHeight, double minAngle, double maxAngle)
+    {
+      this.minHeight = minHeight;
+      this.maxHeight = maxHeight;
+      this.minAngle = minAngle;
+      this.maxAngle = maxAngle;
+    }
+
+    private boolean contains(double height, double angle)
+    {
+      return height >= minHeight && height <= maxHeight && angle >= minAngle && angle <= maxAngle;
+    }
+  }
+
+  /**
+   * Trapezoid profile of one joint from rest to rest, matching the motor controller's.
+   */
+  private static final class Profile
+  {
+
+    private final double maxVelocity;
+    private final double maxAcceleration;
+
+    private Profile(double maxVelocity, double maxAcceleration)
+    {
+      this.maxVelocity = maxVelocity;
+      this.maxAcceleration = maxAcceleration;
+    }
+
+    /**
+     * Time to move a distance.
+     */
+    private double duration(double distance)
+    {
+      double d = Math.abs(distance);
+      if (d * maxAcceleration <= maxVelocity * maxVelocity)
+      {
+        return 2 * Math.sqrt(d / maxAcceleration);
+      }
+      return d / maxVelocity + maxVelocity / maxAcceleration;
+    }
+
+    /**
+     * Displacement a time after starting a move of the given distance.
+     */
+    private double displacement(double distance, double t)
+    {
+      double d     = Math.abs(distance);
+      double total = duration(distance);
+      if (t <= 0)
+      {
+        return 0;
+      }
+      if (t >= total)
+      {
+        return distance;
+      }
+      double rampTime = Math.min(maxVelocity / maxAcceleration, total / 2);
+      double x;
+      if (t < rampTime)
+      {
+        x = 0.5 * maxAcceleration * t * t;
+      } else if (t < total - rampTime)
+      {
+        x = 0.5 * maxAcceleration * rampTime * rampTime + maxVelocity * (t - rampTime);
+      } else
+      {
+        double remaining = total - t;
+        x = d - 0.5 * maxAcceleration * remaining * remaining;
+      }
+      return Math.copySign(x, distance);
+    }
+  }
+
+  /**
+   * Move of both joints from rest to rest. One joint starts at the beginning of the segment, the other may start late.
+   */
+  public static final class Segment
+  {
+
+    public final  double  fromHeight;
+    public final  double  fromAngle;
+    public final  double  toHeight;
+    public final  double  toAngle;
+    /**
+     * Time after the start of the segment each joint starts moving, in seconds.
+     */
+    public final  double  elevatorDelay;
+    public final  double  pivotDelay;
+    /**
+     * Time until both joints have arrived, in seconds.
+     */
+    public final  double  duration;
+    private final Profile elevator;
+    private final Profile pivot;
+
+    private Segment(double fromHeight, double fromAngle, double toHeight, double toAngle, double elevatorDelay,
+                    double pivotDelay, Profile elevator, Profile pivot)
+    {
+      this.fromHeight = fromHeight;
+      this.fromAngle = fromAngle;
+      this.toHeight = toHeight;
+      this.toAngle = toAngle;
+      this.elevatorDelay = elevatorDelay;
+      this.pivotDelay = pivotDelay;
+      this.elevator = elevator;
+      this.pivot = pivot;
+      duration = Math.max(elevatorDelay + elevator.duration(toHeight - fromHeight),
+                          pivotDelay + pivot.duration(toAngle - fromAngle));
+    }
+
+    /**
+     * Planned elevator height.
+     *
+     * @param t Time since the start of the segment in seconds.
+     * @return Height in inches.
+     */
+    public double height(double t)
+    {
+      return fromHeight + elevator.displacement(toHeight - fromHeight, t - elevatorDelay);
+    }
+
+    /**
+     * Planned pivot angle.
+     *
+     * @param t Time since the start of the segment in seconds.
+     * @return Angle in motor rotations.
+     */
+    public double angle(double t)
+    {
+      return fromAngle + pivot.displacement(toAngle - fromAngle, t - pivotDelay);
+    }
+
+    private boolean isClear(KeepOut[] keepOuts)
+    {
+      for (double t = 0; ; t += SAMPLE_STEP)
+      {
+        double time   = Math.min(t, duration);
+        double height = height(time);
+        double angle  = angle(time);
+        for (KeepOut keepOut : keepOuts)
+        {
+          if (keepOut.contains(height, angle))
+          {
+            return false;
+          }
+        }
+        if (time >= duration)
+        {
+          return true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Segments to run in order.
+   */
+  public static final class Plan
+  {
+
+    /**
+     * Segments, empty if already there.
+     */
+    public final List<Segment> segments;
+    /**
+     * Planned time of the whole move in seconds.
+     */
+    public final double        duration;
+
+    private Plan(List<Segment> segments, double duration)
+    {
+      this.segments = segments;
+      this.duration = duration;
+    }
+  }
+
+  private final Profile         elevator;
+  private final Profile         pivot;
+  private final KeepOut[]       keepOuts;
+  private final Plan[][]        table;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "SuperstructurePlanner");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  /**
+   * Create a planner with the elevator and pivot constraints and precompute the plans between all presets.
+   */
+  public SuperstructurePlanner()
+  {
+    elevator = new Profile(Constants.kElevatorCruiseVelocity, Constants.kMaxAcceleration);
+    pivot = new Profile(PivotSubsystem.MAX_VELOCITY, PivotSubsystem.MAX_ACCELERATION);
+    keepOuts = KEEP_OUTS;
+
+    Preset[] presets = Preset.values();
+    table = new Plan[presets.length][presets.length];
+    for (Preset from : presets)
+    {
+      for (Preset to : presets)
+      {
+        Plan plan = plan(from.height, from.angle, to.height, to.angle);
+        if (plan == null)
+        {
+          DriverStation.reportWarning("No collision-free move from " + from + " to " + to, false);
+        }
+        table[from.ordinal()][to.ordinal()] = plan;
+      }
+    }
+    // Start the planner thread now rather than on the first button press away from a preset
+    CompletableFuture.runAsync(() -> {}, executor);
+  }
+
+  /**
+   * Precomputed plan between two presets.
+   *
+   * @param from Starting preset.
+   * @param to   Goal preset.
+   * @return Plan, null if there is no collision-free move.
+   */
+  public Plan getPlan(Preset from, Preset to)
+  {
+    return table[from.ordinal()][to.ordinal()];
+  }
+
+  /**
+   * Plan to a preset from the current state, using the precomputed plan when the state is at a preset.
+   *
+   * @param height Current elevator height in inches.
+   * @param angle  Current pivot angle in motor rotations.
+   * @param to     Goal preset.
+   * @return Plan, null if there is no collision-free move.
+   */
+  public Plan getPlan(double height, double angle, Preset to)
+  {
+    Preset from = presetAt(height, angle);
+    return from != null ? getPlan(from, to) : plan(height, angle, to.height, to.angle);
+  }
+
+  /**
+   * Plan to a preset from the current state without blocking. At a preset the precomputed plan is returned already
+   * completed, anywhere else the plan is computed on the planner thread.
+   *
+   * @param height Current elevator height in inches.
+   * @param angle  Current pivot angle in motor rotations.
+   * @param to     Goal preset.
+   * @return Future plan, completing with null if there is no collision-free move.
+   */
+  public CompletableFuture<Plan> planAsync(double height, double angle, Preset to)
+  {
+    Preset from = presetAt(height, angle);
+    if (from != null)
+    {
+      return CompletableFuture.completedFuture(getPlan(from, to));
+    }
+    return CompletableFuture.supplyAsync(() -> plan(height, angle, to.height, to.angle), executor);
+  }
+
+  /**
+   * Preset the state is within tolerance of.
+   *
+   * @return Preset, null if the state is not at one.
+   */
+  private static Preset presetAt(double height, double angle)
+  {
+    for (Preset preset : Preset.values())
+    {
+      if (Math.abs(height - preset.height) <= HEIGHT_TOLERANCE && Math.abs(angle - preset.angle) <= ANGLE_TOLERANCE)
+      {
+        return preset;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Fastest collision-free plan between two states at rest. Regions containing the start are ignored so a mechanism
+   * left inside one can still move out.
+   *
+   * @param fromHeight Start height in inches.
+   * @param fromAngle  Start angle in motor rotations.
+   * @param toHeight   Goal height in inches.
+   * @param toAngle    Goal angle in motor rotations.
+   * @return Plan, null if there is no collision-free move.
+   */
+  public Plan plan(double fromHeight, double fromAngle, double toHeight, double toAngle)
+  {
+    List<KeepOut> active = new ArrayList<>();
+    for (KeepOut keepOut : keepOuts)
+    {
+      if (!keepOut.contains(fromHeight, fromAngle))
+      {
+        active.add(keepOut);
+      }
+    }
+    KeepOut[] regions = active.toArray(new KeepOut[0]);
+
+    // Start, goal and the corners of every region, kept inside the joint limits.
+    List<double[]> points = new ArrayList<>();
+    points.add(new double[]{fromHeight, fromAngle});
+    points.add(new double[]{toHeight, toAngle});
+    for (KeepOut keepOut : regions)
+    {
+      for (double height : new double[]{keepOut.minHeight - HEIGHT_MARGIN, keepOut.maxHeight + HEIGHT_MARGIN})
+      {
+        for (double angle : new double[]{keepOut.minAngle - ANGLE_MARGIN, keepOut.maxAngle + ANGLE_MARGIN})
+        {
+          if (height >= 0 && height <= Constants.kMaxHeight && angle >= MIN_ANGLE && angle <= MAX_ANGLE)
+          {
+            points.add(new double[]{height, angle});
+          }
+        }
+      }
+    }
+
+    // Dijkstra over the complete graph, edges found lazily since most are never needed.
+    int       count    = points.size();
+    double[]  time     = new double[count];
+    int[]     previous = new int[count];
+    Segment[] via      = new Segment[count];
+    boolean[] done     = new boolean[count];
+    Arrays.fill(time, Double.POSITIVE_INFINITY);
+    Arrays.fill(previous, -1);
+    time[0] = 0;
+    while (true)
+    {
+      int node = -1;
+      for (int i = 0; i < count; i++)
+      {
+        if (!done[i] && (node < 0 || time[i] < time[node]))
+        {
+          node = i;
+        }
+      }
+      if (node < 0 || time[node] == Double.POSITIVE_INFINITY)
+      {
+        return null;
+      }
+      if (node == 1)
+      {
+        break;
+      }
+      done[node] = true;
+      for (int next = 0; next < count; next++)
+      {
+        if (done[next])
+        {
+          continue;
+        }
+        double[] a       = points.get(node);
+        double[] b       = points.get(next);
+        Segment  segment = fastestSegment(a[0], a[1], b[0], b[1], regions);
+        if (segment != null && time[node] + segment.duration < time[next])
+        {
+          time[next] = time[node] + segment.duration;
+          previous[next] = node;
+          via[next] = segment;
+        }
+      }
+    }
+
+    List<Segment> segments = new ArrayList<>();
+    for (int node = 1; previous[node] >= 0; node = previous[node])
+    {
+      segments.add(via[node]);
+    }
+    Collections.reverse(segments);
+    return new Plan(List.copyOf(segments), time[1]);
+  }
+
+  /**
+   * Fastest collision-free segment between two points, trying every delay of either joint in {@link #DELAY_STEP}
+   * steps, shortest total time first.
+   */
+  private Segment fastestSegment(double fromHeight, double fromAngle, double toHeight, double toAngle,
+                                 KeepOut[] regions)
+  {
+    double elevatorTime = elevator.duration(toHeight - fromHeight);
+    double pivotTime    = pivot.duration(toAngle - fromAngle);
+    // Candidate delays, elevator late first, then pivot late; a delay past the other joint's move never helps.
+    List<double[]> delays = new ArrayList<>();
+    delays.add(new double[]{0, 0});
+    for (double delay = DELAY_STEP; delay < pivotTime + DELAY_STEP; delay += DELAY_STEP)
+    {
+      delays.add(new double[]{delay, 0});
+    }
+    for (double delay = DELAY_STEP; delay < elevatorTime + DELAY_STEP; delay += DELAY_STEP)
+    {
+      delays.add(new double[]{0, delay});
+    }
+    delays.sort((a, b) -> Double.compare(Math.max(a[0] + elevatorTime, a[1] + pivotTime),
+                                         Math.max(b[0] + elevatorTime, b[1] + pivotTime)));
+    for (double[] delay : delays)
+    {
+      Segment segment = new Segment(fromHeight, fromAngle, toHeight, toAngle, delay[0], delay[1], elevator, pivot);
+      if (segment.isClear(regions))
+      {
+        return segment;
+      }
+    }
+    return null;
+  }
+}
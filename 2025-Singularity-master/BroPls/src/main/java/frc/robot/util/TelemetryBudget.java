@@ -0,0 +1,268 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.TimedRobot;
+import java.util.ArrayList;
+import java.util.List;
+import swervelib.telemetry.SwerveDriveTelemetry;
+import swervelib.telemetry.SwerveDriveTelemetry.TelemetryVerbosity;
+
+/**
+ * Keeps telemetry inside the loop time budget. Every telemetry {@link Source} measures how long it spends publishing and
+ * how many bytes it publishes. Once per window the budget looks at the worst main loop and the average cost of sources
+ * running on their own threads. When either gets close to its period, {@link SwerveDriveTelemetry#verbosity} steps
+ * down one tier. After several quiet windows in a row it steps back up.
+ * <p>
+ * The current tier, loop utilization and the per-loop cost of every source are published under {@code /Telemetry}.
+ */
+public final class TelemetryBudget
+{
+
+  /**
+   * YAGSL verbosity tiers, most detailed first. The swerve drive must be created at the first tier so its publishers
+   * exist when stepping back up.
+   */
+  public static final TelemetryVerbosity[] TIERS                 = {TelemetryVerbosity.HIGH,
+                                                                    TelemetryVerbosity.LOW,
+                                                                    TelemetryVerbosity.MACHINE};
+  /**
+   * Main loops per evaluation window.
+   */
+  private static final int                 WINDOW_LOOPS          = 50;
+  /**
+   * Step down when a loop uses more than this fraction of its period.
+   */
+  private static final double              STEP_DOWN_UTILIZATION = 0.85;
+  /**
+   * Step up only when every loop uses less than this fraction of its period.
+   */
+  private static final double              STEP_UP_UTILIZATION   = 0.6;
+  /**
+   * Consecutive quiet windows needed before stepping up.
+   */
+  private static final int                 STEP_UP_WINDOWS       = 5;
+
+  private static final TelemetryBudget instance = new TelemetryBudget(TimedRobot.kDefaultPeriod);
+
+  /**
+   * Measured cost of one telemetry publisher. {@link #start()} and {@link #stop(int)} must be called from a single
+   * thread, the budget reads the totals from the main loop.
+   */
+  public static final class Source
+  {
+
+    private final double          period;
+    private final DoublePublisher millisPublisher;
+    private final DoublePublisher bytesPublisher;
+    private       long            startNanos;
+    private volatile long         totalNanos;
+    private volatile long         totalBytes;
+    private volatile long         totalCalls;
+    private       long            windowNanos;
+    private       long            windowBytes;
+    private       long            windowCalls;
+
+    private Source(NetworkTable table, String name, double period)
+    {
+      this.period = period;
+      millisPublisher = table.getDoubleTopic(name + "/MillisPerLoop").publish();
+      bytesPublisher = table.getDoubleTopic(name + "/BytesPerLoop").publish();
+    }
+
+    /**
+     * Mark the start of a publish.
+     */
+    public void start()
+    {
+      startNanos = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a publish.
+     *
+     * @param bytes Approximate payload bytes published since {@link #start()}, 0 if unknown.
+     */
+    public void stop(int bytes)
+    {
+      record(System.nanoTime() - startNanos, bytes);
+    }
+
+    /**
+     * Record a publish that was measured some other way, instead of {@link #start()} and {@link #stop(int)}.
+     *
+     * @param nanos Time spent publishing.
+     * @param bytes Approximate payload bytes published, 0 if unknown.
+     */
+    public void record(long nanos, int bytes)
+    {
+      // Single writer, so plain read-modify-write of the volatiles is safe.
+      totalNanos = totalNanos + nanos;
+      totalBytes = totalBytes + bytes;
+      totalCalls = totalCalls + 1;
+    }
+
+    /**
+     * Publish the average cost over the window.
+     *
+     * @return Average fraction of its own period used, 0 for sources that run in the main loop.
+     */
+    private double publishWindow()
+    {
+      long calls = totalCalls;
+      long nanos = totalNanos;
+      long bytes = totalBytes;
+      long windowCallCount = calls - windowCalls;
+      double millisPerCall = windowCallCount > 0 ? (nanos - windowNanos) / 1e6 / windowCallCount : 0;
+      millisPublisher.set(millisPerCall);
+      bytesPublisher.set(windowCallCount > 0 ? (double) (bytes - windowBytes) / windowCallCount : 0);
+      windowCalls = calls;
+      windowNanos = nanos;
+      windowBytes = bytes;
+      return period > 0 ? millisPerCall / 1e3 / period : 0;
+    }
+  }
+
+  private final double           period;
+  private final NetworkTable     table;
+  private final List<Source>     sources       = new ArrayList<>();
+  private final StringPublisher  tierPublisher;
+  private final IntegerPublisher tierIndexPublisher;
+  private final DoublePublisher  maxLoopMillisPublisher;
+  private final DoublePublisher  averageLoopMillisPublisher;
+  private final DoublePublisher  utilizationPublisher;
+  /**
+   * Index into {@link #TIERS}. Only the main loop changes it or {@link SwerveDriveTelemetry#verbosity}, volatile so
+   * other threads can read it.
+   */
+  private volatile int           tier          = 0;
+  private          int           loops         = 0;
+  private          double        maxLoopTime   = 0;
+  private          double        totalLoopTime = 0;
+  private          int           quietWindows  = 0;
+
+  private TelemetryBudget(double period)
+  {
+    this.period = period;
+    table = NetworkTableInstance.getDefault().getTable("Telemetry");
+    tierPublisher = table.getStringTopic("Tier").publish();
+    tierIndexPublisher = table.getIntegerTopic("TierIndex").publish();
+    maxLoopMillisPublisher = table.getDoubleTopic("MaxLoopMillis").publish();
+    averageLoopMillisPublisher = table.getDoubleTopic("AverageLoopMillis").publish();
+    utilizationPublisher = table.getDoubleTopic("MaxLoopUtilization").publish();
+    SwerveDriveTelemetry.verbosity = TIERS[tier];
+  }
+
+  /**
+   * Get the robot wide telemetry budget.
+   *
+   * @return {@link TelemetryBudget}
+   */
+  public static TelemetryBudget getInstance()
+  {
+    return instance;
+  }
+
+  /**
+   * Register a source that publishes from the main loop.
+   *
+   * @param name Name shown under {@code /Telemetry}.
+   * @return {@link Source} to wrap the publishing code with.
+   */
+  public synchronized Source addSource(String name)
+  {
+    return addSource(name, 0);
+  }
+
+  /**
+   * Register a source that publishes from its own periodic thread.
+   *
+   * @param name   Name shown under {@code /Telemetry}.
+   * @param period Period of the thread in seconds, its cost is compared against this.
+   * @return {@link Source} to wrap the publishing code with.
+   */
+  public synchronized Source addSource(String name, double period)
+  {
+    Source source = new Source(table, name, period);
+    sources.add(source);
+    return source;
+  }
+
+  /**
+   * Current YAGSL verbosity tier.
+   *
+   * @return Index into {@link #TIERS}, 0 is the most detailed.
+   */
+  public int getTier()
+  {
+    return tier;
+  }
+
+  /**
+   * Record a main loop and, at the end of each window, publish costs and adjust the tier. Call once per loop from the
+   * main thread.
+   *
+   * @param loopTime Time spent in the loop so far, in seconds.
+   */
+  public void update(double loopTime)
+  {
+    maxLoopTime = Math.max(maxLoopTime, loopTime);
+    totalLoopTime += loopTime;
+    if (++loops < WINDOW_LOOPS)
+    {
+      return;
+    }
+
+    double utilization = maxLoopTime / period;
+    synchronized (this)
+    {
+      for (int i = 0; i < sources.size(); i++)
+      {
+        utilization = Math.max(utilization, sources.get(i).publishWindow());
+      }
+    }
+
+    int current = tier;
+    if (utilization > STEP_DOWN_UTILIZATION)
+    {
+      quietWindows = 0;
+      current = setTier(current + 1);
+    } else if (utilization < STEP_UP_UTILIZATION)
+    {
+      if (++quietWindows >= STEP_UP_WINDOWS)
+      {
+        quietWindows = 0;
+        current = setTier(current - 1);
+      }
+    } else
+    {
+      quietWindows = 0;
+    }
+
+    tierPublisher.set(TIERS[current].name());
+    tierIndexPublisher.set(current);
+    maxLoopMillisPublisher.set(maxLoopTime * 1e3);
+    averageLoopMillisPublisher.set(totalLoopTime * 1e3 / loops);
+    utilizationPublisher.set(utilization);
+    loops = 0;
+    maxLoopTime = 0;
+    totalLoopTime = 0;
+  }
+
+  /**
+   * Change the tier and the YAGSL verbosity with it. Main loop only.
+   *
+   * @param newTier Requested tier, clamped to {@link #TIERS}.
+   * @return The tier now in use.
+   */
+  private int setTier(int newTier)
+  {
+    int clamped = Math.max(0, Math.min(TIERS.length - 1, newTier));
+    tier = clamped;
+    SwerveDriveTelemetry.verbosity = TIERS[clamped];
+    return clamped;
+  }
+}
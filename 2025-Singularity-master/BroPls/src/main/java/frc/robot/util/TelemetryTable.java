@@ -0,0 +1,257 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dashboard values for one subsystem, published through preregistered typed NetworkTables publishers instead of
+ * string-keyed {@link edu.wpi.first.wpilibj.smartdashboard.SmartDashboard} calls.
+ * <p>
+ * Setting a double or boolean entry stores the value and, when it changed, appends it to the {@link MatchLog} at full
+ * rate. {@link #publish()}, called once per loop, sends the entries that changed, at most once per period, and charges
+ * the cost to the subsystem's {@link TelemetryBudget.Source}. Values are published under {@code /SmartDashboard} so
+ * existing dashboard layouts keep working.
+ */
+public final class TelemetryTable
+{
+
+  /**
+   * Default minimum time between publishes in seconds.
+   */
+  public static final double DEFAULT_PERIOD = 0.1;
+
+  /**
+   * Double dashboard value.
+   */
+  public static final class DoubleEntry
+  {
+
+    private final DoublePublisher        publisher;
+    private final MatchLog.DoubleChannel channel;
+    private       double                 value     = 0;
+    private       double                 published = Double.NaN;
+
+    private DoubleEntry(DoublePublisher publisher, MatchLog.DoubleChannel channel)
+    {
+      this.publisher = publisher;
+      this.channel = channel;
+      channel.append(0);
+    }
+
+    /**
+     * Set the value, logged now and sent on the next {@link TelemetryTable#publish()} if it changed.
+     *
+     * @param value New value.
+     */
+    public void set(double value)
+    {
+      if (Double.doubleToLongBits(value) != Double.doubleToLongBits(this.value))
+      {
+        channel.append(value);
+      }
+      this.value = value;
+    }
+
+    private int publish()
+    {
+      // Compare bits so NaN is treated as a value like any other.
+      if (Double.doubleToLongBits(value) == Double.doubleToLongBits(published))
+      {
+        return 0;
+      }
+      publisher.set(value);
+      published = value;
+      return Double.BYTES;
+    }
+  }
+
+  /**
+   * Boolean dashboard value.
+   */
+  public static final class BooleanEntry
+  {
+
+    private final BooleanPublisher        publisher;
+    private final MatchLog.BooleanChannel channel;
+    private       boolean                 value        = false;
+    private       boolean                 published    = false;
+    private       boolean                 hasPublished = false;
+
+    private BooleanEntry(BooleanPublisher publisher, MatchLog.BooleanChannel channel)
+    {
+      this.publisher = publisher;
+      this.channel = channel;
+      channel.append(false);
+    }
+
+    /**
+     * Set the value, logged now and sent on the next {@link TelemetryTable#publish()} if it changed.
+     *
+     * @param value New value.
+     */
+    public void set(boolean value)
+    {
+      if (value != this.value)
+      {
+        channel.append(value);
+      }
+      this.value = value;
+    }
+
+    private int publish()
+    {
+      if (hasPublished && value == published)
+      {
+        return 0;
+      }
+      publisher.set(value);
+      published = value;
+      hasPublished = true;
+      return 1;
+    }
+  }
+
+  /**
+   * String dashboard value, meant for status text that rarely changes.
+   */
+  public static final class StringEntry
+  {
+
+    private final StringPublisher publisher;
+    private       String          value     = "";
+    private       String          published = null;
+
+    private StringEntry(StringPublisher publisher)
+    {
+      this.publisher = publisher;
+    }
+
+    /**
+     * Set the value, sent on the next {@link TelemetryTable#publish()} if it changed.
+     *
+     * @param value New value.
+     */
+    public void set(String value)
+    {
+      this.value = value;
+    }
+
+    private int publish()
+    {
+      // Identity check is enough for the constant strings this is used with.
+      if (value == published)
+      {
+        return 0;
+      }
+      publisher.set(value);
+      published = value;
+      return value.length();
+    }
+  }
+
+  private final NetworkTable           table;
+  private final double                 period;
+  private final TelemetryBudget.Source telemetry;
+  private final List<DoubleEntry>      doubles     = new ArrayList<>();
+  private final List<BooleanEntry>     booleans    = new ArrayList<>();
+  private final List<StringEntry>      strings     = new ArrayList<>();
+  private       double                 lastPublish = Double.NEGATIVE_INFINITY;
+
+  /**
+   * Create a table publishing at most every {@link #DEFAULT_PERIOD}.
+   *
+   * @param name Name of the {@link TelemetryBudget} source the cost is charged to.
+   */
+  public TelemetryTable(String name)
+  {
+    this(name, DEFAULT_PERIOD);
+  }
+
+  /**
+   * Create a table.
+   *
+   * @param name   Name of the {@link TelemetryBudget} source the cost is charged to.
+   * @param period Minimum time between publishes in seconds.
+   */
+  public TelemetryTable(String name, double period)
+  {
+    this.period = period;
+    table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+    telemetry = TelemetryBudget.getInstance().addSource(name);
+  }
+
+  /**
+   * Register a double value.
+   *
+   * @param key Dashboard key.
+   * @return Entry to set each loop.
+   */
+  public DoubleEntry addDouble(String key)
+  {
+    DoubleEntry entry = new DoubleEntry(table.getDoubleTopic(key).publish(), MatchLog.getInstance().addDouble(key));
+    doubles.add(entry);
+    return entry;
+  }
+
+  /**
+   * Register a boolean value.
+   *
+   * @param key Dashboard key.
+   * @return Entry to set each loop.
+   */
+  public BooleanEntry addBoolean(String key)
+  {
+    BooleanEntry entry = new BooleanEntry(table.getBooleanTopic(key).publish(), MatchLog.getInstance().addBoolean(key));
+    booleans.add(entry);
+    return entry;
+  }
+
+  /**
+   * Register a string value.
+   *
+   * @param key Dashboard key.
+   * @return Entry to set when the status changes.
+   */
+  public StringEntry addString(String key)
+  {
+    StringEntry entry = new StringEntry(table.getStringTopic(key).publish());
+    strings.add(entry);
+    return entry;
+  }
+
+  /**
+   * Send every changed entry if the period has elapsed since the last publish. Call once per loop from the owning
+   * subsystem's {@code periodic()}.
+   */
+  public void publish()
+  {
+    double now = Timer.getFPGATimestamp();
+    if (now - lastPublish < period)
+    {
+      return;
+    }
+    lastPublish = now;
+
+    telemetry.start();
+    int bytes = 0;
+    for (int i = 0; i < doubles.size(); i++)
+    {
+      bytes += doubles.get(i).publish();
+    }
+    for (int i = 0; i < booleans.size(); i++)
+    {
+      bytes += booleans.get(i).publish();
+    }
+    for (int i = 0; i < strings.size(); i++)
+    {
+      bytes += strings.get(i).publish();
+    }
+    telemetry.stop(bytes);
+  }
+}
@@ -0,0 +1,275 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import frc.robot.subsystems.PoseHistory;
+import frc.robot.subsystems.Vision;
+import frc.robot.subsystems.VisionEstimator;
+import frc.robot.subsystems.VisionRecorder;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+/**
+ * Desktop tool run by the {@code replayVision} Gradle task. Feeds recordings written by {@link VisionRecorder} through
+ * {@link VisionEstimator} as fast as possible and reports throughput, per-frame estimation latency and pose error
+ * against a reference track. Estimator settings can be overridden to tune them without a robot.
+ * <p>
+ * The reference track is the recorded odometry unless a CSV of {@code timestamp,x,y,theta} rows (FPGA seconds, meters,
+ * radians) is given, e.g. exported from a motion capture run or a hand-verified log.
+ */
+public final class VisionReplay
+{
+
+  private static final String USAGE =
+      "Usage: VisionReplay [--max-ambiguity <0-1>] [--strategy <PoseStrategy>] [--std-scale <factor>]"
+      + " [--reference <track.csv>] <recording|directory>...";
+
+  private VisionReplay()
+  {
+  }
+
+  /**
+   * Replay recordings.
+   *
+   * @param args Options followed by recording files or directories containing them.
+   * @throws IOException If a recording or the reference track cannot be read.
+   */
+  public static void main(String... args) throws IOException
+  {
+    double       maximumAmbiguity = 1;
+    PoseStrategy strategy         = PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR;
+    double       stdDevScale      = 1;
+    PoseHistory  reference        = null;
+    List<File>   recordings       = new ArrayList<>();
+    for (int i = 0; i < args.length; i++)
+    {
+      switch (args[i])
+      {
+        case "--max-ambiguity" -> maximumAmbiguity = Double.parseDouble(option(args, ++i));
+        case "--strategy" -> strategy = PoseStrategy.valueOf(option(args, ++i));
+        case "--std-scale" -> stdDevScale = Double.parseDouble(option(args, ++i));
+        case "--reference" -> reference = loadReference(new File(option(args, ++i)));
+        default -> addRecordings(new File(args[i]), recordings);
+      }
+    }
+    if (recordings.isEmpty())
+    {
+      throw new IllegalArgumentException(USAGE);
+    }
+
+    System.out.printf("strategy=%s max-ambiguity=%.3f std-scale=%.3f reference=%s%n",
+                      strategy, maximumAmbiguity, stdDevScale, reference == null ? "odometry" : "csv");
+    for (File recording : recordings)
+    {
+      replay(recording, strategy, maximumAmbiguity, stdDevScale, reference);
+    }
+  }
+
+  private static String option(String[] args, int index)
+  {
+    if (index >= args.length)
+    {
+      throw new IllegalArgumentException(USAGE);
+    }
+    return args[index];
+  }
+
+  private static void addRecordings(File file, List<File> recordings)
+  {
+    if (file.isDirectory())
+    {
+      File[] children = file.listFiles((dir, name) -> name.endsWith(VisionRecorder.FILE_EXTENSION));
+      if (children != null)
+      {
+        Arrays.sort(children);
+        recordings.addAll(Arrays.asList(children));
+      }
+    } else
+    {
+      recordings.add(file);
+    }
+  }
+
+  /**
+   * Load a reference track into a {@link PoseHistory} so it can be interpolated the same way odometry is.
+   */
+  private static PoseHistory loadReference(File file) throws IOException
+  {
+    List<double[]> rows = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(file)))
+    {
+      String line;
+      while ((line = reader.readLine()) != null)
+      {
+        String[] fields = line.split(",");
+        if (fields.length < 4 || !Character.isDigit(fields[0].trim().charAt(0)))
+        {
+          // Header or blank line.
+          continue;
+        }
+        rows.add(new double[]{Double.parseDouble(fields[0].trim()), Double.parseDouble(fields[1].trim()),
+                              Double.parseDouble(fields[2].trim()), Double.parseDouble(fields[3].trim())});
+      }
+    }
+    rows.sort((a, b) -> Double.compare(a[0], b[0]));
+    PoseHistory history = new PoseHistory(Math.max(2, rows.size()));
+    for (double[] row : rows)
+    {
+      history.add(row[0], row[1], row[2], row[3]);
+    }
+    return history;
+  }
+
+  private static void replay(File file, PoseStrategy strategy, double maximumAmbiguity, double stdDevScale,
+                             PoseHistory reference) throws IOException
+  {
+    try (VisionRecorder.Reader reader = new VisionRecorder.Reader(file))
+    {
+      VisionEstimator estimator = new VisionEstimator(Vision.fieldLayout,
+                                                      Vision.tagTable,
+                                                      new Transform3d(new Translation3d(reader.robotToCam[0],
+                                                                                        reader.robotToCam[1],
+                                                                                        reader.robotToCam[2]),
+                                                                      new Rotation3d(reader.robotToCam[3],
+                                                                                     reader.robotToCam[4],
+                                                                                     reader.robotToCam[5])),
+                                                      strategy,
+                                                      scale(reader.singleTagStdDevs, stdDevScale),
+                                                      scale(reader.multiTagStdDevs, stdDevScale));
+      estimator.setMaximumAmbiguity(maximumAmbiguity);
+
+      double[] truth             = new double[3];
+      long[]   latencies         = new long[1024];
+      double[] translationErrors = new double[1024];
+      double[] headingErrors     = new double[1024];
+      int      frames            = 0;
+      int      estimates         = 0;
+      int      compared          = 0;
+      double   firstTimestamp    = Double.NaN;
+      double   lastTimestamp     = Double.NaN;
+      long     start             = System.nanoTime();
+
+      byte[] data;
+      while ((data = reader.next()) != null)
+      {
+        long                         frameStart = System.nanoTime();
+        PhotonPipelineResult         result     = VisionRecorder.Reader.unpack(data, reader.timestamp);
+        Optional<EstimatedRobotPose> estimate   = estimator.update(result);
+        long                         latency    = System.nanoTime() - frameStart;
+
+        if (frames == latencies.length)
+        {
+          latencies = Arrays.copyOf(latencies, frames * 2);
+        }
+        latencies[frames++] = latency;
+        if (Double.isNaN(firstTimestamp))
+        {
+          firstTimestamp = reader.timestamp;
+        }
+        lastTimestamp = reader.timestamp;
+
+        if (estimate.isEmpty())
+        {
+          continue;
+        }
+        estimates++;
+        Pose3d  pose    = estimate.get().estimatedPose;
+        boolean hasTruth;
+        if (reference != null)
+        {
+          hasTruth = reference.sample(estimate.get().timestampSeconds, truth);
+        } else
+        {
+          hasTruth = reader.hasOdometry;
+          System.arraycopy(reader.odometry, 0, truth, 0, 3);
+        }
+        if (!hasTruth)
+        {
+          continue;
+        }
+        if (compared == translationErrors.length)
+        {
+          translationErrors = Arrays.copyOf(translationErrors, compared * 2);
+          headingErrors = Arrays.copyOf(headingErrors, compared * 2);
+        }
+        translationErrors[compared] = Math.hypot(pose.getX() - truth[0], pose.getY() - truth[1]);
+        headingErrors[compared] = Math.abs(MathUtil.angleModulus(pose.getRotation().getZ() - truth[2]));
+        compared++;
+      }
+      double elapsed = (System.nanoTime() - start) / 1e9;
+
+      System.out.printf("%s (%s): %d frames, %d estimates, %d compared%n",
+                        file.getName(), reader.cameraName, frames, estimates, compared);
+      if (frames == 0)
+      {
+        return;
+      }
+      double recorded = lastTimestamp - firstTimestamp;
+      System.out.printf("  throughput: %.0f frames/s, %.1fx real time%n",
+                        frames / elapsed, recorded > 0 ? recorded / elapsed : Double.POSITIVE_INFINITY);
+
+      Arrays.sort(latencies, 0, frames);
+      System.out.printf("  latency ms: p50 %.3f p99 %.3f max %.3f%n",
+                        latencies[percentileIndex(frames, 0.5)] / 1e6,
+                        latencies[percentileIndex(frames, 0.99)] / 1e6,
+                        latencies[frames - 1] / 1e6);
+
+      if (compared > 0)
+      {
+        printErrors("  translation error m:", translationErrors, compared);
+        printErrors("  heading error deg:", toDegrees(headingErrors, compared), compared);
+      }
+    }
+  }
+
+  private static double[] scale(double[] values, double factor)
+  {
+    double[] scaled = new double[values.length];
+    for (int i = 0; i < values.length; i++)
+    {
+      scaled[i] = values[i] * factor;
+    }
+    return scaled;
+  }
+
+  private static double[] toDegrees(double[] values, int count)
+  {
+    for (int i = 0; i < count; i++)
+    {
+      values[i] = Math.toDegrees(values[i]);
+    }
+    return values;
+  }
+
+  private static void printErrors(String label, double[] errors, int count)
+  {
+    double sum = 0;
+    for (int i = 0; i < count; i++)
+    {
+      sum += errors[i];
+    }
+    Arrays.sort(errors, 0, count);
+    System.out.printf("%s mean %.3f p50 %.3f p99 %.3f max %.3f%n",
+                      label, sum / count,
+                      errors[percentileIndex(count, 0.5)],
+                      errors[percentileIndex(count, 0.99)],
+                      errors[count - 1]);
+  }
+
+  private static int percentileIndex(int count, double percentile)
+  {
+    return Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+  }
+}
@@ -0,0 +1,77 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.util.Allocations;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveSwerveDriveTest
+{
+
+  private static final double COEFFICIENT = 0.1;
+  private static final double PERIOD      = 0.02;
+
+  private final Translation2d[] locations = {new Translation2d(0.3, 0.3), new Translation2d(0.3, -0.3),
+                                             new Translation2d(-0.3, 0.3), new Translation2d(-0.3, -0.3)};
+  private final Rotation2d[]    angles    = {Rotation2d.kZero, Rotation2d.kZero, Rotation2d.kZero, Rotation2d.kZero};
+
+  private SwerveModuleState[]  output;
+  private double               yawRate;
+  private int                  cycle;
+  private PrimitiveSwerveDrive drive;
+
+  @BeforeEach
+  void setUp()
+  {
+    yawRate = 0;
+    drive = new PrimitiveSwerveDrive(locations, angles, () -> 4.5, states -> output = states, () -> yawRate,
+                                     COEFFICIENT, PERIOD);
+  }
+
+  @Test
+  void skewCorrectionUsesMeasuredYawRate()
+  {
+    // Commanded to stop rotating while the robot is still spinning, the lead comes from the gyro not the command.
+    yawRate = 2.0;
+    drive.driveFieldOriented(1, 0, 0, 0);
+    double lead = yawRate * COEFFICIENT;
+    for (SwerveModuleState state : output)
+    {
+      assertEquals(1, state.speedMetersPerSecond, 1E-9);
+      assertEquals(-lead, state.angle.getRadians(), PrimitiveSwerveDrive.ANGLE_RESOLUTION / 2);
+    }
+
+    // Commanded to rotate from rest, no lead until the robot actually turns.
+    yawRate = 0;
+    drive.driveFieldOriented(1, 0, 0.5, 0);
+    double[] expected = new double[output.length];
+    for (int i = 0; i < output.length; i++)
+    {
+      expected[i] = output[i].angle.getRadians();
+    }
+    PrimitiveSwerveDrive reference = new PrimitiveSwerveDrive(locations, angles, () -> 4.5, states -> output = states,
+                                                              () -> 0, 0, PERIOD);
+    reference.driveFieldOriented(1, 0, 0.5, 0);
+    for (int i = 0; i < output.length; i++)
+    {
+      assertEquals(output[i].angle.getRadians(), expected[i], 1E-9);
+    }
+  }
+
+  @Test
+  void changingInputsDoNotAllocate()
+  {
+    // Sticks, yaw rate and heading all move every call, so every module angle changes every loop.
+    long bytes = Allocations.measure(() -> {
+      cycle++;
+      yawRate = Math.sin(cycle * 0.013);
+      drive.driveFieldOriented(2 * Math.sin(cycle * 0.01), 2 * Math.cos(cycle * 0.017), Math.sin(cycle * 0.007),
+                               cycle * 0.003);
+    }, 10_000);
+    assertEquals(0, bytes, "driveFieldOriented allocated while the inputs changed");
+  }
+}
@@ -0,0 +1,149 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.util.DriveFeedforwards;
+import com.pathplanner.lib.util.swerve.SwerveSetpoint;
+import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.commands.drivebase.SetpointGeneratorDrive;
+import frc.robot.util.Allocations;
+import java.io.IOException;
+import java.util.function.Supplier;
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import swervelib.SwerveDrive;
+
+/**
+ * Cost of the setpoint generator drive against the simulated drivebase from the deploy directory. Building the command
+ * is compared with the old way, which parsed {@code deploy/pathplanner/settings.json} into a new {@link RobotConfig}
+ * every time, and {@link SetpointGeneratorDrive#execute()} is bounded by what PathPlanner's generator and YAGSL allocate
+ * on their own for the same inputs.
+ */
+class SetpointGeneratorBenchmarkTest
+{
+
+  private static final int BUILDS = 200;
+  private static final int CYCLES = 10_000;
+
+  private static SwerveSubsystem drivebase;
+
+  private final ChassisSpeeds[] commands = {new ChassisSpeeds(3, 1, 2), new ChassisSpeeds(-2, 0.5, -1),
+                                            new ChassisSpeeds(0, 0, 0)};
+
+  private int            cycle;
+  private SwerveSetpoint previousSetpoint;
+  private double         previousTime;
+
+  @BeforeAll
+  static void createDrivebase()
+  {
+    drivebase = SimDrivebase.get();
+    assertNotNull(drivebase.getDrivetrainModel(), "deploy/pathplanner/settings.json did not load");
+  }
+
+  /**
+   * Robot relative speeds held for 100 loops each, prebuilt so the supplier allocates nothing.
+   */
+  private ChassisSpeeds nextSpeeds()
+  {
+    return commands[(cycle++ / 100) % commands.length];
+  }
+
+  /**
+   * Build the command the old way, parsing the GUI settings and creating a generator for every new command.
+   */
+  private static Command buildReparsed()
+  {
+    try
+    {
+      SwerveSetpointGenerator generator = new SwerveSetpointGenerator(
+          RobotConfig.fromGUISettings(), drivebase.getSwerveDrive().getMaximumChassisAngularVelocity());
+      return new SetpointGeneratorDrive(drivebase, generator, ChassisSpeeds::new);
+    } catch (IOException | ParseException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Command buildCached()
+  {
+    return drivebase.driveWithSetpointGeneratorFieldRelative(ChassisSpeeds::new);
+  }
+
+  private static double nanosPer(Supplier<?> task, int iterations)
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++)
+    {
+      task.get();
+    }
+    return (System.nanoTime() - start) / (double) iterations;
+  }
+
+  @Test
+  void cachedModelBuildsCommandsCheaperThanReparsing()
+  {
+    long   reparsedBytes = Allocations.measure(SetpointGeneratorBenchmarkTest::buildReparsed, BUILDS);
+    long   cachedBytes   = Allocations.measure(SetpointGeneratorBenchmarkTest::buildCached, BUILDS);
+    double reparsedNanos = nanosPer(SetpointGeneratorBenchmarkTest::buildReparsed, BUILDS);
+    double cachedNanos   = nanosPer(SetpointGeneratorBenchmarkTest::buildCached, BUILDS);
+
+    System.out.printf("command build reparsing settings: %.0f ns, %d bytes%n", reparsedNanos, reparsedBytes / BUILDS);
+    System.out.printf("command build cached model:       %.0f ns, %d bytes%n", cachedNanos, cachedBytes / BUILDS);
+
+    assertTrue(cachedBytes < reparsedBytes, "building from the cached model should allocate less than reparsing");
+  }
+
+  /**
+   * Bytes per loop of the generator and {@link SwerveDrive#drive} alone, fed the same speeds as the command.
+   */
+  private double libraryBytesPerLoop()
+  {
+    SwerveDrive             swerveDrive = drivebase.getSwerveDrive();
+    SwerveSetpointGenerator generator   = drivebase.getDrivetrainModel().setpointGenerator;
+    previousSetpoint = new SwerveSetpoint(swerveDrive.getRobotVelocity(),
+                                          swerveDrive.getStates(),
+                                          DriveFeedforwards.zeros(swerveDrive.getModules().length));
+    previousTime = Timer.getFPGATimestamp();
+    cycle = 0;
+    long bytes = Allocations.measure(() -> {
+      double newTime = Timer.getFPGATimestamp();
+      previousSetpoint = generator.generateSetpoint(previousSetpoint, nextSpeeds(), newTime - previousTime);
+      previousTime = newTime;
+      swerveDrive.drive(previousSetpoint.robotRelativeSpeeds(),
+                        previousSetpoint.moduleStates(),
+                        previousSetpoint.feedforwards().linearForces());
+    }, CYCLES);
+    return bytes / (double) CYCLES;
+  }
+
+  private double executeBytesPerLoop()
+  {
+    Command command = new SetpointGeneratorDrive(drivebase,
+                                                 drivebase.getDrivetrainModel().setpointGenerator,
+                                                 this::nextSpeeds);
+    command.initialize();
+    cycle = 0;
+    long bytes = Allocations.measure(command::execute, CYCLES);
+    command.end(true);
+    return bytes / (double) CYCLES;
+  }
+
+  @Test
+  void executeAllocatesNoMoreThanTheGenerator()
+  {
+    double library = libraryBytesPerLoop();
+    double execute = executeBytesPerLoop();
+    System.out.printf("generateSetpoint + drive %.1f B/loop, SetpointGeneratorDrive.execute %.1f B/loop%n",
+                      library, execute);
+
+    // Same slack as the teleop drive commands; a boxed timestamp or setpoint holder would be 16 B or more per loop.
+    assertTrue(execute <= library + 8, "SetpointGeneratorDrive.execute allocates beyond the generator and YAGSL");
+  }
+}
@@ -0,0 +1,36 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+
+/**
+ * Simulated drivebase built from the deploy directory, shared by the tests in this package so the swerve hardware is
+ * only created once per JVM.
+ */
+final class SimDrivebase
+{
+
+  private static SwerveSubsystem drivebase;
+
+  private SimDrivebase()
+  {
+  }
+
+  /**
+   * Get the shared drivebase, creating it on first use.
+   *
+   * @return Simulated {@link SwerveSubsystem}.
+   */
+  static synchronized SwerveSubsystem get()
+  {
+    if (drivebase == null)
+    {
+      assertTrue(HAL.initialize(500, 0));
+      drivebase = new SwerveSubsystem(new File(Filesystem.getDeployDirectory(), "swerve"));
+    }
+    return drivebase;
+  }
+}
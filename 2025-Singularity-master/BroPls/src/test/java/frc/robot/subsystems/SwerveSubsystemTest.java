@@ -0,0 +1,122 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.util.Allocations;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import swervelib.SwerveDrive;
+import swervelib.SwerveModule;
+
+/**
+ * Per-loop allocation of the teleop drive commands, run through {@link SwerveSubsystem#driveCommand} against the
+ * simulated drivebase from the deploy directory. {@link PrimitiveSwerveDrive} allocates nothing itself, so the bound is
+ * what YAGSL's {@link SwerveDrive#setModuleStates} allocates for the same kind of module states.
+ */
+class SwerveSubsystemTest
+{
+
+  private static final int CYCLES   = 10_000;
+  /**
+   * Length of the precomputed module state sequence the YAGSL reference cycles through.
+   */
+  private static final int SEQUENCE = 1_000;
+
+  private static SwerveSubsystem drivebase;
+
+  private int cycle;
+
+  @BeforeAll
+  static void createDrivebase()
+  {
+    drivebase = SimDrivebase.get();
+  }
+
+  /**
+   * Stick axis swept back and forth so the commanded velocity and every module angle change each loop.
+   */
+  private double stick(double frequency)
+  {
+    return Math.sin(cycle * frequency);
+  }
+
+  /**
+   * Bytes per loop of {@link SwerveDrive#setModuleStates} alone, fed states like the drive commands produce.
+   */
+  private double yagslBytesPerLoop()
+  {
+    SwerveDrive     swerveDrive = drivebase.getSwerveDrive();
+    SwerveModule[]  modules     = swerveDrive.getModules();
+    Translation2d[] locations   = new Translation2d[modules.length];
+    Rotation2d[]    angles      = new Rotation2d[modules.length];
+    for (int i = 0; i < modules.length; i++)
+    {
+      locations[i] = modules[i].configuration.moduleLocation;
+      angles[i] = Rotation2d.kZero;
+    }
+    SwerveModuleState[][] sequence = new SwerveModuleState[SEQUENCE][];
+    PrimitiveSwerveDrive  recorder = new PrimitiveSwerveDrive(locations,
+                                                              angles,
+                                                              swerveDrive::getMaximumChassisVelocity,
+                                                              states -> sequence[cycle] = copy(states),
+                                                              () -> 0,
+                                                              0,
+                                                              0.02);
+    double maxVelocity = swerveDrive.getMaximumChassisVelocity();
+    for (cycle = 0; cycle < SEQUENCE; cycle++)
+    {
+      recorder.driveFieldOriented(stick(0.01) * maxVelocity, stick(0.017) * maxVelocity,
+                                  stick(0.007) * swerveDrive.getMaximumChassisAngularVelocity(), cycle * 0.003);
+    }
+
+    cycle = 0;
+    long bytes = Allocations.measure(() -> swerveDrive.setModuleStates(sequence[cycle++ % SEQUENCE], false), CYCLES);
+    return bytes / (double) CYCLES;
+  }
+
+  private static SwerveModuleState[] copy(SwerveModuleState[] states)
+  {
+    SwerveModuleState[] copy = new SwerveModuleState[states.length];
+    for (int i = 0; i < states.length; i++)
+    {
+      copy[i] = new SwerveModuleState(states[i].speedMetersPerSecond, states[i].angle);
+    }
+    return copy;
+  }
+
+  private double commandBytesPerLoop(Command command)
+  {
+    command.initialize();
+    cycle = 0;
+    long bytes = Allocations.measure(() -> {
+      cycle++;
+      command.execute();
+    }, CYCLES);
+    command.end(true);
+    return bytes / (double) CYCLES;
+  }
+
+  @Test
+  void driveCommandsAllocateNoMoreThanYagsl()
+  {
+    double yagsl           = yagslBytesPerLoop();
+    double angularVelocity = commandBytesPerLoop(drivebase.driveCommand(() -> stick(0.01),
+                                                                        () -> stick(0.017),
+                                                                        () -> stick(0.007)));
+    // Heading setpoint swept around the circle so the heading controller output changes every loop as well.
+    double headingSetpoint = commandBytesPerLoop(drivebase.driveCommand(() -> stick(0.01),
+                                                                        () -> stick(0.017),
+                                                                        () -> Math.cos(cycle * 0.005),
+                                                                        () -> Math.sin(cycle * 0.005)));
+    System.out.printf("setModuleStates %.1f B/loop, driveCommand angular velocity %.1f B/loop, heading %.1f B/loop%n",
+                      yagsl, angularVelocity, headingSetpoint);
+
+    // A few bytes of slack for allocations YAGSL makes on some calls and not others, e.g. when it flips a module.
+    assertTrue(angularVelocity <= yagsl + 8, "angular velocity driveCommand allocates beyond setModuleStates");
+    assertTrue(headingSetpoint <= yagsl + 8, "heading driveCommand allocates beyond setModuleStates");
+  }
+}
@@ -0,0 +1,170 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.util.Allocations;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.PhotonPoseEstimator.PoseStrategy;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+class VisionEstimatorTest
+{
+
+  private static final int      CYCLES      = 100_000;
+  private static final double[] SINGLE_TAG  = {4, 4, 8};
+  private static final double[] MULTI_TAG   = {0.5, 0.5, 1};
+
+  private static final AprilTagFieldLayout LAYOUT = new AprilTagFieldLayout(
+      List.of(new AprilTag(1, new Pose3d(2, 0, 0.5, Rotation3d.kZero)),
+              new AprilTag(2, new Pose3d(0, 2, 0.5, Rotation3d.kZero)),
+              new AprilTag(3, new Pose3d(10, 0, 0.5, Rotation3d.kZero))),
+      17.548,
+      8.052);
+
+  private final VisionEstimator estimator = new VisionEstimator(LAYOUT,
+                                                                new AprilTagTable(LAYOUT),
+                                                                new Transform3d(),
+                                                                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
+                                                                SINGLE_TAG,
+                                                                MULTI_TAG);
+
+  @BeforeAll
+  static void initializeHal()
+  {
+    // PhotonPoseEstimator reports usage through the HAL.
+    assertEquals(true, HAL.initialize(500, 0));
+  }
+
+  private static PhotonTrackedTarget target(int id)
+  {
+    PhotonTrackedTarget target = new PhotonTrackedTarget();
+    target.fiducialId = id;
+    return target;
+  }
+
+  private static Optional<EstimatedRobotPose> estimate(double x, double y, List<PhotonTrackedTarget> targets)
+  {
+    return Optional.of(new EstimatedRobotPose(new Pose3d(x, y, 0, Rotation3d.kZero), 0, targets,
+                                              PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR));
+  }
+
+  private void assertStdDevs(double[] expected, double scale)
+  {
+    for (int i = 0; i < 3; i++)
+    {
+      assertEquals(expected[i] * scale, estimator.curStdDevs.get(i, 0), 1E-9);
+    }
+  }
+
+  @Test
+  void stdDevsFollowTagCountAndDistance()
+  {
+    List<PhotonTrackedTarget> one = List.of(target(1));
+    List<PhotonTrackedTarget> two = List.of(target(1), target(2));
+
+    estimator.updateEstimationStdDevs(Optional.empty(), one);
+    assertStdDevs(SINGLE_TAG, 1);
+
+    // One tag 2 m away.
+    estimator.updateEstimationStdDevs(estimate(0, 0, one), one);
+    assertStdDevs(SINGLE_TAG, 1 + 4.0 / 30);
+
+    // Two tags both 2 m away use the multi tag std devs.
+    estimator.updateEstimationStdDevs(estimate(0, 0, two), two);
+    assertStdDevs(MULTI_TAG, 1 + 4.0 / 30);
+
+    // A single tag further than 4 m is not trusted.
+    List<PhotonTrackedTarget> far = List.of(target(3));
+    estimator.updateEstimationStdDevs(estimate(0, 0, far), far);
+    assertEquals(Double.MAX_VALUE, estimator.curStdDevs.get(0, 0));
+
+    // Tags missing from the layout are ignored.
+    List<PhotonTrackedTarget> unknown = List.of(target(99));
+    estimator.updateEstimationStdDevs(estimate(0, 0, unknown), unknown);
+    assertStdDevs(SINGLE_TAG, 1);
+  }
+
+  @Test
+  void updatingStdDevsDoesNotAllocate()
+  {
+    List<PhotonTrackedTarget>    targets = List.of(target(1), target(2));
+    Optional<EstimatedRobotPose> pose    = estimate(1, 1, targets);
+    long bytes = Allocations.measure(() -> estimator.updateEstimationStdDevs(pose, targets), CYCLES);
+    assertEquals(0, bytes, "updateEstimationStdDevs allocated");
+  }
+
+  /**
+   * The heuristic as it was before it moved to primitives, kept only as the benchmark baseline.
+   */
+  private static Matrix<N3, N1> boxedStdDevs(Optional<EstimatedRobotPose> estimatedPose,
+                                             List<PhotonTrackedTarget> targets)
+  {
+    Matrix<N3, N1> estStdDevs = VecBuilder.fill(SINGLE_TAG[0], SINGLE_TAG[1], SINGLE_TAG[2]);
+    int            numTags    = 0;
+    double         avgDist    = 0;
+    for (var tgt : targets)
+    {
+      var tagPose = LAYOUT.getTagPose(tgt.getFiducialId());
+      if (tagPose.isEmpty())
+      {
+        continue;
+      }
+      numTags++;
+      avgDist += tagPose.get().toPose2d().getTranslation()
+                        .getDistance(estimatedPose.get().estimatedPose.toPose2d().getTranslation());
+    }
+    avgDist /= numTags;
+    if (numTags > 1)
+    {
+      estStdDevs = VecBuilder.fill(MULTI_TAG[0], MULTI_TAG[1], MULTI_TAG[2]);
+    }
+    return estStdDevs.times(1 + (avgDist * avgDist / 30));
+  }
+
+  private static double nanosPerCall(Runnable task)
+  {
+    long start = System.nanoTime();
+    for (int i = 0; i < CYCLES; i++)
+    {
+      task.run();
+    }
+    return (System.nanoTime() - start) / (double) CYCLES;
+  }
+
+  @Test
+  void benchmarkAgainstBoxedHeuristic()
+  {
+    List<PhotonTrackedTarget>    targets = List.of(target(1), target(2));
+    Optional<EstimatedRobotPose> pose    = estimate(1, 1, targets);
+    Runnable boxed     = () -> boxedStdDevs(pose, targets);
+    Runnable primitive = () -> estimator.updateEstimationStdDevs(pose, targets);
+
+    long   boxedBytes     = Allocations.measure(boxed, CYCLES);
+    long   primitiveBytes = Allocations.measure(primitive, CYCLES);
+    double boxedNanos     = nanosPerCall(boxed);
+    double primitiveNanos = nanosPerCall(primitive);
+
+    System.out.printf("std devs before: %.0f ns, %d bytes per frame%n", boxedNanos, boxedBytes / CYCLES);
+    System.out.printf("std devs after:  %.0f ns, %d bytes per frame%n", primitiveNanos, primitiveBytes / CYCLES);
+    // The baseline must agree with the estimator or the comparison means nothing.
+    Matrix<N3, N1> expected = boxedStdDevs(pose, targets);
+    for (int i = 0; i < 3; i++)
+    {
+      assertEquals(expected.get(i, 0), estimator.curStdDevs.get(i, 0), 1E-9);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures heap allocation of the calling thread, for tests that check a hot path does not allocate.
+ */
+public final class Allocations
+{
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private Allocations()
+  {
+  }
+
+  /**
+   * Bytes allocated by the calling thread while running the task, less what the measurement itself allocates. The task
+   * is run a few thousand times first so the JIT has compiled it the way it runs on the robot.
+   *
+   * @param task       Code to measure.
+   * @param iterations Number of times to run it while measuring.
+   * @return Bytes allocated over all iterations.
+   */
+  public static long measure(Runnable task, int iterations)
+  {
+    for (int i = 0; i < 20_000; i++)
+    {
+      task.run();
+    }
+    long overhead = THREADS.getCurrentThreadAllocatedBytes();
+    overhead = THREADS.getCurrentThreadAllocatedBytes() - overhead;
+
+    long start = THREADS.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < iterations; i++)
+    {
+      task.run();
+    }
+    return THREADS.getCurrentThreadAllocatedBytes() - start - overhead;
+  }
+}
@@ -0,0 +1,107 @@
+package frc.loganalyzer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Post-match log analyzer. Scans every WPILOG given on the command line, or found under a given directory, in parallel
+ * and prints loop overruns, CAN utilization and latency, vision acceptance, brownouts and mechanism settle times for
+ * each file and for all of them together.
+ */
+public final class LogAnalyzer
+{
+
+  private static final String USAGE = "Usage: LogAnalyzer [--threads <n>] <log.wpilog|directory>...";
+
+  private LogAnalyzer()
+  {
+  }
+
+  /**
+   * Analyze logs.
+   *
+   * @param args Options followed by files or directories.
+   * @throws IOException          If a directory cannot be listed.
+   * @throws InterruptedException If interrupted while waiting for the workers.
+   */
+  public static void main(String... args) throws IOException, InterruptedException
+  {
+    int        threads = Runtime.getRuntime().availableProcessors();
+    List<Path> logs    = new ArrayList<>();
+    for (int i = 0; i < args.length; i++)
+    {
+      if (args[i].equals("--threads"))
+      {
+        if (++i >= args.length)
+        {
+          throw new IllegalArgumentException(USAGE);
+        }
+        threads = Math.max(1, Integer.parseInt(args[i]));
+      } else
+      {
+        addLogs(Path.of(args[i]), logs);
+      }
+    }
+    if (logs.isEmpty())
+    {
+      throw new IllegalArgumentException(USAGE);
+    }
+
+    long            start   = System.nanoTime();
+    ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, logs.size()));
+    List<Future<MatchSummary>> results = new ArrayList<>();
+    for (Path log : logs)
+    {
+      results.add(workers.submit(() -> MatchSummary.of(log)));
+    }
+    workers.shutdown();
+
+    MatchSummary total    = new MatchSummary();
+    long         bytes    = 0;
+    int          analyzed = 0;
+    for (int i = 0; i < logs.size(); i++)
+    {
+      Path log = logs.get(i);
+      try
+      {
+        MatchSummary summary = results.get(i).get();
+        System.out.println(log.getFileName() + ":");
+        System.out.print(summary.report());
+        total.merge(summary);
+        bytes += Files.size(log);
+        analyzed++;
+      } catch (ExecutionException e)
+      {
+        System.out.println(log.getFileName() + ": skipped, " + e.getCause().getMessage());
+      }
+    }
+    if (analyzed > 1)
+    {
+      System.out.println("All " + analyzed + " logs:");
+      System.out.print(total.report());
+    }
+    System.out.printf("Analyzed %d logs (%.1f MB) in %.2f s with %d threads%n", analyzed, bytes / 1e6,
+                      (System.nanoTime() - start) / 1e9, Math.min(threads, logs.size()));
+  }
+
+  private static void addLogs(Path path, List<Path> logs) throws IOException
+  {
+    if (!Files.isDirectory(path))
+    {
+      logs.add(path);
+      return;
+    }
+    try (Stream<Path> files = Files.walk(path))
+    {
+      files.filter(file -> file.toString().endsWith(".wpilog")).sorted().forEach(logs::add);
+    }
+  }
+}
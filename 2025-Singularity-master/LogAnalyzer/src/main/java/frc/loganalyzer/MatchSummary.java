@@ -0,0 +1,466 @@
+package frc.loganalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistics of one or more match logs, built by scanning them with {@link WpilogScanner}. Entry names match what the
+ * robot code logs through {@code MatchLog}; entries that are missing from a log are simply left out of the report.
+ */
+public final class MatchSummary implements WpilogScanner.Visitor
+{
+
+  static final String LOOP_TIME       = "Robot/Loop Time";
+  static final String BROWNOUT        = "Robot/Brownout";
+  static final String BATTERY_VOLTAGE = "Robot/Battery Voltage";
+  static final String CAN_UTILIZATION = "Robot/CAN Utilization";
+  /**
+   * CAN signal latency entries are {@code CAN/<device>/Latency}, in seconds.
+   */
+  static final String CAN_PREFIX      = "CAN/";
+  static final String LATENCY_SUFFIX  = "/Latency";
+  /**
+   * Vision acceptance entries are {@code Vision/<camera>/Accepted}, one boolean per frame with targets.
+   */
+  static final String VISION_PREFIX   = "Vision/";
+  static final String ACCEPTED_SUFFIX = "/Accepted";
+  /**
+   * Main loop period in seconds, longer loops are overruns.
+   */
+  static final double LOOP_PERIOD     = 0.02;
+
+  /**
+   * Handles the records of one entry.
+   */
+  private interface Handler
+  {
+
+    void accept(long timestamp, ByteBuffer data, int offset, int size);
+  }
+
+  /**
+   * Fixed bin histogram in milliseconds.
+   */
+  static final class Histogram
+  {
+
+    private static final double BIN_MILLIS = 0.1;
+    private static final int    BINS       = 2000;
+
+    private final long[] counts = new long[BINS + 1];
+    private       long   count  = 0;
+    private       double sum    = 0;
+    private       double max    = 0;
+
+    void add(double millis)
+    {
+      counts[(int) Math.min(BINS, Math.max(0, millis / BIN_MILLIS))]++;
+      count++;
+      sum += millis;
+      max = Math.max(max, millis);
+    }
+
+    void merge(Histogram other)
+    {
+      for (int i = 0; i <= BINS; i++)
+      {
+        counts[i] += other.counts[i];
+      }
+      count += other.count;
+      sum += other.sum;
+      max = Math.max(max, other.max);
+    }
+
+    double percentile(double fraction)
+    {
+      long target     = Math.max(1, (long) Math.ceil(fraction * count));
+      long cumulative = 0;
+      for (int i = 0; i <= BINS; i++)
+      {
+        cumulative += counts[i];
+        if (cumulative >= target)
+        {
+          return Math.min(max, (i + 1) * BIN_MILLIS);
+        }
+      }
+      return max;
+    }
+
+    long count()
+    {
+      return count;
+    }
+
+    double mean()
+    {
+      return count > 0 ? sum / count : 0;
+    }
+
+    double max()
+    {
+      return max;
+    }
+  }
+
+  /**
+   * Time from each new goal until the position first comes within tolerance of it, and how far the position went past
+   * the goal before the next one.
+   */
+  static final class Settle
+  {
+
+    private final double       tolerance;
+    private final List<Double> times        = new ArrayList<>();
+    private final List<Double> overshoots   = new ArrayList<>();
+    private       int          moves        = 0;
+    private       int          interrupted  = 0;
+    private       double       goal         = Double.NaN;
+    /**
+     * Goal from the request log, only measured while not {@link #paused}.
+     */
+    private       double       requested    = Double.NaN;
+    /**
+     * Set while the mechanism ignores its goal, e.g. under manual control.
+     */
+    private       boolean      paused       = false;
+    private       long         moveStart    = 0;
+    private       boolean      moving       = false;
+    private       double       lastPosition = Double.NaN;
+    /**
+     * Sign of the current move, 0 when there is no move to measure overshoot on.
+     */
+    private       double       direction    = 0;
+    private       double       overshoot    = 0;
+
+    Settle(double tolerance)
+    {
+      this.tolerance = tolerance;
+    }
+
+    void goal(long timestamp, double value)
+    {
+      requested = value;
+      update(timestamp);
+    }
+
+    /**
+     * Stop or resume measuring the requested goal, a move still in progress counts as interrupted.
+     */
+    void paused(long timestamp, boolean value)
+    {
+      paused = value;
+      update(timestamp);
+    }
+
+    private void update(long timestamp)
+    {
+      double value = paused ? Double.NaN : requested;
+      if (Double.doubleToLongBits(value) == Double.doubleToLongBits(goal))
+      {
+        return;
+      }
+      if (moving)
+      {
+        interrupted++;
+      }
+      finish();
+      goal = value;
+      moving = !Double.isNaN(value);
+      if (moving)
+      {
+        moves++;
+        moveStart = timestamp;
+        direction = Double.isNaN(lastPosition) ? 0 : Math.signum(value - lastPosition);
+      }
+    }
+
+    void position(long timestamp, double value)
+    {
+      lastPosition = value;
+      if (direction != 0)
+      {
+        overshoot = Math.max(overshoot, direction * (value - goal));
+      }
+      if (moving && Math.abs(value - goal) <= tolerance)
+      {
+        times.add((timestamp - moveStart) / 1e6);
+        moving = false;
+      }
+    }
+
+    /**
+     * Record the overshoot of the current move, at the next goal or the end of the log.
+     */
+    void finish()
+    {
+      if (direction != 0)
+      {
+        overshoots.add(overshoot);
+      }
+      direction = 0;
+      overshoot = 0;
+    }
+
+    void merge(Settle other)
+    {
+      times.addAll(other.times);
+      overshoots.addAll(other.overshoots);
+      moves += other.moves;
+      interrupted += other.interrupted;
+    }
+
+    String describe()
+    {
+      if (moves == 0)
+      {
+        return "no moves";
+      }
+      double[] sorted = times.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+      double[] over   = overshoots.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+      return String.format("%d moves, %d settled, %d interrupted, median %.3f s, max %.3f s, "
+                           + "overshoot median %.3f, max %.3f",
+                           moves, sorted.length, interrupted,
+                           sorted.length > 0 ? sorted[sorted.length / 2] : 0,
+                           sorted.length > 0 ? sorted[sorted.length - 1] : 0,
+                           over.length > 0 ? over[over.length / 2] : 0,
+                           over.length > 0 ? over[over.length - 1] : 0);
+    }
+  }
+
+  private final Histogram              loopTimes           = new Histogram();
+  private final Histogram              canLatency          = new Histogram();
+  private final Map<String, Histogram> deviceLatency       = new TreeMap<>();
+  /**
+   * Accepted and total frames per camera.
+   */
+  private final Map<String, long[]>    visionAccepted      = new TreeMap<>();
+  /**
+   * Elevator tolerance in carriage inches ({@code Constants.kAllowedError}), pivot tolerance in motor rotations
+   * ({@code PivotSubsystem.GOAL_TOLERANCE}), the same tolerances the robot uses to decide a preset is reached.
+   */
+  private final Settle                 elevator            = new Settle(1.0);
+  private final Settle                 pivot               = new Settle(0.03);
+  /**
+   * Handler of each entry id, null for entries that are not analyzed.
+   */
+  private       Handler[]              handlers            = new Handler[64];
+  private       long                   loopOverruns        = 0;
+  private       long                   brownouts           = 0;
+  private       boolean                brownedOut          = false;
+  private       double                 minBattery          = Double.POSITIVE_INFINITY;
+  private       double                 canUtilizationSum   = 0;
+  private       long                   canUtilizationCount = 0;
+  private       double                 canUtilizationMax   = 0;
+  private       long                   firstTimestamp      = Long.MAX_VALUE;
+  private       long                   lastTimestamp       = Long.MIN_VALUE;
+  private       long                   records             = 0;
+  private       int                    files               = 0;
+  /**
+   * Logged time in seconds, summed over files.
+   */
+  private       double                 duration            = 0;
+
+  /**
+   * Scan a log into a new summary.
+   *
+   * @param path WPILOG file.
+   * @return Summary of the file.
+   * @throws IOException If the file cannot be read.
+   */
+  public static MatchSummary of(Path path) throws IOException
+  {
+    MatchSummary summary = new MatchSummary();
+    WpilogScanner.scan(path, summary);
+    summary.elevator.finish();
+    summary.pivot.finish();
+    summary.files = 1;
+    if (summary.records > 0)
+    {
+      summary.duration = (summary.lastTimestamp - summary.firstTimestamp) / 1e6;
+    }
+    return summary;
+  }
+
+  @Override
+  public void start(int entry, String name, String type)
+  {
+    Handler handler = handler(name, type);
+    if (entry >= handlers.length)
+    {
+      handlers = Arrays.copyOf(handlers, Math.max(entry + 1, handlers.length * 2));
+    }
+    handlers[entry] = handler;
+  }
+
+  @Override
+  public void record(int entry, long timestamp, ByteBuffer data, int offset, int size)
+  {
+    records++;
+    firstTimestamp = Math.min(firstTimestamp, timestamp);
+    lastTimestamp = Math.max(lastTimestamp, timestamp);
+    Handler handler = entry < handlers.length ? handlers[entry] : null;
+    if (handler != null)
+    {
+      handler.accept(timestamp, data, offset, size);
+    }
+  }
+
+  private Handler handler(String name, String type)
+  {
+    boolean isDouble  = type.equals("double");
+    boolean isBoolean = type.equals("boolean");
+    if (isDouble && name.equals(LOOP_TIME))
+    {
+      return (timestamp, data, offset, size) -> {
+        double seconds = data.getDouble(offset);
+        loopTimes.add(seconds * 1e3);
+        if (seconds > LOOP_PERIOD)
+        {
+          loopOverruns++;
+        }
+      };
+    }
+    if (isBoolean && name.equals(BROWNOUT))
+    {
+      return (timestamp, data, offset, size) -> {
+        boolean value = data.get(offset) != 0;
+        if (value && !brownedOut)
+        {
+          brownouts++;
+        }
+        brownedOut = value;
+      };
+    }
+    if (isDouble && name.equals(BATTERY_VOLTAGE))
+    {
+      return (timestamp, data, offset, size) -> minBattery = Math.min(minBattery, data.getDouble(offset));
+    }
+    if (isDouble && name.equals(CAN_UTILIZATION))
+    {
+      return (timestamp, data, offset, size) -> {
+        double value = data.getDouble(offset);
+        canUtilizationSum += value;
+        canUtilizationCount++;
+        canUtilizationMax = Math.max(canUtilizationMax, value);
+      };
+    }
+    if (isDouble && name.startsWith(CAN_PREFIX) && name.endsWith(LATENCY_SUFFIX))
+    {
+      Histogram device = deviceLatency.computeIfAbsent(
+          name.substring(CAN_PREFIX.length(), name.length() - LATENCY_SUFFIX.length()), key -> new Histogram());
+      return (timestamp, data, offset, size) -> {
+        double millis = data.getDouble(offset) * 1e3;
+        device.add(millis);
+        canLatency.add(millis);
+      };
+    }
+    if (isBoolean && name.startsWith(VISION_PREFIX) && name.endsWith(ACCEPTED_SUFFIX))
+    {
+      long[] counts = visionAccepted.computeIfAbsent(
+          name.substring(VISION_PREFIX.length(), name.length() - ACCEPTED_SUFFIX.length()), key -> new long[2]);
+      return (timestamp, data, offset, size) -> {
+        counts[1]++;
+        if (data.get(offset) != 0)
+        {
+          counts[0]++;
+        }
+      };
+    }
+    if (isDouble)
+    {
+      switch (name)
+      {
+        case "Elevator/Request/Goal Position":
+          return (timestamp, data, offset, size) -> elevator.goal(timestamp, data.getDouble(offset));
+        case "Elevator/Inputs/Position":
+          return (timestamp, data, offset, size) -> elevator.position(timestamp, data.getDouble(offset));
+        case "Pivot/Request/Goal":
+          return (timestamp, data, offset, size) -> pivot.goal(timestamp, data.getDouble(offset));
+        case "Pivot/Inputs/Position":
+          return (timestamp, data, offset, size) -> pivot.position(timestamp, data.getDouble(offset));
+        default:
+          break;
+      }
+    }
+    if (isBoolean && name.equals("Pivot/Request/Manual Control"))
+    {
+      // The goal stays logged under manual control, but the pivot is not moving to it.
+      return (timestamp, data, offset, size) -> pivot.paused(timestamp, data.get(offset) != 0);
+    }
+    return null;
+  }
+
+  /**
+   * Add another summary into this one.
+   *
+   * @param other Summary to add.
+   */
+  public void merge(MatchSummary other)
+  {
+    loopTimes.merge(other.loopTimes);
+    canLatency.merge(other.canLatency);
+    other.deviceLatency.forEach((name, histogram) -> deviceLatency.computeIfAbsent(name, key -> new Histogram())
+                                                                  .merge(histogram));
+    other.visionAccepted.forEach((name, counts) -> {
+      long[] total = visionAccepted.computeIfAbsent(name, key -> new long[2]);
+      total[0] += counts[0];
+      total[1] += counts[1];
+    });
+    elevator.merge(other.elevator);
+    pivot.merge(other.pivot);
+    loopOverruns += other.loopOverruns;
+    brownouts += other.brownouts;
+    minBattery = Math.min(minBattery, other.minBattery);
+    canUtilizationSum += other.canUtilizationSum;
+    canUtilizationCount += other.canUtilizationCount;
+    canUtilizationMax = Math.max(canUtilizationMax, other.canUtilizationMax);
+    records += other.records;
+    files += other.files;
+    duration += other.duration;
+  }
+
+  /**
+   * Human readable report.
+   *
+   * @return Multi-line report.
+   */
+  public String report()
+  {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("  %d records over %.1f s%n", records, duration));
+    if (loopTimes.count() > 0)
+    {
+      builder.append(String.format("  Loop: %d loops, %d overruns (%.2f%%), p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                                   loopTimes.count(), loopOverruns, 100.0 * loopOverruns / loopTimes.count(),
+                                   loopTimes.percentile(0.5), loopTimes.percentile(0.99), loopTimes.max()));
+    }
+    if (canUtilizationCount > 0)
+    {
+      builder.append(String.format("  CAN utilization: mean %.1f%%, max %.1f%%%n",
+                                   100 * canUtilizationSum / canUtilizationCount, 100 * canUtilizationMax));
+    }
+    if (canLatency.count() > 0)
+    {
+      builder.append(String.format("  CAN latency: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                                   canLatency.percentile(0.5), canLatency.percentile(0.99), canLatency.max()));
+      deviceLatency.forEach((name, histogram) -> builder.append(
+          String.format("    %-24s p99 %.1f ms, max %.1f ms%n", name, histogram.percentile(0.99), histogram.max())));
+    }
+    visionAccepted.forEach((name, counts) -> builder.append(
+        String.format("  Vision %s: %d/%d frames accepted (%.1f%%)%n",
+                      name, counts[0], counts[1], counts[1] > 0 ? 100.0 * counts[0] / counts[1] : 0)));
+    if (minBattery != Double.POSITIVE_INFINITY)
+    {
+      builder.append(String.format("  Power: %d brownouts, min battery %.2f V%n", brownouts, minBattery));
+    }
+    builder.append("  Elevator settle: ").append(elevator.describe()).append(System.lineSeparator());
+    builder.append("  Pivot settle: ").append(pivot.describe()).append(System.lineSeparator());
+    return builder.toString();
+  }
+}
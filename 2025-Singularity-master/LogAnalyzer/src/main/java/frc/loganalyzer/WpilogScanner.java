@@ -0,0 +1,184 @@
+package frc.loganalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streaming parser for WPILOG files. The file is memory mapped in windows and every record is handed to a
+ * {@link Visitor} as a view into the mapping, so nothing but entry names is ever copied onto the heap.
+ * <p>
+ * A record cut short at the end of the file, as left behind when the robot loses power, ends the scan quietly.
+ */
+public final class WpilogScanner
+{
+
+  /**
+   * Largest window mapped at once, files bigger than this are mapped piece by piece.
+   */
+  private static final long WINDOW        = 1L << 30;
+  /**
+   * Longest possible record header: 1 byte of lengths, 4 of entry id, 4 of payload size, 8 of timestamp.
+   */
+  private static final int  MAX_HEADER    = 17;
+  private static final int  HEADER_SIZE   = 12;
+  private static final int  MIN_VERSION   = 0x0100;
+  private static final int  CONTROL_START = 0;
+
+  /**
+   * Receives the records of a log in file order.
+   */
+  public interface Visitor
+  {
+
+    /**
+     * An entry was started.
+     *
+     * @param entry Entry id used by the following records.
+     * @param name  Entry name.
+     * @param type  Entry type, e.g. {@code double} or {@code boolean}.
+     */
+    void start(int entry, String name, String type);
+
+    /**
+     * A data record.
+     *
+     * @param entry     Entry id.
+     * @param timestamp Timestamp in microseconds.
+     * @param data      Little endian buffer holding the payload. Only valid during the call.
+     * @param offset    Payload offset in the buffer.
+     * @param size      Payload size in bytes.
+     */
+    void record(int entry, long timestamp, ByteBuffer data, int offset, int size);
+  }
+
+  private WpilogScanner()
+  {
+  }
+
+  /**
+   * Scan a file.
+   *
+   * @param path    WPILOG file.
+   * @param visitor Visitor to hand records to.
+   * @throws IOException If the file cannot be read or is not a WPILOG.
+   */
+  public static void scan(Path path, Visitor visitor) throws IOException
+  {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+    {
+      long fileSize = channel.size();
+      if (fileSize < HEADER_SIZE)
+      {
+        throw new IOException(path + " is too short to be a WPILOG");
+      }
+      ByteBuffer buffer = map(channel, 0, fileSize);
+      byte[]     magic  = new byte[6];
+      buffer.get(0, magic);
+      if (!"WPILOG".equals(new String(magic, StandardCharsets.US_ASCII))
+          || (buffer.getShort(6) & 0xffff) < MIN_VERSION)
+      {
+        throw new IOException(path + " is not a WPILOG");
+      }
+      long position = HEADER_SIZE + (buffer.getInt(8) & 0xffffffffL);
+      long base     = 0;
+
+      while (position < fileSize)
+      {
+        if (position + MAX_HEADER > base + buffer.limit() && base + buffer.limit() < fileSize)
+        {
+          base = position;
+          buffer = map(channel, base, fileSize);
+        }
+        int index = (int) (position - base);
+        if (index >= buffer.limit())
+        {
+          break;
+        }
+        int lengths     = buffer.get(index) & 0xff;
+        int entryLength = (lengths & 0x3) + 1;
+        int sizeLength  = ((lengths >> 2) & 0x3) + 1;
+        int timeLength  = ((lengths >> 4) & 0x7) + 1;
+        int headerSize  = 1 + entryLength + sizeLength + timeLength;
+        if (index + headerSize > buffer.limit())
+        {
+          break;
+        }
+        int  entry     = (int) read(buffer, index + 1, entryLength);
+        long size      = read(buffer, index + 1 + entryLength, sizeLength);
+        long timestamp = read(buffer, index + 1 + entryLength + sizeLength, timeLength);
+        long end       = position + headerSize + size;
+        if (end > fileSize)
+        {
+          break;
+        }
+        if (end > base + buffer.limit())
+        {
+          // Record straddles the window, map again from its start.
+          base = position;
+          buffer = map(channel, base, fileSize);
+          continue;
+        }
+
+        int offset = index + headerSize;
+        if (entry == 0)
+        {
+          control(buffer, offset, (int) size, visitor);
+        } else
+        {
+          visitor.record(entry, timestamp, buffer, offset, (int) size);
+        }
+        position = end;
+      }
+    }
+  }
+
+  private static ByteBuffer map(FileChannel channel, long start, long fileSize) throws IOException
+  {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, fileSize - start));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  /**
+   * Read a little endian unsigned integer of 1 to 8 bytes.
+   */
+  private static long read(ByteBuffer buffer, int offset, int length)
+  {
+    long value = 0;
+    for (int i = 0; i < length; i++)
+    {
+      value |= (buffer.get(offset + i) & 0xffL) << (8 * i);
+    }
+    return value;
+  }
+
+  /**
+   * Handle a control record. Only starts are needed, finishes and metadata updates are skipped.
+   */
+  private static void control(ByteBuffer buffer, int offset, int size, Visitor visitor)
+  {
+    if (size < 17 || buffer.get(offset) != CONTROL_START)
+    {
+      return;
+    }
+    int    entry      = buffer.getInt(offset + 1);
+    int    nameLength = buffer.getInt(offset + 5);
+    String name       = string(buffer, offset + 9, nameLength);
+    int    typeLength = buffer.getInt(offset + 9 + nameLength);
+    String type       = string(buffer, offset + 13 + nameLength, typeLength);
+    visitor.start(entry, name, type);
+  }
+
+  private static String string(ByteBuffer buffer, int offset, int length)
+  {
+    byte[] bytes = new byte[length];
+    buffer.get(offset, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}